@@ -0,0 +1,26 @@
+package com.toopher;
+
+/**
+ * Runs every benchmark: the component benchmarks for URI building, signing and response decoding, followed by
+ * the full request path against a stub server
+ *
+ */
+public class BenchmarkSuite {
+
+    public static void main(String[] args) throws Exception {
+        section("URI building");
+        RequestUriBenchmark.main(args);
+        section("Signing");
+        SigningBenchmark.main(args);
+        section("Response decoding");
+        ResponseDecodingBenchmark.main(args);
+        section("Request path");
+        RequestPathBenchmark.main(args);
+    }
+
+    private static void section(String name) {
+        System.out.println();
+        System.out.println(name);
+        System.out.println("--------------------------------------");
+    }
+}
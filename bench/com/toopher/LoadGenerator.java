@@ -0,0 +1,617 @@
+package com.toopher;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Puts a steady load on the Toopher API, or on a stub server in the same process, for capacity planning and for
+ * comparing the client before and after a change
+ * <p>
+ * Callers run a weighted mix of flows: pair, which pairs a phrase with a user; authenticate, which starts an
+ * authentication request; and poll, which starts one and then polls its status until it is no longer pending.  With
+ * a rate, flows are started on a fixed schedule and shared among the callers, and a flow's latency is measured from
+ * when it was due to start, so it includes any wait for a free caller.  Without one, each caller starts its next flow
+ * as soon as the last one finishes.  After a warm-up, it reports the throughput, latency percentiles and errors of
+ * each call and each flow, and the CPU time and memory used by the client's threads, leaving out the stub server's.
+ * Threads that exit during the run are not counted.
+ * <p>
+ * Options are given as --name=value:
+ * <ul>
+ * <li>uri: the API's base URI; by default a stub server is started in the same process</li>
+ * <li>consumer-key, consumer-secret: the requester's credentials, by default from the TOOPHER_CONSUMER_KEY and
+ * TOOPHER_CONSUMER_SECRET environment variables; needed with a URI</li>
+ * <li>mix: the weight of each flow (default pair=1,authenticate=2,poll=7)</li>
+ * <li>rate: the flows started per second, or 0 to run the callers back to back (default 0)</li>
+ * <li>concurrency: the number of callers (default 16)</li>
+ * <li>seconds: how long to measure for (default 30), after warmup-seconds (default 5)</li>
+ * <li>transport: httpclient, jdk or h2 (default httpclient), with up to connections connections (default 100)</li>
+ * <li>retries: false to turn retries off (default true)</li>
+ * <li>pairing-phrase, user-name: what pair flows send; needed with a URI for pair flows</li>
+ * <li>pairing-id, terminal-name: what authenticate and poll flows send; the pairing ID is needed with a URI</li>
+ * <li>poll-interval-ms: the wait before each status lookup of a poll flow (default 100), up to max-polls lookups
+ * (default 30)</li>
+ * <li>stub-threads, stub-delay-ms, stub-pending-polls: the stub server's threads (default 16), how long it holds
+ * back each response (default 5) and how many lookups find an authentication request pending (default 2)</li>
+ * </ul>
+ *
+ */
+public class LoadGenerator {
+
+    public static void main(String[] args) throws Exception {
+        Options options;
+        List<Flow> mix;
+        Transport transport;
+        try {
+            options = new Options(args);
+            mix = options.mix();
+            transport = newTransport(options);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("usage: java -jar " + JAR_NAME + " [--name=value ...]; see LoadGenerator for the options");
+            System.exit(2);
+            return;
+        }
+
+        StubToopherServer server = null;
+        URI uri = options.getUri();
+        if (uri == null) {
+            server = new StubToopherServer(options.getInt("stub-threads", 16), options.getLong("stub-delay-ms", 5),
+                                           options.getInt("stub-pending-polls", 2));
+            uri = server.getBaseUri();
+        }
+        ToopherAPI api = new ToopherAPI(new OAuthRequestSigner(options.get("consumer-key", "load-consumer-key"),
+                                                               options.get("consumer-secret",
+                                                                           "load-consumer-secret")),
+                                        uri, transport);
+        if (!options.getBoolean("retries", true)) {
+            api.setRetryPolicy(null);
+        }
+        try {
+            int concurrency = options.getInt("concurrency", 16);
+            double rate = options.getDouble("rate", 0);
+            int seconds = options.getInt("seconds", 30);
+            System.out.println(String.format("%s, %s transport, %d connections", describeTarget(options, server, uri),
+                                             options.get("transport", "httpclient"),
+                                             options.getInt("connections", 100)));
+            System.out.println(String.format("%s, mix %s, %d s after %d s warm-up",
+                                             rate > 0 ? String.format("%.0f flows/s over %d callers", rate,
+                                                                      concurrency)
+                                                      : concurrency + " callers back to back",
+                                             options.get("mix", DEFAULT_MIX), seconds,
+                                             options.getInt("warmup-seconds", 5)));
+            try {
+                api.warmUp(concurrency);
+            } catch (RequestError e) {
+                // the warm-up period opens connections as well
+            }
+
+            run(api, options, mix, options.getInt("warmup-seconds", 5));
+            report(run(api, options, mix, seconds));
+        } finally {
+            api.close();
+            if (server != null) {
+                server.stop();
+            }
+        }
+        System.exit(0);
+    }
+
+    private static Transport newTransport(Options options) {
+        String name = options.get("transport", "httpclient");
+        int connections = options.getInt("connections", 100);
+        if ("jdk".equals(name)) {
+            return new JdkHttpTransport(connections);
+        } else if ("h2".equals(name)) {
+            return new Http2Transport(Math.max(1, connections / Http2Transport.DEFAULT_MAX_CONCURRENT_STREAMS),
+                                      connections);
+        } else if ("httpclient".equals(name)) {
+            return new HttpClientTransport(connections, connections);
+        }
+        throw new IllegalArgumentException("Unknown transport: " + name);
+    }
+
+    private static String describeTarget(Options options, StubToopherServer server, URI uri) {
+        if (server == null) {
+            return uri.toString();
+        }
+        return String.format("stub server (%d ms delay, %d pending polls)", options.getLong("stub-delay-ms", 5),
+                             options.getInt("stub-pending-polls", 2));
+    }
+
+    private static Stats run(final ToopherAPI api, final Options options, final List<Flow> mix, int seconds)
+            throws InterruptedException {
+        final Stats stats = new Stats(mix);
+        final double rate = options.getDouble("rate", 0);
+        final BlockingQueue<Long> schedule = new LinkedBlockingQueue<Long>();
+        final int concurrency = options.getInt("concurrency", 16);
+        final CountDownLatch done = new CountDownLatch(concurrency);
+        final ResourceUsage before = ResourceUsage.sample();
+        final long start = System.nanoTime();
+        final long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+
+        for (int i = 0; i < concurrency; i++) {
+            Thread caller = new Thread(() -> {
+                com.sun.management.ThreadMXBean threadBean = ResourceUsage.threadBean();
+                long threadId = Thread.currentThread().getId();
+                try {
+                    while (true) {
+                        long due = System.nanoTime();
+                        if (due >= deadline) {
+                            break;
+                        }
+                        if (rate > 0) {
+                            Long next = schedule.poll(deadline - due, TimeUnit.NANOSECONDS);
+                            if (next == null) {
+                                break;
+                            }
+                            due = next;
+                        }
+                        Flow flow = pick(mix);
+                        boolean succeeded;
+                        try {
+                            succeeded = flow.run(api, options, stats);
+                        } catch (RequestError e) {
+                            succeeded = false;
+                        }
+                        stats.flows.get(flow.name).record(System.nanoTime() - due, succeeded);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    stats.callerCpuNanos.add(threadBean.getThreadCpuTime(threadId));
+                    stats.callerAllocatedBytes.add(threadBean.getThreadAllocatedBytes(threadId));
+                    done.countDown();
+                }
+            }, CALLER_THREAD_NAME_PREFIX + i);
+            caller.setDaemon(true);
+            caller.start();
+        }
+
+        if (rate > 0) {
+            long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+            for (long next = start; next < deadline; next += interval) {
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                schedule.add(next);
+            }
+        }
+        done.await();
+        stats.elapsedNanos = System.nanoTime() - start;
+        stats.notStarted = schedule.size();
+        stats.used = ResourceUsage.sample().minus(before);
+        stats.used.clientCpuNanos += stats.callerCpuNanos.sum();
+        stats.used.clientAllocatedBytes += stats.callerAllocatedBytes.sum();
+        return stats;
+    }
+
+    private static Flow pick(List<Flow> mix) {
+        int total = 0;
+        for (Flow flow : mix) {
+            total += flow.weight;
+        }
+        int choice = ThreadLocalRandom.current().nextInt(total);
+        for (Flow flow : mix) {
+            choice -= flow.weight;
+            if (choice < 0) {
+                return flow;
+            }
+        }
+        return mix.get(mix.size() - 1);
+    }
+
+    private static void report(Stats stats) {
+        ResourceUsage used = stats.used;
+        double elapsedSeconds = stats.elapsedNanos / 1e9;
+        long calls = 0;
+        long flows = 0;
+        System.out.println();
+        System.out.println(String.format("%-26s %9s %10s %9s %9s %9s %9s %9s %8s", "", "count", "per s", "p50 ms",
+                                         "p90 ms", "p99 ms", "p99.9 ms", "max ms", "errors"));
+        for (Map.Entry<String, Metric> call : stats.calls.entrySet()) {
+            calls += call.getValue().count();
+            print("call " + call.getKey(), call.getValue(), elapsedSeconds);
+        }
+        for (Map.Entry<String, Metric> flow : stats.flows.entrySet()) {
+            flows += flow.getValue().count();
+            print("flow " + flow.getKey(), flow.getValue(), elapsedSeconds);
+        }
+        System.out.println();
+        System.out.println(String.format("%.0f flows/s, %.0f calls/s over %.1f s", flows / elapsedSeconds,
+                                         calls / elapsedSeconds, elapsedSeconds));
+        if (stats.notStarted > 0) {
+            System.out.println(String.format("%d flows not started: every caller was busy", stats.notStarted));
+        }
+
+        if (!stats.errors.isEmpty()) {
+            System.out.println();
+            System.out.println("errors");
+            for (Map.Entry<String, LongAdder> error : new TreeMap<String, LongAdder>(stats.errors).entrySet()) {
+                System.out.println(String.format("  %8d  %s", error.getValue().sum(), error.getKey()));
+            }
+        }
+
+        System.out.println();
+        System.out.println(String.format("client CPU %.2f s (%.0f%% of a core, %.0f us/call), allocated %.1f MB "
+                                                 + "(%.0f B/call)",
+                                         used.clientCpuNanos / 1e9, 100 * used.clientCpuNanos / 1e9 / elapsedSeconds,
+                                         calls == 0 ? 0 : used.clientCpuNanos / 1e3 / calls,
+                                         used.clientAllocatedBytes / 1e6,
+                                         calls == 0 ? 0 : (double) used.clientAllocatedBytes / calls));
+        System.out.println(String.format("process CPU %.2f s, %d collections taking %d ms",
+                                         used.processCpuNanos / 1e9, used.gcCount, used.gcMillis));
+    }
+
+    private static void print(String name, Metric metric, double elapsedSeconds) {
+        Histogram latency = metric.latency;
+        System.out.println(String.format("%-26s %9d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f %8d", name,
+                                         metric.count(), metric.count() / elapsedSeconds,
+                                         latency.getPercentile(0.50) / 1e6, latency.getPercentile(0.90) / 1e6,
+                                         latency.getPercentile(0.99) / 1e6, latency.getPercentile(0.999) / 1e6,
+                                         latency.getMax() / 1e6, metric.errors.sum()));
+    }
+
+    /**
+     * @return A short description of the error for the breakdown, such as "ApiError 409/601" or
+     *         "RequestError: SocketTimeoutException"
+     */
+    private static String describe(RequestError error) {
+        String type = error.getClass().getSimpleName();
+        if (error instanceof ApiError) {
+            ApiError apiError = (ApiError) error;
+            return apiError.getErrorCode() == ApiError.NO_ERROR_CODE ? type + " " + apiError.getStatusCode()
+                                                                     : type + " " + apiError.getStatusCode() + "/"
+                                                                             + apiError.getErrorCode();
+        }
+        Throwable cause = error.getCause();
+        return cause == null ? type + ": " + error.getMessage() : type + ": " + cause.getClass().getSimpleName();
+    }
+
+    /**
+     * A sequence of calls made by one user
+     */
+    private abstract static class Flow {
+        final String name;
+        final int weight;
+
+        Flow(String name, int weight) {
+            this.name = name;
+            this.weight = weight;
+        }
+
+        /**
+         * @return false if the flow failed without a RequestError
+         */
+        abstract boolean run(ToopherAPI api, Options options, Stats stats) throws RequestError,
+                InterruptedException;
+    }
+
+    private static class PairFlow extends Flow {
+
+        PairFlow(int weight) {
+            super("pair", weight);
+        }
+
+        @Override
+        boolean run(ToopherAPI api, Options options, Stats stats) throws RequestError {
+            long begin = System.nanoTime();
+            try {
+                api.pair(options.get("pairing-phrase", "load test"), options.get("user-name", "user@example.com"));
+            } catch (RequestError e) {
+                throw stats.failed(PAIR, e);
+            }
+            stats.succeeded(PAIR, System.nanoTime() - begin);
+            return true;
+        }
+    }
+
+    private static class AuthenticateFlow extends Flow {
+        private final boolean poll;
+
+        AuthenticateFlow(String name, int weight, boolean poll) {
+            super(name, weight);
+            this.poll = poll;
+        }
+
+        @Override
+        boolean run(ToopherAPI api, Options options, Stats stats) throws RequestError, InterruptedException {
+            long begin = System.nanoTime();
+            AuthenticationStatus status;
+            try {
+                status = api.authenticate(options.get("pairing-id", STUB_PAIRING_ID),
+                                          options.get("terminal-name", "load test"));
+            } catch (RequestError e) {
+                throw stats.failed(AUTHENTICATE, e);
+            }
+            stats.succeeded(AUTHENTICATE, System.nanoTime() - begin);
+            if (!poll) {
+                return true;
+            }
+
+            long interval = options.getLong("poll-interval-ms", 100);
+            int maxPolls = options.getInt("max-polls", 30);
+            for (int polls = 0; status.isPending(); polls++) {
+                if (polls == maxPolls) {
+                    stats.error(name, "still pending after " + maxPolls + " polls");
+                    return false;
+                }
+                if (interval > 0) {
+                    Thread.sleep(interval);
+                }
+                begin = System.nanoTime();
+                try {
+                    status = api.getAuthenticationStatus(status.getId());
+                } catch (RequestError e) {
+                    throw stats.failed(GET_AUTHENTICATION_STATUS, e);
+                }
+                stats.succeeded(GET_AUTHENTICATION_STATUS, System.nanoTime() - begin);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Latencies of successful calls or flows, and a count of failed ones
+     */
+    private static class Metric {
+        final Histogram latency = new Histogram();
+        final LongAdder errors = new LongAdder();
+
+        void record(long nanos, boolean succeeded) {
+            if (succeeded) {
+                latency.record(nanos);
+            } else {
+                errors.increment();
+            }
+        }
+
+        long count() {
+            return latency.getCount() + errors.sum();
+        }
+    }
+
+    private static class Stats {
+        final Map<String, Metric> calls = new LinkedHashMap<String, Metric>();
+        final Map<String, Metric> flows = new LinkedHashMap<String, Metric>();
+        final Map<String, LongAdder> errors = new ConcurrentHashMap<String, LongAdder>();
+        final LongAdder callerCpuNanos = new LongAdder();
+        final LongAdder callerAllocatedBytes = new LongAdder();
+        long elapsedNanos;
+        long notStarted;
+        ResourceUsage used;
+
+        Stats(List<Flow> mix) {
+            for (String call : new String[] { PAIR, AUTHENTICATE, GET_AUTHENTICATION_STATUS }) {
+                calls.put(call, new Metric());
+            }
+            for (Flow flow : mix) {
+                flows.put(flow.name, new Metric());
+            }
+        }
+
+        void succeeded(String call, long nanos) {
+            calls.get(call).record(nanos, true);
+        }
+
+        RequestError failed(String call, RequestError e) {
+            calls.get(call).record(0, false);
+            error(call, describe(e));
+            return e;
+        }
+
+        void error(String name, String description) {
+            String key = name + ": " + description;
+            LongAdder count = errors.get(key);
+            if (count == null) {
+                LongAdder added = new LongAdder();
+                count = errors.putIfAbsent(key, added);
+                if (count == null) {
+                    count = added;
+                }
+            }
+            count.increment();
+        }
+    }
+
+    /**
+     * CPU time and allocations of the client's threads other than the callers, which count their own, and of the
+     * whole process
+     */
+    private static class ResourceUsage {
+        final Map<Long, long[]> threads = new HashMap<Long, long[]>();
+        long clientCpuNanos;
+        long clientAllocatedBytes;
+        long processCpuNanos;
+        long gcCount;
+        long gcMillis;
+
+        static com.sun.management.ThreadMXBean threadBean() {
+            return (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        }
+
+        static ResourceUsage sample() {
+            com.sun.management.ThreadMXBean threadBean = threadBean();
+            ResourceUsage usage = new ResourceUsage();
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if (StubToopherServer.isServerThread(thread)
+                        || thread.getName().startsWith(CALLER_THREAD_NAME_PREFIX)) {
+                    continue;
+                }
+                long id = thread.getId();
+                long cpu = Math.max(0, threadBean.getThreadCpuTime(id));
+                long allocated = Math.max(0, threadBean.getThreadAllocatedBytes(id));
+                usage.threads.put(id, new long[] { cpu, allocated });
+                usage.clientCpuNanos += cpu;
+                usage.clientAllocatedBytes += allocated;
+            }
+            usage.processCpuNanos = ((com.sun.management.OperatingSystemMXBean) ManagementFactory
+                    .getOperatingSystemMXBean()).getProcessCpuTime();
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                usage.gcCount += Math.max(0, collector.getCollectionCount());
+                usage.gcMillis += Math.max(0, collector.getCollectionTime());
+            }
+            return usage;
+        }
+
+        /**
+         * @return The usage since the earlier sample, counting only threads still running
+         */
+        ResourceUsage minus(ResourceUsage earlier) {
+            ResourceUsage usage = new ResourceUsage();
+            for (Map.Entry<Long, long[]> thread : threads.entrySet()) {
+                long[] before = earlier.threads.get(thread.getKey());
+                usage.clientCpuNanos += thread.getValue()[0] - (before == null ? 0 : before[0]);
+                usage.clientAllocatedBytes += thread.getValue()[1] - (before == null ? 0 : before[1]);
+            }
+            usage.processCpuNanos = processCpuNanos - earlier.processCpuNanos;
+            usage.gcCount = gcCount - earlier.gcCount;
+            usage.gcMillis = gcMillis - earlier.gcMillis;
+            return usage;
+        }
+    }
+
+    private static class Options {
+        private final Map<String, String> values = new HashMap<String, String>();
+
+        Options(String[] args) {
+            for (String arg : args) {
+                int equals = arg.indexOf('=');
+                if (!arg.startsWith("--") || equals < 0) {
+                    throw new IllegalArgumentException("Expected --name=value: " + arg);
+                }
+                String name = arg.substring(2, equals);
+                if (!NAMES.contains(name)) {
+                    throw new IllegalArgumentException("Unknown option: " + name);
+                }
+                values.put(name, arg.substring(equals + 1));
+                if (WHOLE_NUMBERS.contains(name)) {
+                    getLong(name, 0);
+                }
+            }
+            getDouble("rate", 0);
+            String key = System.getenv("TOOPHER_CONSUMER_KEY");
+            String secret = System.getenv("TOOPHER_CONSUMER_SECRET");
+            if (!values.containsKey("consumer-key") && key != null && secret != null) {
+                values.put("consumer-key", key);
+                values.put("consumer-secret", secret);
+            }
+            if (values.containsKey("uri")) {
+                require("consumer-key", "consumer-secret");
+            }
+        }
+
+        URI getUri() {
+            return values.containsKey("uri") ? URI.create(values.get("uri")) : null;
+        }
+
+        List<Flow> mix() {
+            List<Flow> mix = new ArrayList<Flow>();
+            for (String entry : get("mix", DEFAULT_MIX).split(",")) {
+                String[] parts = entry.trim().split("=");
+                int weight = parts.length == 2 ? parseInt("mix", parts[1]) : 1;
+                if (weight < 0) {
+                    throw new IllegalArgumentException("Negative weight in mix: " + entry);
+                } else if (weight == 0) {
+                    continue;
+                }
+                if ("pair".equals(parts[0])) {
+                    require("pairing-phrase", "user-name");
+                    mix.add(new PairFlow(weight));
+                } else if ("authenticate".equals(parts[0]) || "poll".equals(parts[0])) {
+                    require("pairing-id");
+                    mix.add(new AuthenticateFlow(parts[0], weight, "poll".equals(parts[0])));
+                } else {
+                    throw new IllegalArgumentException("Unknown flow in mix: " + parts[0]);
+                }
+            }
+            if (mix.isEmpty()) {
+                throw new IllegalArgumentException("The mix has no flows");
+            }
+            return mix;
+        }
+
+        /**
+         * Stub values only make sense against the stub server
+         */
+        private void require(String... names) {
+            if (!values.containsKey("uri")) {
+                return;
+            }
+            for (String name : names) {
+                if (!values.containsKey(name)) {
+                    throw new IllegalArgumentException("--" + name + " is required with --uri");
+                }
+            }
+        }
+
+        String get(String name, String defaultValue) {
+            String value = values.get(name);
+            return value == null ? defaultValue : value;
+        }
+
+        int getInt(String name, int defaultValue) {
+            return values.containsKey(name) ? parseInt(name, values.get(name)) : defaultValue;
+        }
+
+        long getLong(String name, long defaultValue) {
+            try {
+                return values.containsKey(name) ? Long.parseLong(values.get(name).trim()) : defaultValue;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Expected a whole number for --" + name + ": " + values.get(name));
+            }
+        }
+
+        double getDouble(String name, double defaultValue) {
+            try {
+                return values.containsKey(name) ? Double.parseDouble(values.get(name)) : defaultValue;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Expected a number for --" + name + ": " + values.get(name));
+            }
+        }
+
+        boolean getBoolean(String name, boolean defaultValue) {
+            return values.containsKey(name) ? Boolean.parseBoolean(values.get(name)) : defaultValue;
+        }
+
+        private static int parseInt(String name, String value) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Expected a whole number for --" + name + ": " + value);
+            }
+        }
+
+        private static final List<String> NAMES = Arrays.asList(
+                "uri", "consumer-key", "consumer-secret", "mix", "rate", "concurrency", "seconds", "warmup-seconds",
+                "transport", "connections", "retries", "pairing-phrase", "user-name", "pairing-id", "terminal-name",
+                "poll-interval-ms", "max-polls", "stub-threads", "stub-delay-ms", "stub-pending-polls");
+        private static final List<String> WHOLE_NUMBERS = Arrays.asList(
+                "concurrency", "seconds", "warmup-seconds", "connections", "poll-interval-ms", "max-polls",
+                "stub-threads", "stub-delay-ms", "stub-pending-polls");
+    }
+
+    private static final String PAIR = "pair";
+    private static final String AUTHENTICATE = "authenticate";
+    private static final String GET_AUTHENTICATION_STATUS = "getAuthenticationStatus";
+    private static final String DEFAULT_MIX = "pair=1,authenticate=2,poll=7";
+    private static final String STUB_PAIRING_ID = "4f8e2cbd-5b6a-4d3e-9c1f-0a7b8e9d6c5b";
+    private static final String CALLER_THREAD_NAME_PREFIX = "load-caller-";
+    private static final String JAR_NAME = "ToopherJavaLoad.jar";
+}
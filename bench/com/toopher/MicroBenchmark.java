@@ -0,0 +1,47 @@
+package com.toopher;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the average time and heap allocation of a single-threaded operation
+ *
+ */
+class MicroBenchmark {
+    private static final int WARMUP_ITERATIONS = 200000;
+    private static final int MEASURED_ITERATIONS = 1000000;
+
+    interface Operation {
+        Object run() throws Exception;
+    }
+
+    static void report(String name, Operation operation) throws Exception {
+        report(name, operation, WARMUP_ITERATIONS, MEASURED_ITERATIONS);
+    }
+
+    static void report(String name, Operation operation, int warmupIterations, int measuredIterations)
+            throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        int sink = 0;
+
+        for (int i = 0; i < warmupIterations; i++) {
+            if (operation.run() == null) {
+                sink++;
+            }
+        }
+
+        long startBytes = threads.getThreadAllocatedBytes(threadId);
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < measuredIterations; i++) {
+            if (operation.run() == null) {
+                sink++;
+            }
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        long allocatedBytes = threads.getThreadAllocatedBytes(threadId) - startBytes;
+
+        System.out.println(String.format("%-32s %10.1f ns/op %10.1f B/op%s", name,
+                                         (double) elapsedNanos / measuredIterations,
+                                         (double) allocatedBytes / measuredIterations, sink > 0 ? " *" : ""));
+    }
+}
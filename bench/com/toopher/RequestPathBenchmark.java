@@ -0,0 +1,136 @@
+package com.toopher;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Drives the full ToopherAPI request path (signing, connection reuse, HTTP exchange and decoding) against an
+ * in-process stub server, reporting throughput, latency percentiles and bytes allocated per operation on the calling thread
+ * <p>
+ * Settings are read from system properties: bench.threads (default 8), bench.warmup.seconds (default 3) and
+ * bench.seconds (default 10).
+ *
+ */
+public class RequestPathBenchmark {
+
+    interface ApiCall {
+        Object call(ToopherAPI api) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = Integer.getInteger("bench.threads", 8);
+        int warmupSeconds = Integer.getInteger("bench.warmup.seconds", 3);
+        int seconds = Integer.getInteger("bench.seconds", 10);
+
+        StubToopherServer server = new StubToopherServer(threads);
+        ToopherAPI api = new ToopherAPI("benchmark-consumer-key", "benchmark-consumer-secret", server.getBaseUri());
+        try {
+            run("authenticate", api, threads, warmupSeconds, seconds,
+                client -> client.authenticate("4f8e2cbd-5b6a-4d3e-9c1f-0a7b8e9d6c5b", "my computer", "log in"));
+            run("getAuthenticationStatus", api, threads, warmupSeconds, seconds,
+                client -> client.getAuthenticationStatus("0e1f2a3b-4c5d-6e7f-8091-a2b3c4d5e6f7"));
+            run("pair", api, threads, warmupSeconds, seconds,
+                client -> client.pair("pairing phrase", "user@example.com"));
+        } finally {
+            api.close();
+            server.stop();
+        }
+    }
+
+    static void run(String name, final ToopherAPI api, int threads, int warmupSeconds, int seconds,
+                    final ApiCall call) throws Exception {
+        measure(api, threads, warmupSeconds, call);
+        Result result = measure(api, threads, seconds, call);
+
+        long[] latencies = result.latencies;
+        Arrays.sort(latencies);
+        System.out.println(String.format(
+                "%-24s %3d threads %10.0f ops/s   p50 %7.1f us   p90 %7.1f us   p99 %7.1f us   p99.9 %7.1f us"
+                        + "   max %8.1f us   %8.0f B/op   %d errors",
+                name, threads, latencies.length / (result.elapsedNanos / 1e9),
+                percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+                percentile(latencies, 0.999), latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1e3,
+                latencies.length == 0 ? 0 : (double) result.allocatedBytes / latencies.length, result.errors));
+    }
+
+    private static Result measure(final ToopherAPI api, int threads, int seconds, final ApiCall call)
+            throws InterruptedException {
+        final long deadline = System.nanoTime() + seconds * 1000000000L;
+        final com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final Worker[] workers = new Worker[threads];
+        final CountDownLatch done = new CountDownLatch(threads);
+
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            final Worker worker = new Worker();
+            workers[t] = worker;
+            Thread thread = new Thread(() -> {
+                long threadId = Thread.currentThread().getId();
+                long startBytes = threadBean.getThreadAllocatedBytes(threadId);
+                while (System.nanoTime() < deadline) {
+                    long begin = System.nanoTime();
+                    try {
+                        call.call(api);
+                        worker.record(System.nanoTime() - begin);
+                    } catch (Exception e) {
+                        worker.errors++;
+                    }
+                }
+                worker.allocatedBytes = threadBean.getThreadAllocatedBytes(threadId) - startBytes;
+                done.countDown();
+            }, "benchmark-" + t);
+            thread.start();
+        }
+        done.await();
+
+        Result result = new Result();
+        result.elapsedNanos = System.nanoTime() - start;
+        int total = 0;
+        for (Worker worker : workers) {
+            total += worker.count;
+        }
+        result.latencies = new long[total];
+        int offset = 0;
+        for (Worker worker : workers) {
+            System.arraycopy(worker.latencies, 0, result.latencies, offset, worker.count);
+            offset += worker.count;
+            result.allocatedBytes += worker.allocatedBytes;
+            result.errors += worker.errors;
+        }
+        return result;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e3;
+    }
+
+    /**
+     * Per-thread latency samples, so recording never contends between threads
+     */
+    private static class Worker {
+        long[] latencies = new long[1 << 16];
+        int count;
+        long errors;
+        long allocatedBytes;
+
+        void record(long nanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+        }
+    }
+
+    private static class Result {
+        long[] latencies;
+        long elapsedNanos;
+        long allocatedBytes;
+        long errors;
+    }
+}
@@ -0,0 +1,36 @@
+package com.toopher;
+
+import java.net.URI;
+
+import org.apache.http.client.utils.URIBuilder;
+
+/**
+ * Compares the cost of building status request URIs with a cached EndpointTemplate against building them with a
+ * URIBuilder and String.format on every call, as ToopherAPI used to
+ *
+ */
+public class RequestUriBenchmark {
+    private static final String SCHEME = "https";
+    private static final String HOST = "api.toopher.com";
+    private static final int PORT = 443;
+    private static final String BASE = "/v1/";
+    private static final String ID = "4f8e2cbd-5b6a-4d3e-9c1f-0a7b8e9d6c5b";
+
+    public static void main(String[] args) throws Exception {
+        final EndpointTemplate template = new EndpointTemplate(
+                new URIBuilder().setScheme(SCHEME).setHost(HOST).setPort(PORT).setPath(BASE).build().toString(),
+                "authentication_requests/");
+
+        if (!template.expand(ID).equals(perCallUri(ID))) {
+            throw new IllegalStateException("Cached and per-call URIs differ");
+        }
+
+        MicroBenchmark.report("URIBuilder + String.format", () -> perCallUri(ID));
+        MicroBenchmark.report("EndpointTemplate", () -> template.expand(ID));
+    }
+
+    private static URI perCallUri(String id) throws Exception {
+        String endpoint = String.format("authentication_requests/%s", id);
+        return new URIBuilder().setScheme(SCHEME).setHost(HOST).setPort(PORT).setPath(BASE + endpoint).build();
+    }
+}
@@ -0,0 +1,31 @@
+package com.toopher;
+
+import java.nio.charset.Charset;
+
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * Measures JSON parsing and status-object construction, comparing direct decoding from the response bytes with
+ * the JSONObject path
+ *
+ */
+public class ResponseDecodingBenchmark {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    public static void main(String[] args) throws Exception {
+        final byte[] auth = StubToopherServer.AUTHENTICATION_STATUS;
+        final byte[] pairing = StubToopherServer.PAIRING_STATUS;
+        final JSONObject authJson = (JSONObject) new JSONTokener(new String(auth, UTF_8)).nextValue();
+
+        MicroBenchmark.report("parse: JSONTokener", () -> new JSONTokener(new String(auth, UTF_8)).nextValue());
+        MicroBenchmark.report("parse: JsonReader", () -> {
+            JsonReader reader = new JsonReader(auth);
+            reader.skipValue();
+            return reader;
+        });
+        MicroBenchmark.report("construct: from JSONObject", () -> new AuthenticationStatus(authJson));
+        MicroBenchmark.report("decode: AuthenticationStatus", () -> AuthenticationStatus.decode(auth, false));
+        MicroBenchmark.report("decode: PairingStatus", () -> PairingStatus.decode(pairing, false));
+    }
+}
@@ -0,0 +1,54 @@
+package com.toopher;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import oauth.signpost.commonshttp.CommonsHttpOAuthConsumer;
+import oauth.signpost.http.HttpParameters;
+
+import org.apache.http.NameValuePair;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.message.BasicNameValuePair;
+
+/**
+ * Compares signing an authenticate request with OAuthRequestSigner against signpost's CommonsHttpOAuthConsumer,
+ * after checking that both produce the same Authorization header
+ *
+ */
+public class SigningBenchmark {
+    private static final String CONSUMER_KEY = "benchmark-consumer-key";
+    private static final String CONSUMER_SECRET = "benchmark-consumer-secret";
+
+    public static void main(String[] args) throws Exception {
+        final URI uri = new URI("https://api.toopher.com:443/v1/authentication_requests/initiate");
+        final List<NameValuePair> params = new ArrayList<NameValuePair>();
+        params.add(new BasicNameValuePair("pairing_id", "4f8e2cbd-5b6a-4d3e-9c1f-0a7b8e9d6c5b"));
+        params.add(new BasicNameValuePair("terminal_name", "my computer"));
+        params.add(new BasicNameValuePair("action_name", "log in"));
+
+        final OAuthRequestSigner signer = new OAuthRequestSigner(CONSUMER_KEY, CONSUMER_SECRET);
+        if (!signer.sign("POST", uri, params, "1234", "1350000000").equals(signpost(uri, params, "1234", "1350000000"))) {
+            throw new IllegalStateException("OAuthRequestSigner and signpost signatures differ");
+        }
+
+        MicroBenchmark.report("signpost", () -> signpost(uri, params, null, null), 20000, 100000);
+        MicroBenchmark.report("OAuthRequestSigner", () -> signer.sign("POST", uri, params), 20000, 100000);
+    }
+
+    private static String signpost(URI uri, List<NameValuePair> params, String nonce, String timestamp)
+            throws Exception {
+        HttpPost post = new HttpPost(uri);
+        post.setEntity(new UrlEncodedFormEntity(params));
+        CommonsHttpOAuthConsumer consumer = new CommonsHttpOAuthConsumer(CONSUMER_KEY, CONSUMER_SECRET);
+        if (nonce != null) {
+            HttpParameters fixed = new HttpParameters();
+            fixed.put("oauth_nonce", nonce, true);
+            fixed.put("oauth_timestamp", timestamp, true);
+            consumer.setAdditionalParameters(fixed);
+        }
+        consumer.sign(post);
+        return post.getFirstHeader("Authorization").getValue();
+    }
+}
@@ -0,0 +1,345 @@
+package com.toopher;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An in-process cleartext server that speaks HTTP/1.1 and, when enabled, upgrades connections to HTTP/2 (h2c)
+ * <p>
+ * Requests made over HTTP/1.1, including the upgrade request, are answered by path like {@link StubToopherServer}.
+ * The stub doesn't decode HPACK, so requests made over HTTP/2 streams are all answered with an authentication
+ * status.  It counts the connections it accepts, so benchmarks can compare how many sockets each transport opens.
+ *
+ */
+class StubHttp2Server {
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+    private static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(ISO_8859_1);
+
+    private static final int DATA = 0x0;
+    private static final int HEADERS = 0x1;
+    private static final int RST_STREAM = 0x3;
+    private static final int SETTINGS = 0x4;
+    private static final int PING = 0x6;
+    private static final int GOAWAY = 0x7;
+    private static final int WINDOW_UPDATE = 0x8;
+    private static final int CONTINUATION = 0x9;
+
+    private static final int FLAG_END_STREAM = 0x1;
+    private static final int FLAG_ACK = 0x1;
+    private static final int FLAG_END_HEADERS = 0x4;
+
+    private static final int SETTINGS_MAX_CONCURRENT_STREAMS = 0x3;
+
+    private final ServerSocket serverSocket;
+    private final ScheduledExecutorService responder;
+    private final boolean http2;
+    private final long delayMillis;
+    private final int maxConcurrentStreams;
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final ConcurrentLinkedQueue<Socket> sockets = new ConcurrentLinkedQueue<Socket>();
+
+    /**
+     * @param http2
+     *            true to accept h2c upgrades, false to answer every request over HTTP/1.1
+     * @param delayMillis
+     *            How long each response is held back, to stand in for the API's own latency
+     * @param maxConcurrentStreams
+     *            The SETTINGS_MAX_CONCURRENT_STREAMS to advertise
+     */
+    StubHttp2Server(boolean http2, long delayMillis, int maxConcurrentStreams) throws IOException {
+        this.http2 = http2;
+        this.delayMillis = delayMillis;
+        this.maxConcurrentStreams = maxConcurrentStreams;
+        serverSocket = new ServerSocket(0, 1024, InetAddress.getByName("127.0.0.1"));
+        responder = Executors.newScheduledThreadPool(4);
+        Thread acceptor = new Thread(() -> accept(), "stub-h2-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    URI getBaseUri() {
+        return URI.create("http://127.0.0.1:" + serverSocket.getLocalPort() + "/v1/");
+    }
+
+    /**
+     * @return The number of connections accepted since the server started or the count was last reset
+     */
+    int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    void resetConnectionCount() {
+        connectionCount.set(0);
+    }
+
+    void stop() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // stopping anyway
+        }
+        for (Socket socket : sockets) {
+            closeQuietly(socket);
+        }
+        responder.shutdownNow();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+            } catch (IOException e) {
+                return;
+            }
+            connectionCount.incrementAndGet();
+            sockets.add(socket);
+            Thread reader = new Thread(() -> {
+                try {
+                    serve(socket);
+                } catch (IOException e) {
+                    // the client closed the connection
+                } finally {
+                    sockets.remove(socket);
+                    closeQuietly(socket);
+                }
+            }, "stub-h2-connection");
+            reader.setDaemon(true);
+            reader.start();
+        }
+    }
+
+    private void serve(Socket socket) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+        while (true) {
+            String requestLine = readLine(in);
+            if (requestLine == null) {
+                return;
+            }
+            String path = requestLine.split(" ")[1];
+            boolean upgrade = false;
+            int contentLength = 0;
+            for (String header = readLine(in); header != null && header.length() > 0; header = readLine(in)) {
+                int colon = header.indexOf(':');
+                String name = header.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+                String value = header.substring(colon + 1).trim();
+                if ("upgrade".equals(name) && "h2c".equalsIgnoreCase(value)) {
+                    upgrade = http2;
+                } else if ("content-length".equals(name)) {
+                    contentLength = Integer.parseInt(value);
+                }
+            }
+            in.readFully(new byte[contentLength]);
+            delay();
+            if (upgrade) {
+                out.write("HTTP/1.1 101 Switching Protocols\r\nConnection: Upgrade\r\nUpgrade: h2c\r\n\r\n"
+                        .getBytes(ISO_8859_1));
+                serveHttp2(in, out, body(path));
+                return;
+            }
+            byte[] body = body(path);
+            out.write(("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: " + body.length
+                    + "\r\n\r\n").getBytes(ISO_8859_1));
+            out.write(body);
+            out.flush();
+        }
+    }
+
+    /**
+     * Serve streams after an upgrade, answering the upgrade request on stream 1
+     */
+    private void serveHttp2(DataInputStream in, final OutputStream out, byte[] upgradeResponse) throws IOException {
+        byte[] settings = new byte[6];
+        settings[1] = SETTINGS_MAX_CONCURRENT_STREAMS;
+        writeInt(settings, 2, maxConcurrentStreams);
+        synchronized (out) {
+            writeFrame(out, SETTINGS, 0, 0, settings);
+            writeResponse(out, 1, upgradeResponse);
+        }
+
+        byte[] preface = new byte[PREFACE.length];
+        in.readFully(preface);
+        Set<Integer> endingStreams = new HashSet<Integer>();
+        while (true) {
+            int length = in.readUnsignedShort() << 8 | in.readUnsignedByte();
+            int type = in.readUnsignedByte();
+            int flags = in.readUnsignedByte();
+            final int streamId = in.readInt() & 0x7fffffff;
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+
+            boolean requestEnded = false;
+            switch (type) {
+            case HEADERS:
+                if ((flags & FLAG_END_HEADERS) != 0) {
+                    requestEnded = (flags & FLAG_END_STREAM) != 0;
+                } else if ((flags & FLAG_END_STREAM) != 0) {
+                    endingStreams.add(streamId);
+                }
+                break;
+            case CONTINUATION:
+                requestEnded = (flags & FLAG_END_HEADERS) != 0 && endingStreams.remove(streamId);
+                break;
+            case DATA:
+                if (length > 0) {
+                    // give back the window the body used, on the connection and the stream
+                    byte[] increment = new byte[4];
+                    writeInt(increment, 0, length);
+                    synchronized (out) {
+                        writeFrame(out, WINDOW_UPDATE, 0, 0, increment);
+                        if ((flags & FLAG_END_STREAM) == 0) {
+                            writeFrame(out, WINDOW_UPDATE, 0, streamId, increment);
+                        }
+                        out.flush();
+                    }
+                }
+                requestEnded = (flags & FLAG_END_STREAM) != 0;
+                break;
+            case SETTINGS:
+                if ((flags & FLAG_ACK) == 0) {
+                    synchronized (out) {
+                        writeFrame(out, SETTINGS, FLAG_ACK, 0, new byte[0]);
+                        out.flush();
+                    }
+                }
+                break;
+            case PING:
+                if ((flags & FLAG_ACK) == 0) {
+                    synchronized (out) {
+                        writeFrame(out, PING, FLAG_ACK, 0, payload);
+                        out.flush();
+                    }
+                }
+                break;
+            case GOAWAY:
+                return;
+            case RST_STREAM:
+            case WINDOW_UPDATE:
+            default:
+                // responses are small enough to fit the client's initial window
+                break;
+            }
+
+            if (requestEnded) {
+                responder.schedule(() -> {
+                    try {
+                        synchronized (out) {
+                            writeResponse(out, streamId, StubToopherServer.AUTHENTICATION_STATUS);
+                        }
+                    } catch (IOException e) {
+                        // the client closed the connection
+                    }
+                }, delayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Write a 200 response with a JSON body.  The headers are encoded as HPACK literals that are never indexed, so
+     * the stub keeps no compression state.
+     */
+    private static void writeResponse(OutputStream out, int streamId, byte[] body) throws IOException {
+        ByteArrayOutputStream headers = new ByteArrayOutputStream();
+        // :status 200, from the static table
+        headers.write(0x88);
+        writeLiteral(headers, 31, "application/json");
+        writeLiteral(headers, 28, Integer.toString(body.length));
+        writeFrame(out, HEADERS, FLAG_END_HEADERS, streamId, headers.toByteArray());
+        writeFrame(out, DATA, FLAG_END_STREAM, streamId, body);
+        out.flush();
+    }
+
+    /**
+     * Write a header field without indexing, naming it by its index in the static table
+     */
+    private static void writeLiteral(ByteArrayOutputStream headers, int nameIndex, String value) {
+        headers.write(0x0f);
+        headers.write(nameIndex - 0x0f);
+        byte[] bytes = value.getBytes(ISO_8859_1);
+        headers.write(bytes.length);
+        headers.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeFrame(OutputStream out, int type, int flags, int streamId, byte[] payload)
+            throws IOException {
+        byte[] header = new byte[9];
+        header[0] = (byte) (payload.length >>> 16);
+        header[1] = (byte) (payload.length >>> 8);
+        header[2] = (byte) payload.length;
+        header[3] = (byte) type;
+        header[4] = (byte) flags;
+        writeInt(header, 5, streamId);
+        out.write(header);
+        out.write(payload);
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        while (true) {
+            int b = in.read();
+            if (b < 0) {
+                if (line.length() == 0) {
+                    return null;
+                }
+                throw new EOFException();
+            }
+            if (b == '\n') {
+                int length = line.length();
+                return length > 0 && line.charAt(length - 1) == '\r' ? line.substring(0, length - 1)
+                                                                     : line.toString();
+            }
+            line.append((char) b);
+        }
+    }
+
+    private static byte[] body(String path) {
+        return path.startsWith("/v1/pairings/") ? StubToopherServer.PAIRING_STATUS
+                                                : StubToopherServer.AUTHENTICATION_STATUS;
+    }
+
+    private void delay() {
+        if (delayMillis > 0) {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // closing anyway
+        }
+    }
+}
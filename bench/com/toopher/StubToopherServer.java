@@ -0,0 +1,147 @@
+package com.toopher;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An in-process HTTP server that answers Toopher API requests with canned responses
+ * <p>
+ * By default every authentication request is granted at once.  Given a number of pending polls, each authentication
+ * request it creates gets its own ID and is reported pending that many times before it is granted, as if the user
+ * took a while to answer on their phone.
+ *
+ */
+class StubToopherServer {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    static final byte[] PAIRING_STATUS = ("{\"id\":\"4f8e2cbd-5b6a-4d3e-9c1f-0a7b8e9d6c5b\",\"enabled\":true,"
+            + "\"pending\":false,\"user\":{\"id\":\"a9c2e8f0-1b3d-4e5f-8a7b-6c5d4e3f2a1b\","
+            + "\"name\":\"user@example.com\"}}").getBytes(UTF_8);
+
+    static final byte[] AUTHENTICATION_STATUS = ("{\"id\":\"0e1f2a3b-4c5d-6e7f-8091-a2b3c4d5e6f7\","
+            + "\"pending\":false,\"granted\":true,\"automated\":false,\"reason\":\"\","
+            + "\"terminal\":{\"id\":\"5d6e7f80-91a2-b3c4-d5e6-f708192a3b4c\",\"name\":\"my computer\"}}")
+            .getBytes(UTF_8);
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, AtomicInteger> pendingPolls = new ConcurrentHashMap<String, AtomicInteger>();
+    private final AtomicLong nextRequestId = new AtomicLong();
+
+    StubToopherServer(int threads) throws IOException {
+        this(threads, 0);
+    }
+
+    /**
+     * @param delayMillis
+     *            How long each response is held back, to stand in for the API's own latency
+     */
+    StubToopherServer(int threads, long delayMillis) throws IOException {
+        this(threads, delayMillis, 0);
+    }
+
+    /**
+     * @param delayMillis
+     *            How long each response is held back, to stand in for the API's own latency
+     * @param pollsUntilGranted
+     *            How many status lookups of a new authentication request answer that it is still pending
+     */
+    StubToopherServer(int threads, final long delayMillis, final int pollsUntilGranted) throws IOException {
+        // without this the stub's separate header and body writes meet delayed ACKs, adding ~40ms per exchange
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.createContext("/v1/", exchange -> {
+            InputStream in = exchange.getRequestBody();
+            byte[] discard = new byte[1024];
+            while (in.read(discard) >= 0) {
+                // drain the form body so the connection can be reused
+            }
+
+            if (delayMillis > 0) {
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            byte[] body;
+            if (path.startsWith("/v1/pairings/")) {
+                body = PAIRING_STATUS;
+            } else if (pollsUntilGranted > 0) {
+                body = authenticationStatus(path, pollsUntilGranted);
+            } else {
+                body = AUTHENTICATION_STATUS;
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            out.close();
+        });
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, THREAD_NAME_PREFIX + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    private byte[] authenticationStatus(String path, int pollsUntilGranted) {
+        String id;
+        boolean pending;
+        if (path.endsWith("/initiate")) {
+            id = String.format("00000000-0000-4000-8000-%012x", nextRequestId.incrementAndGet());
+            pendingPolls.put(id, new AtomicInteger(pollsUntilGranted));
+            pending = true;
+        } else {
+            id = path.substring(path.lastIndexOf('/') + 1);
+            AtomicInteger polls = pendingPolls.get(id);
+            pending = polls != null && polls.getAndDecrement() > 0;
+            if (polls != null && !pending) {
+                pendingPolls.remove(id);
+            }
+        }
+        return ("{\"id\":\"" + id + "\",\"pending\":" + pending + ",\"granted\":" + !pending
+                + ",\"automated\":false,\"reason\":\"\",\"terminal\":{\"id\":"
+                + "\"5d6e7f80-91a2-b3c4-d5e6-f708192a3b4c\",\"name\":\"my computer\"}}").getBytes(UTF_8);
+    }
+
+    /**
+     * @return true for the threads that answer requests, whose CPU time and allocations are the server's
+     */
+    static boolean isServerThread(Thread thread) {
+        return thread.getName().startsWith(THREAD_NAME_PREFIX) || thread.getName().equals("HTTP-Dispatcher");
+    }
+
+    URI getBaseUri() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/v1/");
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private static final String THREAD_NAME_PREFIX = "stub-server-";
+}
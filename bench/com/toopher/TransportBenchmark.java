@@ -0,0 +1,141 @@
+package com.toopher;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compares the transports under many concurrent callers, each looping on getAuthenticationStatus against an
+ * in-process stub server that holds every response back to stand in for the API's latency, and counts the
+ * connections each transport opens
+ * <p>
+ * Callers run on virtual threads when the runtime has them (Java 21 and later), and on a platform thread each
+ * otherwise.  Settings are read from system properties: bench.callers, a comma-separated list of caller counts
+ * (default 64,1000,4000), bench.connections (default 100), bench.h2.connections, the connections the HTTP/2
+ * transport multiplexes over (default 2), bench.server.delay.ms (default 5), bench.warmup.seconds (default 3) and
+ * bench.seconds (default 10).
+ *
+ */
+public class TransportBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String[] callerCounts = System.getProperty("bench.callers", "64,1000,4000").split(",");
+        int connections = Integer.getInteger("bench.connections", 100);
+        int http2Connections = Integer.getInteger("bench.h2.connections", 2);
+        long delayMillis = Long.getLong("bench.server.delay.ms", 5);
+        int warmupSeconds = Integer.getInteger("bench.warmup.seconds", 3);
+        int seconds = Integer.getInteger("bench.seconds", 10);
+
+        System.out.println(String.format("callers on %s threads, %d connections, %d ms server delay",
+                                         hasVirtualThreads() ? "virtual" : "platform", connections, delayMillis));
+        StubHttp2Server server = new StubHttp2Server(true, delayMillis, SERVER_MAX_CONCURRENT_STREAMS);
+        try {
+            for (String callerCount : callerCounts) {
+                int callers = Integer.parseInt(callerCount.trim());
+                for (String transportName : TRANSPORTS) {
+                    Transport transport;
+                    if ("jdk".equals(transportName)) {
+                        transport = new JdkHttpTransport(connections);
+                    } else if ("h2".equals(transportName)) {
+                        transport = new Http2Transport(http2Connections, connections);
+                    } else {
+                        transport = new HttpClientTransport(connections, connections);
+                    }
+                    ToopherAPI api = new ToopherAPI(new OAuthRequestSigner("benchmark-consumer-key",
+                                                                           "benchmark-consumer-secret"),
+                                                    server.getBaseUri(), transport);
+                    // queueing for a connection is part of what is measured
+                    api.setConnectionRequestTimeout(0);
+                    server.resetConnectionCount();
+                    try {
+                        measure(api, callers, warmupSeconds);
+                        Result result = measure(api, callers, seconds);
+                        System.out.println(String.format(
+                                "%-16s %6d callers %10.0f ops/s   p50 %8.2f ms   p99 %8.2f ms   max %8.2f ms"
+                                        + "   %5d peak platform threads   %4d connections   %d errors",
+                                transportName, callers, result.latency.getCount() / (result.elapsedNanos / 1e9),
+                                result.latency.getPercentile(0.50) / 1e6, result.latency.getPercentile(0.99) / 1e6,
+                                result.latency.getMax() / 1e6, result.peakThreads, server.getConnectionCount(),
+                                result.errors.sum()));
+                    } finally {
+                        api.close();
+                    }
+                }
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static Result measure(final ToopherAPI api, int callers, int seconds) throws Exception {
+        final long deadline = System.nanoTime() + seconds * 1000000000L;
+        final Result result = new Result();
+        final CountDownLatch done = new CountDownLatch(callers);
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        threadBean.resetPeakThreadCount();
+
+        ExecutorService executor = callerExecutor(callers);
+        long start = System.nanoTime();
+        for (int i = 0; i < callers; i++) {
+            executor.execute(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        long begin = System.nanoTime();
+                        try {
+                            api.getAuthenticationStatus("0e1f2a3b-4c5d-6e7f-8091-a2b3c4d5e6f7");
+                            result.latency.record(System.nanoTime() - begin);
+                        } catch (RequestError e) {
+                            result.errors.increment();
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        result.elapsedNanos = System.nanoTime() - start;
+        result.peakThreads = threadBean.getPeakThreadCount();
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        return result;
+    }
+
+    /**
+     * @return A virtual thread per caller if the runtime has them, or else a platform thread per caller
+     */
+    private static ExecutorService callerExecutor(int callers) throws Exception {
+        Method newVirtualThreadPerTaskExecutor = virtualThreadFactoryMethod();
+        if (newVirtualThreadPerTaskExecutor != null) {
+            return (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+        }
+        return Executors.newFixedThreadPool(callers);
+    }
+
+    private static boolean hasVirtualThreads() {
+        return virtualThreadFactoryMethod() != null;
+    }
+
+    private static Method virtualThreadFactoryMethod() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static class Result {
+        final Histogram latency = new Histogram();
+        final LongAdder errors = new LongAdder();
+        long elapsedNanos;
+        int peakThreads;
+    }
+
+    private static final String[] TRANSPORTS = { "httpclient", "jdk", "h2" };
+    private static final int SERVER_MAX_CONCURRENT_STREAMS = 128;
+}
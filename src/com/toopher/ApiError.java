@@ -0,0 +1,108 @@
+package com.toopher;
+
+/**
+ * An error reported by the Toopher API: a response with an HTTP error status, and usually a Toopher error code
+ * and message in its body
+ * <p>
+ * Client errors (HTTP 4xx other than 429) are expected outcomes of a call, such as an unknown user or a
+ * deactivated pairing, and are thrown without capturing a stack trace.
+ *
+ */
+public class ApiError extends RequestError {
+
+    /**
+     * The error code when the response body did not include one
+     */
+    public static final int NO_ERROR_CODE = -1;
+
+    /**
+     * Create an error for an API response
+     *
+     * @param statusCode
+     *            The HTTP status of the response
+     * @param errorCode
+     *            The Toopher error code, or {@link #NO_ERROR_CODE}
+     * @param errorMessage
+     *            The Toopher error message, or the HTTP reason phrase if the body had none
+     */
+    public ApiError(int statusCode, int errorCode, String errorMessage) {
+        this(statusCode, errorCode, errorMessage, null);
+    }
+
+    ApiError(int statusCode, int errorCode, String errorMessage, Throwable cause) {
+        super(describe(statusCode, errorCode, errorMessage), cause, !isClientError(statusCode));
+        this.statusCode = statusCode;
+        this.errorCode = errorCode;
+        this.errorMessage = errorMessage;
+    }
+
+    /**
+     * Create the error for a response, using the subclass for its error code if there is one
+     */
+    static ApiError of(int statusCode, int errorCode, String errorMessage, Throwable cause) {
+        switch (errorCode) {
+        case PairingDeactivatedError.ERROR_CODE:
+            return new PairingDeactivatedError(statusCode, errorMessage, cause);
+        case UserDisabledError.ERROR_CODE:
+            return new UserDisabledError(statusCode, errorMessage, cause);
+        case UnknownUserError.ERROR_CODE:
+            return new UnknownUserError(statusCode, errorMessage, cause);
+        case UnknownTerminalError.ERROR_CODE:
+            return new UnknownTerminalError(statusCode, errorMessage, cause);
+        default:
+            return new ApiError(statusCode, errorCode, errorMessage, cause);
+        }
+    }
+
+    /**
+     * @return The HTTP status of the response
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return The Toopher error code, or {@link #NO_ERROR_CODE} if the response didn't include one
+     */
+    public int getErrorCode() {
+        return errorCode;
+    }
+
+    /**
+     * @return The Toopher error message, or the HTTP reason phrase if the response didn't include one
+     */
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    /**
+     * @return true if the API was overloaded or failed (HTTP 429 or 5xx), so the call might succeed later.  A
+     *         pairing or authentication call that failed with a server error other than 503 may already have been
+     *         acted on.
+     */
+    @Override
+    public boolean isRetryable() {
+        return statusCode == 429 || statusCode >= 500;
+    }
+
+    private static boolean isClientError(int statusCode) {
+        return statusCode >= 400 && statusCode < 500 && statusCode != 429;
+    }
+
+    private static String describe(int statusCode, int errorCode, String errorMessage) {
+        StringBuilder sb = new StringBuilder("API error: HTTP ").append(statusCode);
+        if (errorCode != NO_ERROR_CODE) {
+            sb.append(", error code ").append(errorCode);
+        }
+        if (errorMessage != null && errorMessage.length() > 0) {
+            sb.append(": ").append(errorMessage);
+        }
+        return sb.toString();
+    }
+
+    private static final long serialVersionUID = 6017593486230357180L;
+
+    private final int statusCode;
+    private final int errorCode;
+    private final String errorMessage;
+}
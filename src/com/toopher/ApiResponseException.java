@@ -0,0 +1,70 @@
+package com.toopher;
+
+import org.apache.http.client.HttpResponseException;
+import org.json.JSONException;
+
+/**
+ * Carries an API error response through the request path, which only lets transports and response handlers throw
+ * IOExceptions, until it is turned into an {@link ApiError} for the caller
+ * <p>
+ * It is an HttpResponseException, so retry and circuit breaker decisions treat it like any other error status.
+ * It doesn't capture a stack trace: the {@link ApiError} made from it describes the failure.
+ *
+ */
+class ApiResponseException extends HttpResponseException {
+
+    ApiResponseException(int statusCode, int errorCode, String errorMessage) {
+        super(statusCode, errorMessage);
+        this.errorCode = errorCode;
+        this.errorMessage = errorMessage;
+    }
+
+    /**
+     * Read the Toopher error code and message from the body of an error response, if it has them
+     *
+     * @param reasonPhrase
+     *            The message to report if the body doesn't have one
+     * @param body
+     *            The response body, or null if it wasn't read
+     */
+    static ApiResponseException parse(int statusCode, String reasonPhrase, byte[] body) {
+        int errorCode = ApiError.NO_ERROR_CODE;
+        String errorMessage = reasonPhrase;
+        if (body != null && body.length > 0 && body.length <= TransportResponse.MAX_ERROR_BODY_BYTES) {
+            try {
+                JsonReader reader = new JsonReader(body);
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    if ("error_code".equals(name)) {
+                        errorCode = reader.nextInt();
+                    } else if ("error_message".equals(name)) {
+                        errorMessage = reader.nextString();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+            } catch (JSONException e) {
+                // not a Toopher error body, for example a proxy's error page
+            }
+        }
+        return new ApiResponseException(statusCode, errorCode, errorMessage);
+    }
+
+    /**
+     * @return The error to report to the caller, with this exception as its cause
+     */
+    ApiError toApiError() {
+        return ApiError.of(getStatusCode(), errorCode, errorMessage, this);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+
+    private static final long serialVersionUID = -3316093585101284612L;
+
+    private final int errorCode;
+    private final String errorMessage;
+}
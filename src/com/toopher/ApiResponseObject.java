@@ -1,32 +1,110 @@
 package com.toopher;
 
-import java.util.HashMap;
-import java.util.Iterator;
+import java.nio.charset.Charset;
 import java.util.Map;
 
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
 public class ApiResponseObject {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
     /**
-     * A map of the raw API response data
+     * The raw response data: the undecoded response body when this object was decoded directly from the response
+     * stream, replaced by its parsed JSONObject the first time raw data is requested.  Null if the raw data was not
+     * retained.
      */
-    public Map raw;
+    private volatile Object raw;
     
     public ApiResponseObject(JSONObject json) throws JSONException {
-    	this.raw = jsonToMap(json);
+    	this.raw = json;
+    }
+
+    /**
+     * @param body
+     *            The response body to keep as raw data, or null not to keep any
+     */
+    ApiResponseObject(byte[] body) {
+        this.raw = body;
+    }
+
+    /**
+     * @return true if the raw API response data was retained, so that it can be read with {@link #getRaw()}
+     */
+    public boolean hasRaw() {
+        return raw != null;
+    }
+
+    /**
+     * A read-only map of the raw API response data.  The response is parsed the first time raw data is requested,
+     * and the map reads through to the parsed response rather than copying it.
+     * 
+     * @throws IllegalStateException
+     *             If the raw data was not retained; see {@link ToopherAPI#setRetainRawResponses(boolean)}
+     */
+    public Map<String, Object> getRaw() {
+        return new JsonObjectMap(parsed());
+    }
+
+    /**
+     * Get a string from the raw API response data
+     * 
+     * @param key
+     *            The name of a top-level member of the response
+     * @return The value of the member as a string, or null if it is absent or null
+     * @throws IllegalStateException
+     *             If the raw data was not retained
+     */
+    public String getRawString(String key) {
+        Object value = parsed().opt(key);
+        if (value == null || value == JSONObject.NULL) {
+            return null;
+        }
+        return value.toString();
+    }
+
+    /**
+     * Get a boolean from the raw API response data
+     * 
+     * @param key
+     *            The name of a top-level member of the response
+     * @return The value of the member, or null if it is absent or is not a boolean
+     * @throws IllegalStateException
+     *             If the raw data was not retained
+     */
+    public Boolean getRawBoolean(String key) {
+        Object value = parsed().opt(key);
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        if ("true".equalsIgnoreCase(String.valueOf(value))) {
+            return Boolean.TRUE;
+        }
+        if ("false".equalsIgnoreCase(String.valueOf(value))) {
+            return Boolean.FALSE;
+        }
+        return null;
     }
 
-    private Map<String, Object> jsonToMap(JSONObject json) throws JSONException{
-    	Map<String,Object> result = new HashMap<String,Object>();
-    	
-    	for (Iterator<String> i = json.keys(); i.hasNext(); ) {
-    		String key = i.next();
-    		Object o = json.get(key);
-    		result.put(key, o);
-    	}
-    	
-    	return result;
+    private JSONObject parsed() {
+        Object data = raw;
+        if (data instanceof JSONObject) {
+            return (JSONObject) data;
+        }
+        if (data == null) {
+            throw new IllegalStateException(
+                    "Raw response data was not retained; see ToopherAPI.setRetainRawResponses");
+        }
+        JSONObject result;
+        try {
+            result = (JSONObject) new JSONTokener(new String((byte[]) data, UTF_8)).nextValue();
+        } catch (JSONException e) {
+            // the body was already decoded successfully, so this should not happen
+            throw new IllegalStateException("Could not interpret response as JSON", e);
+        }
+        raw = result;
+        return result;
     }
 
 }
@@ -0,0 +1,388 @@
+package com.toopher;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+
+import org.apache.http.ConnectionClosedException;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ssl.BrowserCompatHostnameVerifier;
+import org.apache.http.conn.ssl.X509HostnameVerifier;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.DefaultConnectionReuseStrategy;
+import org.apache.http.impl.nio.DefaultHttpClientIODispatch;
+import org.apache.http.impl.nio.pool.BasicNIOConnFactory;
+import org.apache.http.impl.nio.pool.BasicNIOConnPool;
+import org.apache.http.impl.nio.pool.BasicNIOPoolEntry;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.message.BasicHttpEntityEnclosingRequest;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.NHttpClientConnection;
+import org.apache.http.nio.protocol.BasicAsyncRequestProducer;
+import org.apache.http.nio.protocol.BasicAsyncResponseConsumer;
+import org.apache.http.nio.protocol.HttpAsyncRequestExecutionHandler;
+import org.apache.http.nio.protocol.HttpAsyncRequestExecutor;
+import org.apache.http.nio.protocol.HttpAsyncRequester;
+import org.apache.http.nio.reactor.IOEventDispatch;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.nio.reactor.IOSession;
+import org.apache.http.nio.reactor.ssl.SSLSetupHandler;
+import org.apache.http.params.HttpParams;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpProcessor;
+import org.apache.http.protocol.ImmutableHttpProcessor;
+import org.apache.http.protocol.RequestConnControl;
+import org.apache.http.protocol.RequestContent;
+import org.apache.http.protocol.RequestExpectContinue;
+import org.apache.http.protocol.RequestTargetHost;
+import org.apache.http.protocol.RequestUserAgent;
+
+/**
+ * Executes signed requests over non-blocking connections managed by a small pool of I/O reactor threads
+ *
+ */
+class AsyncRequestExecutor {
+
+    AsyncRequestExecutor(HttpParams params, int maxTotalConnections, int maxConnectionsPerRoute) throws IOReactorException {
+        this.params = params;
+
+        IOReactorConfig config = new IOReactorConfig();
+        config.setIoThreadCount(Runtime.getRuntime().availableProcessors());
+        config.setTcpNoDelay(true);
+        ioReactor = new DefaultConnectingIOReactor(config, new ReactorThreadFactory());
+
+        SSLContext sslContext;
+        try {
+            sslContext = TlsSessions.context();
+        } catch (IllegalStateException e) {
+            throw new IOReactorException("Failure initializing SSL context", e);
+        }
+        connPool = new BasicNIOConnPool(ioReactor, new BasicNIOConnFactory(sslContext, hostnameVerification, params),
+                                        params);
+        connPool.setMaxTotal(maxTotalConnections);
+        connPool.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+
+        HttpProcessor httpProcessor = new ImmutableHttpProcessor(new HttpRequestInterceptor[] {
+                new RequestContent(), new RequestTargetHost(), new RequestConnControl(),
+                new RequestUserAgent(), new RequestExpectContinue(), TracingInterceptor.INSTANCE });
+        requester = new HttpAsyncRequester(httpProcessor, new DefaultConnectionReuseStrategy(), params);
+
+        final IOEventDispatch ioEventDispatch = new DefaultHttpClientIODispatch(new ClosedConnectionAwareExecutor(),
+                                                                                params);
+        Thread reactorThread = new Thread(() -> {
+            try {
+                ioReactor.execute(ioEventDispatch);
+            } catch (InterruptedIOException e) {
+                // shut down
+            } catch (IOException e) {
+                // the reactor is unusable; pending and future requests will fail
+            }
+        }, "ToopherAPI-IOReactor");
+        reactorThread.setDaemon(true);
+        reactorThread.start();
+    }
+
+    /**
+     * Execute a request that has already been signed
+     *
+     * @param request
+     *            The signed request, which is told as the connection is leased and the response arrives
+     * @return A future completed with the buffered response, or exceptionally if the exchange failed
+     */
+    CompletableFuture<HttpResponse> execute(TransportRequest request) {
+        final CompletableFuture<HttpResponse> result = new CompletableFuture<HttpResponse>();
+
+        final Future<HttpResponse> exchange = requester.execute(
+                new BasicAsyncRequestProducer(targetOf(request.getUri()), toOriginFormRequest(request, params)),
+                request.isTraced() ? new TracingResponseConsumer(request) : new BoundedResponseConsumer(),
+                connPool, request.isTraced() ? TracingInterceptor.contextFor(request) : new BasicHttpContext(),
+                new FutureCallback<HttpResponse>() {
+
+                    @Override
+                    public void completed(HttpResponse response) {
+                        result.complete(response);
+                    }
+
+                    @Override
+                    public void failed(Exception ex) {
+                        result.completeExceptionally(ex);
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        result.cancel(false);
+                    }
+                });
+
+        result.whenComplete((response, error) -> {
+            if (result.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Open pooled connections to a host without sending a request, by leasing them all at once and returning them
+     *
+     * @param uri
+     *            A URI on the host
+     * @param connections
+     *            The number of connections to have open, up to the pool's limit for the host
+     * @param timeoutMillis
+     *            The time allowed to lease each connection, or 0 to wait indefinitely
+     * @return The number of connections open
+     */
+    int warmUp(URI uri, int connections, long timeoutMillis) throws IOException {
+        HttpHost target = targetOf(uri);
+        List<Future<BasicNIOPoolEntry>> leases = new ArrayList<Future<BasicNIOPoolEntry>>();
+        for (int i = 0; i < Math.min(connections, connPool.getMaxPerRoute(target)); i++) {
+            leases.add(connPool.lease(target, null));
+        }
+        int open = 0;
+        IOException failure = null;
+        for (Future<BasicNIOPoolEntry> lease : leases) {
+            try {
+                BasicNIOPoolEntry entry = timeoutMillis > 0 ? lease.get(timeoutMillis, TimeUnit.MILLISECONDS)
+                                                            : lease.get();
+                open++;
+                connPool.release(entry, true);
+            } catch (ExecutionException e) {
+                failure = e.getCause() instanceof IOException ? (IOException) e.getCause()
+                                                              : new IOException("Unable to open a connection", e);
+            } catch (TimeoutException e) {
+                lease.cancel(true);
+                failure = new ConnectionPoolTimeoutException("Timeout waiting for a connection");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                lease.cancel(true);
+                failure = new InterruptedIOException("Interrupted while warming up");
+            }
+        }
+        if (open == 0 && failure != null) {
+            throw failure;
+        }
+        return open;
+    }
+
+    /**
+     * @return The number of connections in use and the number of requests waiting for one
+     */
+    PoolStats getPoolStats() {
+        return connPool.getTotalStats();
+    }
+
+    void shutdown() {
+        try {
+            connPool.shutdown(SHUTDOWN_GRACE_PERIOD_MS);
+        } catch (IOException e) {
+            // best effort
+        }
+        try {
+            ioReactor.shutdown(SHUTDOWN_GRACE_PERIOD_MS);
+        } catch (IOException e) {
+            // best effort
+        }
+    }
+
+    /**
+     * Build a request whose request line carries only the path and query, as expected by origin servers
+     */
+    private static HttpRequest toOriginFormRequest(TransportRequest signedRequest, HttpParams params) {
+        URI uri = signedRequest.getUri();
+        String path = uri.getRawPath();
+        if (uri.getRawQuery() != null) {
+            path = path + "?" + uri.getRawQuery();
+        }
+
+        HttpRequest request;
+        if (signedRequest.getBody() != null) {
+            BasicHttpEntityEnclosingRequest enclosing = new BasicHttpEntityEnclosingRequest(signedRequest.getMethod(),
+                                                                                            path);
+            ByteArrayEntity entity = new ByteArrayEntity(signedRequest.getBody());
+            entity.setContentType(signedRequest.getContentType());
+            enclosing.setEntity(entity);
+            request = enclosing;
+        } else {
+            request = new BasicHttpRequest(signedRequest.getMethod(), path);
+        }
+        request.addHeader("Authorization", signedRequest.getAuthorization());
+        request.addHeader("User-Agent", signedRequest.getUserAgent());
+        request.setParams(params);
+        return request;
+    }
+
+    private static HttpHost targetOf(URI uri) {
+        int port = uri.getPort();
+        if (port < 0) {
+            port = "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+        }
+        return new HttpHost(uri.getHost(), port, uri.getScheme());
+    }
+
+    /**
+     * Verify the server certificate matches the host name, as the blocking client does
+     */
+    private static final SSLSetupHandler hostnameVerification = new SSLSetupHandler() {
+        private final X509HostnameVerifier verifier = new BrowserCompatHostnameVerifier();
+
+        @Override
+        public void initalize(SSLEngine sslengine) throws SSLException {
+            if (sslengine.getPeerHost() != null) {
+                TlsSessions.identifyEndpoint(sslengine);
+            }
+        }
+
+        @Override
+        public void verify(IOSession iosession, SSLSession sslsession) throws SSLException {
+            if (!verifier.verify(sslsession.getPeerHost(), sslsession)) {
+                throw new SSLException("Server certificate does not match host " + sslsession.getPeerHost());
+            }
+        }
+    };
+
+    /**
+     * HttpCore 4.2.2 neither fails nor completes an exchange whose connection is closed by the server while the
+     * response is awaited, which happens when a pooled keep-alive connection was closed by the server before it was
+     * reused.  Fail the exchange so its future completes.
+     */
+    private static class ClosedConnectionAwareExecutor extends HttpAsyncRequestExecutor {
+
+        @Override
+        public void closed(NHttpClientConnection conn) {
+            Object handler = conn.getContext().getAttribute(HTTP_HANDLER);
+            if (handler instanceof HttpAsyncRequestExecutionHandler
+                    && !((HttpAsyncRequestExecutionHandler<?>) handler).isDone()) {
+                ((HttpAsyncRequestExecutionHandler<?>) handler).failed(
+                        new ConnectionClosedException("Connection closed before the response was received"));
+            }
+            super.closed(conn);
+        }
+    }
+
+    /**
+     * Buffers a response like BasicAsyncResponseConsumer, but keeps no more of an error body than the response handler
+     * reads: one byte past {@link TransportResponse#MAX_ERROR_BODY_BYTES}, so that it can tell the body was too large.
+     * The rest is dropped as it arrives.
+     */
+    private static class BoundedResponseConsumer extends BasicAsyncResponseConsumer {
+        private volatile HttpResponse response;
+        private volatile HttpEntity errorEntity;
+        private volatile ByteArrayOutputStream errorBody;
+        private volatile ByteBuffer chunk;
+
+        @Override
+        protected void onResponseReceived(HttpResponse response) throws IOException {
+            this.response = response;
+            super.onResponseReceived(response);
+        }
+
+        @Override
+        protected void onEntityEnclosed(HttpEntity entity, ContentType contentType) throws IOException {
+            if (response.getStatusLine().getStatusCode() < 300) {
+                super.onEntityEnclosed(entity, contentType);
+                return;
+            }
+            errorEntity = entity;
+            errorBody = new ByteArrayOutputStream();
+            chunk = ByteBuffer.allocate(ERROR_CHUNK_BYTES);
+        }
+
+        @Override
+        protected void onContentReceived(ContentDecoder decoder, IOControl ioctrl) throws IOException {
+            if (errorBody == null) {
+                super.onContentReceived(decoder, ioctrl);
+                return;
+            }
+            while (decoder.read(chunk) > 0) {
+                int kept = Math.min(chunk.position(), TransportResponse.MAX_ERROR_BODY_BYTES + 1 - errorBody.size());
+                errorBody.write(chunk.array(), 0, kept);
+                chunk.clear();
+            }
+        }
+
+        @Override
+        protected HttpResponse buildResult(HttpContext context) {
+            if (errorBody != null) {
+                ByteArrayEntity entity = new ByteArrayEntity(errorBody.toByteArray());
+                entity.setContentType(errorEntity.getContentType());
+                response.setEntity(entity);
+            }
+            return super.buildResult(context);
+        }
+
+        @Override
+        protected void releaseResources() {
+            super.releaseResources();
+            response = null;
+            errorEntity = null;
+            errorBody = null;
+            chunk = null;
+        }
+    }
+
+    /**
+     * Marks the first byte phase when the response headers arrive; the processor's response interceptors only run
+     * once the whole body has been read
+     */
+    private static class TracingResponseConsumer extends BoundedResponseConsumer {
+        private final TransportRequest request;
+
+        TracingResponseConsumer(TransportRequest request) {
+            this.request = request;
+        }
+
+        @Override
+        protected void onResponseReceived(HttpResponse response) throws IOException {
+            request.responseStarted();
+            super.onResponseReceived(response);
+        }
+    }
+
+    private static class ReactorThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "ToopherAPI-IODispatcher-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+
+    private static final int ERROR_CHUNK_BYTES = 8 * 1024;
+    private static final long SHUTDOWN_GRACE_PERIOD_MS = TimeUnit.SECONDS.toMillis(1);
+
+    private final HttpParams params;
+    private final DefaultConnectingIOReactor ioReactor;
+    private final BasicNIOConnPool connPool;
+    private final HttpAsyncRequester requester;
+}
@@ -1,70 +1,305 @@
 package com.toopher;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import org.json.JSONException;
 import org.json.JSONObject;
-import java.util.Map;
 
 /**
  * Provide information about the status of an authentication request
- * 
+ * <p>
+ * Instances are immutable.  Decoded responses keep their raw data only if
+ * {@link ToopherAPI#setRetainRawResponses(boolean)} is on, and reasons are shared between instances, since the API
+ * gives only a handful of distinct reasons.
+ *
  */
-public class AuthenticationStatus extends ApiResponseObject {
+public final class AuthenticationStatus extends ApiResponseObject {
+
+    /**
+     * Builds an AuthenticationStatus, for example to stand in for the API in tests
+     */
+    public static final class Builder {
+        private String id;
+        private String reason;
+        private String terminalId;
+        private String terminalName;
+        private byte flags;
+
+        /**
+         * @param id
+         *            The unique id for the authentication request
+         * @return This builder
+         */
+        public Builder setId(String id) {
+            this.id = id;
+            return this;
+        }
+
+        /**
+         * @param pending
+         *            Whether the request is still pending
+         * @return This builder
+         */
+        public Builder setPending(boolean pending) {
+            flags = setFlag(flags, PENDING, pending);
+            return this;
+        }
+
+        /**
+         * @param granted
+         *            Whether the request was granted
+         * @return This builder
+         */
+        public Builder setGranted(boolean granted) {
+            flags = setFlag(flags, GRANTED, granted);
+            return this;
+        }
+
+        /**
+         * @param automated
+         *            Whether the request was automated
+         * @return This builder
+         */
+        public Builder setAutomated(boolean automated) {
+            flags = setFlag(flags, AUTOMATED, automated);
+            return this;
+        }
+
+        /**
+         * @param reason
+         *            The reason (if any) for the request's outcome
+         * @return This builder
+         */
+        public Builder setReason(String reason) {
+            this.reason = reason;
+            return this;
+        }
+
+        /**
+         * @param terminalId
+         *            The unique id for the terminal associated with the request
+         * @return This builder
+         */
+        public Builder setTerminalId(String terminalId) {
+            this.terminalId = terminalId;
+            return this;
+        }
+
+        /**
+         * @param terminalName
+         *            The descriptive name for the terminal associated with the request
+         * @return This builder
+         */
+        public Builder setTerminalName(String terminalName) {
+            this.terminalName = terminalName;
+            return this;
+        }
+
+        /**
+         * @return A new AuthenticationStatus
+         * @throws IllegalStateException
+         *             If the id, reason, terminal id or terminal name has not been set
+         */
+        public AuthenticationStatus build() {
+            if (id == null || reason == null || terminalId == null || terminalName == null) {
+                throw new IllegalStateException(
+                        "An authentication status needs an id, a reason, a terminal id and a terminal name");
+            }
+            return new AuthenticationStatus(id, flags, internReason(reason), terminalId, terminalName, null);
+        }
+    }
+
+    private AuthenticationStatus(String id, byte flags, String reason, String terminalId, String terminalName,
+                                 byte[] body) {
+        super(body);
+        this.id = id;
+        this.flags = flags;
+        this.reason = reason;
+        this.terminalId = terminalId;
+        this.terminalName = terminalName;
+    }
+
+    public AuthenticationStatus(JSONObject json) throws JSONException {
+        super(json);
+
+        this.id = json.getString("id");
+        byte flags = 0;
+        flags = setFlag(flags, PENDING, json.getBoolean("pending"));
+        flags = setFlag(flags, GRANTED, json.getBoolean("granted"));
+        flags = setFlag(flags, AUTOMATED, json.getBoolean("automated"));
+        this.flags = flags;
+        this.reason = internReason(json.getString("reason"));
+
+        JSONObject terminal = json.getJSONObject("terminal");
+        this.terminalId = terminal.getString("id");
+        this.terminalName = terminal.getString("name");
+    }
+
+    /**
+     * Decode an authentication status directly from a response body
+     *
+     * @param retainRaw
+     *            Whether to keep the body as the raw response data
+     */
+    static AuthenticationStatus decode(byte[] body, boolean retainRaw) throws JSONException {
+        String id = null, reason = null, terminalId = null, terminalName = null;
+        byte flags = 0;
+        boolean hasPending = false, hasGranted = false, hasAutomated = false;
+        JsonReader reader = new JsonReader(body);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("id".equals(name)) {
+                id = reader.nextString();
+            } else if ("pending".equals(name)) {
+                flags = setFlag(flags, PENDING, reader.nextBoolean());
+                hasPending = true;
+            } else if ("granted".equals(name)) {
+                flags = setFlag(flags, GRANTED, reader.nextBoolean());
+                hasGranted = true;
+            } else if ("automated".equals(name)) {
+                flags = setFlag(flags, AUTOMATED, reader.nextBoolean());
+                hasAutomated = true;
+            } else if ("reason".equals(name)) {
+                reason = reader.nextString();
+            } else if ("terminal".equals(name)) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String terminalField = reader.nextName();
+                    if ("id".equals(terminalField)) {
+                        terminalId = reader.nextString();
+                    } else if ("name".equals(terminalField)) {
+                        terminalName = reader.nextString();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (id == null || !hasPending || !hasGranted || !hasAutomated || reason == null
+                || terminalId == null || terminalName == null) {
+            throw new JSONException("Authentication status is missing required fields");
+        }
+        return new AuthenticationStatus(id, flags, internReason(reason), terminalId, terminalName,
+                                        retainRaw ? body : null);
+    }
 
-	/**
-     * The unique id for the authentication request
+    /**
+     * @return The unique id for the authentication request
      */
-    public String id;
+    public String getId() {
+        return id;
+    }
 
     /**
-     * Indicates if the request is still pending
+     * @return true if the request is still pending
      */
-    public boolean pending;
+    public boolean isPending() {
+        return (flags & PENDING) != 0;
+    }
 
     /**
-     * Indicates if the request was granted
+     * @return true if the request was granted
      */
-    public boolean granted;
+    public boolean isGranted() {
+        return (flags & GRANTED) != 0;
+    }
 
     /**
-     * Indicates if the request was automated
+     * @return true if the request was automated
      */
-    public boolean automated;
+    public boolean isAutomated() {
+        return (flags & AUTOMATED) != 0;
+    }
 
     /**
-     * Indicates the reason (if any) for the request's outcome
+     * @return The reason (if any) for the request's outcome
      */
-    public String reason;
+    public String getReason() {
+        return reason;
+    }
 
     /**
-     * The unique id for the terminal associated with the request
+     * @return The unique id for the terminal associated with the request
      */
-    public String terminalId;
+    public String getTerminalId() {
+        return terminalId;
+    }
 
     /**
-     * The descriptive name for the terminal associated with the request
+     * @return The descriptive name for the terminal associated with the request
      */
-    public String terminalName;
-    
-    
-    public AuthenticationStatus(JSONObject json) throws JSONException{
-		super(json);
-		
-		this.id = json.getString("id");
-        this.pending = json.getBoolean("pending");
-        this.granted = json.getBoolean("granted");
-        this.automated = json.getBoolean("automated");
-        this.reason = json.getString("reason");
+    public String getTerminalName() {
+        return terminalName;
+    }
 
-        JSONObject terminal = json.getJSONObject("terminal");
-        this.terminalId = terminal.getString("id");
-        this.terminalName = terminal.getString("name");
+    /**
+     * Two statuses are equal if all their fields are; raw response data is not compared
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AuthenticationStatus)) {
+            return false;
+        }
+        AuthenticationStatus other = (AuthenticationStatus) o;
+        return flags == other.flags && id.equals(other.id) && reason.equals(other.reason)
+                && terminalId.equals(other.terminalId) && terminalName.equals(other.terminalName);
+    }
 
-	}
+    @Override
+    public int hashCode() {
+        int hash = id.hashCode();
+        hash = hash * 31 + reason.hashCode();
+        hash = hash * 31 + terminalId.hashCode();
+        hash = hash * 31 + terminalName.hashCode();
+        return hash * 31 + flags;
+    }
 
     @Override
     public String toString() {
         return String.format("[AuthenticationStatus: id=%s; pending=%b; granted=%b; automated=%b; reason=%s; terminalId=%s; terminalName=%s]",
-                             id, pending, granted, automated, reason, terminalId, terminalName);
+                             id, isPending(), isGranted(), isAutomated(), reason, terminalId, terminalName);
     }
 
+    /**
+     * Share one copy of each reason.  Reasons are free text, so the table is bounded; once it is full, new reasons
+     * are kept as they are.
+     */
+    private static String internReason(String reason) {
+        String interned = REASONS.get(reason);
+        if (interned != null) {
+            return interned;
+        }
+        if (REASONS.size() >= MAX_INTERNED_REASONS) {
+            return reason;
+        }
+        interned = REASONS.putIfAbsent(reason, reason);
+        return interned == null ? reason : interned;
+    }
+
+    private static byte setFlag(byte flags, int flag, boolean value) {
+        return (byte) (value ? flags | flag : flags & ~flag);
+    }
+
+    private static final int PENDING = 1;
+    private static final int GRANTED = 1 << 1;
+    private static final int AUTOMATED = 1 << 2;
+
+    private static final int MAX_INTERNED_REASONS = 1024;
+    private static final ConcurrentMap<String, String> REASONS = new ConcurrentHashMap<String, String>();
+
+    private final String id;
+    private final String reason;
+    private final String terminalId;
+    private final String terminalName;
+    private final byte flags;
 }
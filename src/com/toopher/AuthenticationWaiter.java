@@ -0,0 +1,280 @@
+package com.toopher;
+
+import java.io.Closeable;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Waits for many authentication requests to be answered, polling their status on one shared scheduler instead of
+ * a sleeping thread per request
+ * <p>
+ * Each pending request is polled with a delay that starts at the initial delay and grows on every poll that is
+ * still pending, up to the maximum delay.  Delays are randomized so that requests started together don't poll
+ * together.  Waiting for a request that is already being waited for shares the existing poll, but each caller gets
+ * a future of its own with its own deadline; the poll stops once every caller has cancelled or given up.
+ *
+ */
+public class AuthenticationWaiter implements Closeable {
+    /**
+     * The default delay before the first status check
+     */
+    public static final long DEFAULT_INITIAL_DELAY_MS = 1000;
+
+    /**
+     * The default upper bound on the delay between status checks
+     */
+    public static final long DEFAULT_MAX_DELAY_MS = 5000;
+
+    /**
+     * Create a waiter that polls with the default delays on its own scheduler thread
+     *
+     * @param api
+     *            The API object used to check authentication status
+     */
+    public AuthenticationWaiter(ToopherAPI api) {
+        this(api, DEFAULT_INITIAL_DELAY_MS, DEFAULT_MAX_DELAY_MS, null);
+    }
+
+    /**
+     * Create a waiter
+     *
+     * @param api
+     *            The API object used to check authentication status
+     * @param initialDelayMillis
+     *            The delay before the first status check
+     * @param maxDelayMillis
+     *            The upper bound on the delay between status checks
+     * @param scheduler
+     *            The scheduler to poll on, or null to use a private single-threaded scheduler.  Polls are
+     *            non-blocking, so one thread is enough for many pending requests.
+     */
+    public AuthenticationWaiter(ToopherAPI api, long initialDelayMillis, long maxDelayMillis,
+                                ScheduledExecutorService scheduler) {
+        if (initialDelayMillis <= 0 || maxDelayMillis < initialDelayMillis) {
+            throw new IllegalArgumentException("Delays must be positive, with the maximum at least the initial delay");
+        }
+        this.api = api;
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        if (scheduler == null) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread t = new Thread(r, "ToopherAPI-AuthenticationWaiter");
+                t.setDaemon(true);
+                return t;
+            });
+            executor.setRemoveOnCancelPolicy(true);
+            this.scheduler = executor;
+            this.ownsScheduler = true;
+        } else {
+            this.scheduler = scheduler;
+            this.ownsScheduler = false;
+        }
+    }
+
+    /**
+     * Wait for a user to respond to an authentication request
+     *
+     * @param authenticationRequestId
+     *            The authentication request ID
+     * @param timeout
+     *            How long to wait for the request to stop pending
+     * @param unit
+     *            The unit of the timeout
+     * @return A future completed with the first AuthenticationStatus that is no longer pending, or exceptionally
+     *         with a TimeoutException once the deadline passes.  If the API rejects a status check with an error
+     *         that won't go away, such as an unknown request ID, the future fails with that {@link ApiError} at
+     *         once.  The future is this caller's alone: cancelling it, or its deadline passing, doesn't affect
+     *         other callers waiting for the same request, and polling stops once no caller is left.
+     */
+    public CompletableFuture<AuthenticationStatus> waitFor(String authenticationRequestId, long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        while (true) {
+            Waiter waiter = new Waiter(authenticationRequestId, deadline);
+            Waiter existing = waiters.putIfAbsent(authenticationRequestId, waiter);
+            if (existing == null) {
+                CompletableFuture<AuthenticationStatus> result = waiter.join(deadline);
+                waiter.schedule(initialDelayMillis);
+                return result;
+            }
+            CompletableFuture<AuthenticationStatus> result = existing.join(deadline);
+            if (result != null) {
+                return result;
+            }
+            // the existing poll finished after we found it; start another
+            waiters.remove(authenticationRequestId, existing);
+        }
+    }
+
+    /**
+     * @return The number of authentication requests currently being waited for
+     */
+    public int getPendingCount() {
+        return waiters.size();
+    }
+
+    /**
+     * Stop polling.  Futures for requests still being waited for are cancelled.
+     */
+    @Override
+    public void close() {
+        for (Waiter waiter : waiters.values()) {
+            waiter.shared.cancel(false);
+        }
+        if (ownsScheduler) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private long nextDelay(long delayMillis) {
+        return Math.min(maxDelayMillis, delayMillis + delayMillis / 2);
+    }
+
+    private long jitter(long delayMillis) {
+        // spread polls over [0.8, 1.2) of the nominal delay
+        return (long) (delayMillis * (0.8 + 0.4 * random.nextDouble()));
+    }
+
+    /**
+     * @return true if polling again can't change the outcome: the API itself rejected the status check
+     */
+    private static boolean isPermanent(Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error instanceof ApiError && !((ApiError) error).isRetryable();
+    }
+
+    /**
+     * Polling state for a single authentication request, shared by everyone waiting for it
+     */
+    private class Waiter implements Runnable {
+        private final String id;
+        private final CompletableFuture<AuthenticationStatus> shared = new CompletableFuture<AuthenticationStatus>();
+        private long delayMillis;
+        private volatile Throwable lastError;
+        // guarded by this
+        private long deadline;
+        private int callers;
+
+        Waiter(String id, long deadline) {
+            this.id = id;
+            this.deadline = deadline;
+            this.delayMillis = initialDelayMillis;
+            shared.whenComplete((status, error) -> waiters.remove(this.id, this));
+        }
+
+        /**
+         * Add a caller, extending the poll to the caller's deadline if that is later
+         *
+         * @return A future for this caller alone, or null if polling has already finished
+         */
+        synchronized CompletableFuture<AuthenticationStatus> join(final long callerDeadline) {
+            if (shared.isDone()) {
+                return null;
+            }
+            callers++;
+            if (callerDeadline - deadline > 0) {
+                deadline = callerDeadline;
+            }
+
+            final CompletableFuture<AuthenticationStatus> result = new CompletableFuture<AuthenticationStatus>();
+            shared.whenComplete((status, error) -> {
+                if (error == null) {
+                    result.complete(status);
+                } else {
+                    result.completeExceptionally(error);
+                }
+            });
+            if (!result.isDone()) {
+                try {
+                    final ScheduledFuture<?> timer = scheduler.schedule(
+                            () -> result.completeExceptionally(timeout()), callerDeadline - System.nanoTime(),
+                            TimeUnit.NANOSECONDS);
+                    result.whenComplete((status, error) -> timer.cancel(false));
+                } catch (RuntimeException e) {
+                    // the scheduler has been shut down
+                    result.completeExceptionally(e);
+                }
+            }
+            result.whenComplete((status, error) -> leave());
+            return result;
+        }
+
+        /**
+         * Remove a caller whose future has completed, and stop polling if it was the last
+         */
+        private void leave() {
+            boolean last;
+            synchronized (this) {
+                last = --callers == 0;
+            }
+            if (last) {
+                shared.cancel(false);
+            }
+        }
+
+        void schedule(long delay) {
+            long remainingMillis;
+            synchronized (this) {
+                remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            }
+            if (remainingMillis <= 0) {
+                shared.completeExceptionally(timeout());
+                return;
+            }
+            scheduler.schedule(this, Math.min(jitter(delay), remainingMillis), TimeUnit.MILLISECONDS);
+        }
+
+        private TimeoutException timeout() {
+            TimeoutException timeout = new TimeoutException(
+                    String.format("Authentication request %s was still pending at the deadline", id));
+            Throwable cause = lastError;
+            if (cause != null) {
+                timeout.initCause(cause);
+            }
+            return timeout;
+        }
+
+        @Override
+        public void run() {
+            if (shared.isDone()) {
+                return;
+            }
+            api.getAuthenticationStatusAsync(id).whenComplete((status, error) -> {
+                if (error == null && !status.isPending()) {
+                    shared.complete(status);
+                    return;
+                }
+                if (isPermanent(error)) {
+                    shared.completeExceptionally(error);
+                    return;
+                }
+                lastError = error;
+                delayMillis = nextDelay(delayMillis);
+                try {
+                    schedule(delayMillis);
+                } catch (RuntimeException e) {
+                    // the scheduler has been shut down
+                    shared.completeExceptionally(e);
+                }
+            });
+        }
+    }
+
+    private final ToopherAPI api;
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownsScheduler;
+    private final ConcurrentMap<String, Waiter> waiters = new ConcurrentHashMap<String, Waiter>();
+    private final Random random = new Random();
+}
@@ -0,0 +1,30 @@
+package com.toopher;
+
+/**
+ * Receives the results of a batch lookup as they arrive
+ *
+ * @param <T>
+ *            The type of object being looked up
+ */
+public interface BatchCallback<T> {
+
+    /**
+     * Called when a lookup succeeds
+     *
+     * @param id
+     *            The ID that was looked up
+     * @param result
+     *            The object that was looked up
+     */
+    void onSuccess(String id, T result);
+
+    /**
+     * Called when a lookup fails.  The rest of the batch continues.
+     *
+     * @param id
+     *            The ID that was looked up
+     * @param error
+     *            The error that prevented the lookup
+     */
+    void onFailure(String id, RequestError error);
+}
@@ -0,0 +1,167 @@
+package com.toopher;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up a sequence of IDs with a bounded number of non-blocking requests in flight, handing back results in the
+ * order they complete
+ * <p>
+ * Requests are only started from the consuming thread, inside {@link #hasNext()} and {@link #next()}, so a slow
+ * consumer slows the fan-out rather than letting completed results pile up.
+ *
+ * @param <T>
+ *            The type of object being looked up
+ */
+abstract class BatchFetcher<T> implements Iterator<BatchResult<T>> {
+
+    /**
+     * @param ids
+     *            The IDs to look up
+     * @param maxConcurrency
+     *            The maximum number of requests in flight at once
+     * @param maxRequestsPerSecond
+     *            The maximum rate at which requests are started, or zero for no limit
+     */
+    BatchFetcher(Iterator<String> ids, int maxConcurrency, double maxRequestsPerSecond) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        if (maxRequestsPerSecond < 0) {
+            throw new IllegalArgumentException("maxRequestsPerSecond must not be negative");
+        }
+        this.ids = ids;
+        this.maxConcurrency = maxConcurrency;
+        this.intervalNanos = maxRequestsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / maxRequestsPerSecond) : 0;
+        this.nextStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Start the lookup of a single ID
+     */
+    abstract CompletableFuture<T> fetch(String id);
+
+    @Override
+    public boolean hasNext() {
+        return ids.hasNext() || outstanding > 0;
+    }
+
+    @Override
+    public BatchResult<T> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        if (interrupted != null) {
+            return nextAfterInterrupt();
+        }
+        try {
+            while (true) {
+                long waitNanos = startRequests();
+                BatchResult<T> result;
+                if (waitNanos > 0) {
+                    result = completed.poll(waitNanos, TimeUnit.NANOSECONDS);
+                } else {
+                    result = completed.take();
+                }
+                if (result != null) {
+                    outstanding--;
+                    return result;
+                }
+            }
+        } catch (InterruptedException e) {
+            interrupted = new RequestError(e);
+            for (CompletableFuture<T> future : inFlight) {
+                future.cancel(false);
+            }
+            Thread.currentThread().interrupt();
+            return nextAfterInterrupt();
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Start as many requests as the concurrency and rate limits allow
+     *
+     * @return How long to wait before another request may start, or zero to wait for a completion
+     */
+    private long startRequests() {
+        while (ids.hasNext() && outstanding < maxConcurrency) {
+            long now = System.nanoTime();
+            if (intervalNanos > 0) {
+                if (now - nextStartNanos < 0) {
+                    return nextStartNanos - now;
+                }
+                // don't bank unused capacity: an idle stretch must not allow a burst afterwards
+                nextStartNanos = Math.max(nextStartNanos, now - intervalNanos) + intervalNanos;
+            }
+            final String id = ids.next();
+            CompletableFuture<T> future;
+            try {
+                future = fetch(id);
+            } catch (RuntimeException e) {
+                future = new CompletableFuture<T>();
+                future.completeExceptionally(new RequestError(e));
+            }
+            final CompletableFuture<T> request = future;
+            outstanding++;
+            inFlight.add(request);
+            request.whenComplete((value, error) -> {
+                inFlight.remove(request);
+                completed.add(new BatchResult<T>(id, value, error == null ? null : asRequestError(error)));
+            });
+        }
+        return 0;
+    }
+
+    /**
+     * After an interrupt, requests in flight have been cancelled and IDs not yet started are reported as failed
+     * without being looked up
+     */
+    private BatchResult<T> nextAfterInterrupt() {
+        if (outstanding == 0) {
+            return new BatchResult<T>(ids.next(), null, interrupted);
+        }
+        // every outstanding future is done, so its result is about to be queued if it isn't already
+        BatchResult<T> result;
+        while ((result = completed.poll()) == null) {
+            Thread.yield();
+        }
+        outstanding--;
+        return result;
+    }
+
+    private RequestError asRequestError(Throwable error) {
+        if (error instanceof CancellationException && interrupted != null) {
+            return interrupted;
+        }
+        if (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (error instanceof RequestError) {
+            return (RequestError) error;
+        }
+        return new RequestError(error instanceof Exception ? (Exception) error : new RuntimeException(error));
+    }
+
+    private final Iterator<String> ids;
+    private final int maxConcurrency;
+    private final long intervalNanos;
+    private long nextStartNanos;
+    private int outstanding;
+    private final Set<CompletableFuture<T>> inFlight =
+            Collections.newSetFromMap(new ConcurrentHashMap<CompletableFuture<T>, Boolean>());
+    private final LinkedBlockingQueue<BatchResult<T>> completed = new LinkedBlockingQueue<BatchResult<T>>();
+    private volatile RequestError interrupted;
+}
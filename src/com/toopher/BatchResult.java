@@ -0,0 +1,53 @@
+package com.toopher;
+
+/**
+ * The outcome of one lookup in a batch: either the requested object or the error that prevented retrieving it
+ *
+ * @param <T>
+ *            The type of object being looked up
+ */
+public class BatchResult<T> {
+
+    BatchResult(String id, T value, RequestError error) {
+        this.id = id;
+        this.value = value;
+        this.error = error;
+    }
+
+    /**
+     * @return The ID that was looked up
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return true if the lookup succeeded
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * @return The object that was looked up
+     * @throws RequestError
+     *             The error that prevented the lookup
+     */
+    public T get() throws RequestError {
+        if (error != null) {
+            throw error;
+        }
+        return value;
+    }
+
+    /**
+     * @return The error that prevented the lookup, or null if it succeeded
+     */
+    public RequestError getError() {
+        return error;
+    }
+
+    private final String id;
+    private final T value;
+    private final RequestError error;
+}
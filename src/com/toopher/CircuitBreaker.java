@@ -0,0 +1,325 @@
+package com.toopher;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops sending requests to the Toopher API while it is failing or slow, so that callers fail fast instead of
+ * tying up threads and connections
+ * <p>
+ * While closed, the breaker records the outcome of the most recent requests.  A request counts as failed if it
+ * could not be completed (a connection error or timeout) or the server answered with HTTP 429 or 5xx, and as slow
+ * if it took longer than the slow call duration.  Once the window holds at least the minimum number of requests
+ * and either rate reaches its threshold, the breaker opens: requests fail immediately with a RequestError caused
+ * by a {@link CircuitBreakerOpenException}, or are answered by the fallback for their action.  After the open
+ * duration the breaker lets a few probe requests through; if they succeed it closes again, otherwise it re-opens.
+ *
+ */
+public class CircuitBreaker {
+
+    /**
+     * The states of a circuit breaker
+     */
+    public enum State {
+        /**
+         * Requests are sent and their outcomes recorded
+         */
+        CLOSED,
+
+        /**
+         * Requests are rejected without being sent
+         */
+        OPEN,
+
+        /**
+         * A limited number of probe requests are sent to decide whether to close or re-open
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * What an authentication request returns instead of failing while the breaker is open
+     */
+    public enum Fallback {
+        /**
+         * Fail with a RequestError
+         */
+        FAIL,
+
+        /**
+         * Return an AuthenticationStatus that is granted, so the action is allowed without a second factor
+         */
+        FAIL_OPEN,
+
+        /**
+         * Return an AuthenticationStatus that is denied, so the action is refused
+         */
+        FAIL_CLOSED
+    }
+
+    /**
+     * The default failure rate at which the breaker opens
+     */
+    public static final double DEFAULT_FAILURE_RATE_THRESHOLD = 0.5;
+
+    /**
+     * The default slow call rate at which the breaker opens
+     */
+    public static final double DEFAULT_SLOW_CALL_RATE_THRESHOLD = 0.8;
+
+    /**
+     * The default duration beyond which a request counts as slow
+     */
+    public static final long DEFAULT_SLOW_CALL_DURATION_MS = 2000;
+
+    /**
+     * The default number of recent requests whose outcomes are recorded
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 100;
+
+    /**
+     * The default number of requests that must be recorded before the breaker may open
+     */
+    public static final int DEFAULT_MINIMUM_CALLS = 20;
+
+    /**
+     * The default time the breaker stays open before probing
+     */
+    public static final long DEFAULT_OPEN_DURATION_MS = 10000;
+
+    /**
+     * The default number of probe requests let through while half open
+     */
+    public static final int DEFAULT_PROBE_CALLS = 5;
+
+    /**
+     * Create a circuit breaker with the default settings
+     */
+    public CircuitBreaker() {
+        this(DEFAULT_FAILURE_RATE_THRESHOLD, DEFAULT_SLOW_CALL_RATE_THRESHOLD, DEFAULT_SLOW_CALL_DURATION_MS,
+             DEFAULT_WINDOW_SIZE, DEFAULT_MINIMUM_CALLS, DEFAULT_OPEN_DURATION_MS, DEFAULT_PROBE_CALLS);
+    }
+
+    /**
+     * Create a circuit breaker
+     *
+     * @param failureRateThreshold
+     *            The fraction of failed requests, between 0 and 1, at which the breaker opens
+     * @param slowCallRateThreshold
+     *            The fraction of slow requests, between 0 and 1, at which the breaker opens
+     * @param slowCallDurationMillis
+     *            The duration beyond which a request counts as slow
+     * @param windowSize
+     *            The number of recent requests whose outcomes are recorded
+     * @param minimumCalls
+     *            The number of requests that must be recorded before the breaker may open
+     * @param openDurationMillis
+     *            The time the breaker stays open before probing
+     * @param probeCalls
+     *            The number of probe requests let through while half open
+     */
+    public CircuitBreaker(double failureRateThreshold, double slowCallRateThreshold, long slowCallDurationMillis,
+                          int windowSize, int minimumCalls, long openDurationMillis, int probeCalls) {
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1 || slowCallRateThreshold <= 0
+                || slowCallRateThreshold > 1 || slowCallDurationMillis <= 0 || windowSize <= 0
+                || minimumCalls <= 0 || minimumCalls > windowSize || openDurationMillis <= 0 || probeCalls <= 0) {
+            throw new IllegalArgumentException("Invalid circuit breaker settings");
+        }
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallDurationNanos = TimeUnit.MILLISECONDS.toNanos(slowCallDurationMillis);
+        this.outcomes = new byte[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDurationMillis);
+        this.probeCalls = probeCalls;
+    }
+
+    /**
+     * @return The current state.  An open breaker whose open duration has passed reports HALF_OPEN once the next
+     *         request arrives.
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Register a listener to be told of state changes
+     *
+     * @param listener
+     *            The listener
+     */
+    public void addListener(CircuitBreakerListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Set what authentication requests for an action return while the breaker is open
+     *
+     * @param actionName
+     *            The action name passed to {@link ToopherAPI#authenticate(String, String, String)}, or null for
+     *            requests made without one
+     * @param fallback
+     *            The fallback for the action
+     */
+    public synchronized void setFallback(String actionName, Fallback fallback) {
+        fallbacks.put(actionName == null ? "" : actionName, fallback);
+    }
+
+    /**
+     * Set what authentication requests return while the breaker is open, for actions without their own fallback.
+     * The default is {@link Fallback#FAIL}.
+     *
+     * @param fallback
+     *            The fallback
+     */
+    public synchronized void setDefaultFallback(Fallback fallback) {
+        defaultFallback = fallback;
+    }
+
+    synchronized Fallback getFallback(String actionName) {
+        Fallback fallback = fallbacks.get(actionName == null ? "" : actionName);
+        return fallback == null ? defaultFallback : fallback;
+    }
+
+    /**
+     * Ask to send a request
+     *
+     * @return true if the request may be sent, in which case its outcome must be reported to
+     *         {@link #onResult(long, boolean)} or {@link #release()}
+     */
+    boolean tryAcquire() {
+        State from;
+        synchronized (this) {
+            if (state == State.CLOSED) {
+                return true;
+            }
+            if (state == State.OPEN) {
+                if (System.nanoTime() - openedAtNanos < openDurationNanos) {
+                    return false;
+                }
+                from = state;
+                state = State.HALF_OPEN;
+                resetWindow();
+                probesStarted = 0;
+            } else {
+                from = null;
+            }
+            if (probesStarted >= probeCalls) {
+                return false;
+            }
+            probesStarted++;
+        }
+        if (from != null) {
+            notifyListeners(from, State.HALF_OPEN);
+        }
+        return true;
+    }
+
+    /**
+     * Record the outcome of a request allowed by {@link #tryAcquire()}
+     *
+     * @param latencyNanos
+     *            How long the request took
+     * @param failed
+     *            true if the request failed in a way that reflects on the health of the API
+     */
+    void onResult(long latencyNanos, boolean failed) {
+        State from;
+        State to;
+        synchronized (this) {
+            from = state;
+            if (state == State.OPEN) {
+                // a request sent before the breaker opened
+                return;
+            }
+            record(failed, latencyNanos >= slowCallDurationNanos);
+
+            if (state == State.HALF_OPEN) {
+                if (count < probeCalls) {
+                    return;
+                }
+                to = isUnhealthy() ? State.OPEN : State.CLOSED;
+            } else if (count >= minimumCalls && isUnhealthy()) {
+                to = State.OPEN;
+            } else {
+                return;
+            }
+            state = to;
+            resetWindow();
+            if (to == State.OPEN) {
+                openedAtNanos = System.nanoTime();
+            }
+        }
+        notifyListeners(from, to);
+    }
+
+    /**
+     * Give back a request allowed by {@link #tryAcquire()} that was never sent or was cancelled, without recording
+     * an outcome
+     */
+    synchronized void release() {
+        if (state == State.HALF_OPEN && probesStarted > count) {
+            probesStarted--;
+        }
+    }
+
+    private void record(boolean failed, boolean slow) {
+        if (count == outcomes.length) {
+            byte evicted = outcomes[next];
+            failures -= evicted & FAILED;
+            slowCalls -= (evicted & SLOW) >> 1;
+        } else {
+            count++;
+        }
+        byte outcome = (byte) ((failed ? FAILED : 0) | (slow ? SLOW : 0));
+        outcomes[next] = outcome;
+        next = (next + 1) % outcomes.length;
+        failures += outcome & FAILED;
+        slowCalls += (outcome & SLOW) >> 1;
+    }
+
+    private boolean isUnhealthy() {
+        return failures >= failureRateThreshold * count || slowCalls >= slowCallRateThreshold * count;
+    }
+
+    private void resetWindow() {
+        count = 0;
+        next = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+
+    private void notifyListeners(State from, State to) {
+        for (CircuitBreakerListener listener : listeners) {
+            try {
+                listener.stateChanged(from, to);
+            } catch (RuntimeException e) {
+                // a faulty listener must not break request handling
+            }
+        }
+    }
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallDurationNanos;
+    private final byte[] outcomes;
+    private final int minimumCalls;
+    private final long openDurationNanos;
+    private final int probeCalls;
+    private final List<CircuitBreakerListener> listeners = new CopyOnWriteArrayList<CircuitBreakerListener>();
+    private final Map<String, Fallback> fallbacks = new HashMap<String, Fallback>();
+    private Fallback defaultFallback = Fallback.FAIL;
+    private State state = State.CLOSED;
+    private long openedAtNanos;
+    private int probesStarted;
+    private int count;
+    private int next;
+    private int failures;
+    private int slowCalls;
+}
@@ -0,0 +1,18 @@
+package com.toopher;
+
+/**
+ * Notified when a circuit breaker changes state
+ *
+ */
+public interface CircuitBreakerListener {
+
+    /**
+     * Called after the breaker has changed state.  Must not block: it may be called from an I/O thread.
+     *
+     * @param from
+     *            The previous state
+     * @param to
+     *            The new state
+     */
+    void stateChanged(CircuitBreaker.State from, CircuitBreaker.State to);
+}
@@ -0,0 +1,16 @@
+package com.toopher;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * The cause of a RequestError for a request that was not sent because the circuit breaker is open
+ *
+ */
+public class CircuitBreakerOpenException extends RejectedExecutionException {
+
+    public CircuitBreakerOpenException() {
+        super("Circuit breaker is open");
+    }
+
+    private static final long serialVersionUID = 2867385604918374315L;
+}
@@ -0,0 +1,217 @@
+package com.toopher;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Limits the number of requests a ToopherAPI object has in flight at once
+ * <p>
+ * When the minimum and maximum limits differ, the limit adapts to what the API sustains: it grows by one for
+ * every limit's worth of requests that complete normally, and shrinks by a fixed ratio when a request is throttled
+ * (HTTP 429), fails with a server error (HTTP 5xx), times out, or when the average latency of recent requests rises
+ * well above its long-run average.  Single slow requests don't count: latency always varies from one request to the
+ * next, and only a rise that lasts tens of requests moves the recent average.  A request that finds the limit
+ * reached either waits for a slot, up to the maximum wait, or fails immediately with a RequestError.  Waiting
+ * requests are served in order of arrival.
+ *
+ */
+public class ConcurrencyLimiter {
+
+    /**
+     * Create a fixed concurrency limit
+     *
+     * @param limit
+     *            The maximum number of requests in flight
+     * @param maxWaitMillis
+     *            How long a request may queue for a slot before failing; zero to fail immediately
+     */
+    public ConcurrencyLimiter(int limit, long maxWaitMillis) {
+        this(limit, limit, limit, maxWaitMillis);
+    }
+
+    /**
+     * Create an adaptive concurrency limit
+     *
+     * @param initialLimit
+     *            The limit to start with
+     * @param minLimit
+     *            The lowest the limit may shrink to
+     * @param maxLimit
+     *            The highest the limit may grow to
+     * @param maxWaitMillis
+     *            How long a request may queue for a slot before failing; zero to fail immediately
+     */
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long maxWaitMillis) {
+        if (minLimit <= 0 || initialLimit < minLimit || maxLimit < initialLimit || maxWaitMillis < 0) {
+            throw new IllegalArgumentException(
+                    "Limits must be positive with minLimit <= initialLimit <= maxLimit, and the maximum wait must not be negative");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+    }
+
+    /**
+     * @return The current limit
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return The number of requests currently in flight
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Take a slot, blocking until one is free
+     *
+     * @param deadline
+     *            The deadline of the call, or null
+     * @throws RequestError
+     *             Thrown when no slot is freed within the maximum wait or before the deadline, or the wait is
+     *             interrupted
+     */
+    void acquire(Deadline deadline) throws RequestError {
+        CompletableFuture<Void> slot = acquireAsync();
+        try {
+            if (deadline == null) {
+                slot.get();
+            } else {
+                slot.get(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+            }
+        } catch (ExecutionException e) {
+            throw (RequestError) e.getCause();
+        } catch (TimeoutException e) {
+            if (slot.completeExceptionally(Deadline.exceeded(null)) || slot.isCompletedExceptionally()) {
+                throw Deadline.exceeded(null);
+            }
+            // the slot was granted as the deadline passed
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            RequestError error = new RequestError(e);
+            if (!slot.completeExceptionally(error)) {
+                // the slot was granted as we gave up on it
+                release();
+            }
+            throw error;
+        }
+    }
+
+    /**
+     * Take a slot without blocking
+     *
+     * @return A future completed once the caller holds a slot, or exceptionally with a RequestError if none is
+     *         freed within the maximum wait
+     */
+    CompletableFuture<Void> acquireAsync() {
+        final CompletableFuture<Void> slot = new CompletableFuture<Void>();
+        synchronized (this) {
+            if (inFlight < (int) limit) {
+                inFlight++;
+                slot.complete(null);
+                return slot;
+            }
+            if (maxWaitNanos == 0) {
+                slot.completeExceptionally(limitExceeded());
+                return slot;
+            }
+            waiters.add(slot);
+        }
+        final ScheduledFuture<?> expiry = SharedScheduler.get().schedule(
+                () -> slot.completeExceptionally(limitExceeded()), maxWaitNanos, TimeUnit.NANOSECONDS);
+        slot.whenComplete((v, error) -> expiry.cancel(false));
+        return slot;
+    }
+
+    /**
+     * Give back a slot, adjusting the limit by the outcome of the request that held it
+     *
+     * @param latencyNanos
+     *            How long the request took
+     * @param overloaded
+     *            true if the request was throttled, failed with a server error or timed out
+     */
+    void release(long latencyNanos, boolean overloaded) {
+        synchronized (this) {
+            if (minLimit < maxLimit) {
+                adjustLimit(latencyNanos, overloaded);
+            }
+        }
+        release();
+    }
+
+    /**
+     * Give back a slot without adjusting the limit, for requests that ended before reaching the server or were
+     * cancelled before their response arrived
+     */
+    void release() {
+        while (true) {
+            CompletableFuture<Void> next = null;
+            synchronized (this) {
+                inFlight--;
+                while (inFlight < (int) limit && next == null && !waiters.isEmpty()) {
+                    CompletableFuture<Void> waiter = waiters.poll();
+                    if (!waiter.isDone()) {
+                        next = waiter;
+                        inFlight++;
+                    }
+                }
+            }
+            // complete outside the lock: the waiter's request is sent from this call
+            if (next == null || next.complete(null)) {
+                return;
+            }
+            // the waiter expired while being handed the slot; give it to the next one
+        }
+    }
+
+    private void adjustLimit(long latencyNanos, boolean overloaded) {
+        // until there are enough samples, both averages are the plain mean of the samples so far
+        samples++;
+        recentLatencyNanos += (latencyNanos - recentLatencyNanos) / Math.min(samples, RECENT_SAMPLES);
+        // the baseline follows the service slowly, so that it rises when the service permanently slows down
+        baselineLatencyNanos += (latencyNanos - baselineLatencyNanos) / Math.min(samples, BASELINE_SAMPLES);
+
+        long now = System.nanoTime();
+        if (overloaded || recentLatencyNanos > LATENCY_TOLERANCE * baselineLatencyNanos) {
+            // requests that were already in flight when the limit dropped report the same congestion; only back
+            // off once per round trip
+            if (now - lastDecreaseNanos > recentLatencyNanos) {
+                limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+                lastDecreaseNanos = now;
+            }
+        } else if (inFlight * 2 >= limit) {
+            // only grow a limit that is actually being used
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    private static RequestError limitExceeded() {
+        return new RequestError(new RejectedExecutionException("Concurrent request limit exceeded"));
+    }
+
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final double LATENCY_TOLERANCE = 2;
+    private static final long RECENT_SAMPLES = 20;
+    private static final long BASELINE_SAMPLES = 1000;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long maxWaitNanos;
+    private final ArrayDeque<CompletableFuture<Void>> waiters = new ArrayDeque<CompletableFuture<Void>>();
+    private double limit;
+    private int inFlight;
+    private double recentLatencyNanos;
+    private double baselineLatencyNanos;
+    private long samples;
+    private long lastDecreaseNanos = System.nanoTime();
+}
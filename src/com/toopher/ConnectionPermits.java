@@ -0,0 +1,226 @@
+package com.toopher;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.http.HttpConnectTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounds the number of connections a transport without a pool of its own may open, handing permits to blocking and
+ * non-blocking callers in order of arrival
+ * <p>
+ * The lock is only held to update the count and the queue, and it is a ReentrantLock rather than a monitor, so
+ * virtual threads waiting here don't pin their carrier threads.
+ *
+ */
+final class ConnectionPermits {
+
+    ConnectionPermits(int maxConnections) {
+        if (maxConnections <= 0) {
+            throw new IllegalArgumentException("The maximum number of connections must be positive");
+        }
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * Take a permit, blocking until one is free
+     *
+     * @param timeoutNanos
+     *            How long to wait, or 0 to wait indefinitely
+     * @throws HttpConnectTimeoutException
+     *             If no permit was freed in time
+     * @throws InterruptedIOException
+     *             If the wait was interrupted
+     */
+    void acquire(long timeoutNanos) throws IOException {
+        CompletableFuture<Void> permit = acquireAsync(timeoutNanos);
+        try {
+            permit.get();
+        } catch (ExecutionException e) {
+            throw (IOException) e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (!permit.cancel(false)) {
+                // the permit was granted as we gave up on it
+                release();
+            }
+            throw new InterruptedIOException("Interrupted while waiting for a connection");
+        }
+    }
+
+    /**
+     * Take a permit without blocking
+     *
+     * @param timeoutNanos
+     *            How long to wait, or 0 to wait indefinitely
+     * @return A future completed once the caller holds a permit, or exceptionally with an
+     *         HttpConnectTimeoutException if none was freed in time.  Cancel it to stop waiting.
+     */
+    CompletableFuture<Void> acquireAsync(long timeoutNanos) {
+        final CompletableFuture<Void> permit = new CompletableFuture<Void>();
+        lock.lock();
+        try {
+            if (retired) {
+                permit.completeExceptionally(new RetiredException());
+                return permit;
+            }
+            if (leased < maxConnections) {
+                leased++;
+                permit.complete(null);
+                return permit;
+            }
+            waiters.add(permit);
+        } finally {
+            lock.unlock();
+        }
+        if (timeoutNanos > 0) {
+            final ScheduledFuture<?> expiry = SharedScheduler.get().schedule(() -> {
+                // like a connect timeout, the request was never sent
+                permit.completeExceptionally(new HttpConnectTimeoutException("Timeout waiting for connection"));
+            }, timeoutNanos, TimeUnit.NANOSECONDS);
+            permit.whenComplete((v, error) -> expiry.cancel(false));
+        }
+        return permit;
+    }
+
+    /**
+     * Give back a permit, handing it to the longest waiting caller if there is one
+     */
+    void release() {
+        while (true) {
+            CompletableFuture<Void> next = null;
+            lock.lock();
+            try {
+                leased--;
+                while (next == null && leased < maxConnections && !waiters.isEmpty()) {
+                    CompletableFuture<Void> waiter = waiters.poll();
+                    if (!waiter.isDone()) {
+                        next = waiter;
+                        leased++;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            // complete outside the lock: a non-blocking waiter's request is sent from this call
+            if (next == null || next.complete(null)) {
+                return;
+            }
+            // the waiter gave up while being handed the permit; give it to the next one
+        }
+    }
+
+    /**
+     * @return The number of permits held
+     */
+    int getLeased() {
+        lock.lock();
+        try {
+            return leased;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of callers waiting for a permit, including some that have just given up
+     */
+    int getPending() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Lower the number of permits.  Permits already held over the new limit are not handed on when released.
+     *
+     * @param maxConnections
+     *            The new limit, which is raised to 1 if it is less
+     */
+    void lowerMaxConnections(int maxConnections) {
+        lock.lock();
+        try {
+            this.maxConnections = Math.max(1, Math.min(this.maxConnections, maxConnections));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Raise the number of permits, handing the new ones to waiting callers
+     */
+    void raiseMaxConnections(int maxConnections) {
+        List<CompletableFuture<Void>> granted = new ArrayList<CompletableFuture<Void>>();
+        lock.lock();
+        try {
+            if (maxConnections <= this.maxConnections) {
+                return;
+            }
+            this.maxConnections = maxConnections;
+            while (leased < maxConnections && !waiters.isEmpty()) {
+                CompletableFuture<Void> waiter = waiters.poll();
+                if (!waiter.isDone()) {
+                    granted.add(waiter);
+                    leased++;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (CompletableFuture<Void> waiter : granted) {
+            if (!waiter.complete(null)) {
+                release();
+            }
+        }
+    }
+
+    /**
+     * Stop handing out permits, for connections that are no longer to be used.  Callers waiting for a permit, and
+     * any that ask for one later, fail with a {@link RetiredException} without having sent anything.
+     */
+    void retire() {
+        List<CompletableFuture<Void>> abandoned;
+        lock.lock();
+        try {
+            retired = true;
+            abandoned = new ArrayList<CompletableFuture<Void>>(waiters);
+            waiters.clear();
+        } finally {
+            lock.unlock();
+        }
+        for (CompletableFuture<Void> waiter : abandoned) {
+            waiter.completeExceptionally(new RetiredException());
+        }
+    }
+
+    /**
+     * Thrown to a caller of permits that have been retired; the request may be sent again elsewhere
+     */
+    static final class RetiredException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        RetiredException() {
+            super("The connections are no longer in use");
+        }
+    }
+
+    private volatile int maxConnections;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<CompletableFuture<Void>> waiters = new ArrayDeque<CompletableFuture<Void>>();
+    private int leased;
+    private boolean retired;
+}
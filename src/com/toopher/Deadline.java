@@ -0,0 +1,79 @@
+package com.toopher;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A point in time by which an API call must complete, including signing, waiting for limiters and connections,
+ * and any retries
+ * <p>
+ * A call that runs out of time fails with a RequestError caused by a {@link TimeoutException}.
+ *
+ */
+public final class Deadline {
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Create a deadline relative to now
+     *
+     * @param duration
+     *            The time allowed
+     * @param unit
+     *            The unit of the duration
+     * @return A deadline that expires after the duration
+     */
+    public static Deadline after(long duration, TimeUnit unit) {
+        long now = System.nanoTime();
+        long durationNanos = Math.min(unit.toNanos(duration), Long.MAX_VALUE / 2);
+        return new Deadline(now + Math.max(0, durationNanos));
+    }
+
+    /**
+     * @param unit
+     *            The unit of the result
+     * @return The time left before the deadline, or zero if it has passed
+     */
+    public long remaining(TimeUnit unit) {
+        return unit.convert(remainingNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return true if the deadline has passed
+     */
+    public boolean isExpired() {
+        return remainingNanos() == 0;
+    }
+
+    long remainingNanos() {
+        return Math.max(0, deadlineNanos - System.nanoTime());
+    }
+
+    /**
+     * Fail a future with a timeout if it has not completed by the deadline
+     */
+    void enforce(final CompletableFuture<?> future) {
+        final ScheduledFuture<?> timer = SharedScheduler.get().schedule(
+                () -> future.completeExceptionally(exceeded(null)), remainingNanos(), TimeUnit.NANOSECONDS);
+        future.whenComplete((value, error) -> timer.cancel(false));
+    }
+
+    /**
+     * @param cause
+     *            The failure of the work cut short by the deadline, or null
+     * @return The error reported for a call that ran out of time
+     */
+    static RequestError exceeded(Throwable cause) {
+        TimeoutException timeout = new TimeoutException("Deadline exceeded");
+        if (cause != null) {
+            timeout.initCause(cause);
+        }
+        return new RequestError(timeout);
+    }
+
+    private final long deadlineNanos;
+}
@@ -0,0 +1,67 @@
+package com.toopher;
+
+import java.net.URI;
+import java.nio.charset.Charset;
+
+/**
+ * An API endpoint whose URI ends in a single id segment, such as pairings/{id}.  The base of the URI is resolved
+ * once, so expanding the template only escapes the id and parses the resulting string.
+ *
+ */
+final class EndpointTemplate {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private final String prefix;
+
+    /**
+     * @param baseUri
+     *            The absolute API base URI, for example https://api.toopher.com/v1/
+     * @param path
+     *            The endpoint path relative to the base, up to the id, for example pairings/
+     */
+    EndpointTemplate(String baseUri, String path) {
+        this.prefix = baseUri + path;
+    }
+
+    URI expand(String id) {
+        String segment = String.valueOf(id);
+        StringBuilder sb = new StringBuilder(prefix.length() + segment.length() + 8);
+        sb.append(prefix);
+        appendPathSegment(sb, segment);
+        return URI.create(sb.toString());
+    }
+
+    /**
+     * Append a path segment, percent-encoding everything except RFC 3986 unreserved characters.  Ids are normally
+     * all unreserved, so this is usually a plain copy.
+     */
+    static void appendPathSegment(StringBuilder sb, String segment) {
+        int length = segment.length();
+        for (int i = 0; i < length; i++) {
+            if (!isUnreserved(segment.charAt(i))) {
+                appendEncoded(sb, segment, i);
+                return;
+            }
+        }
+        sb.append(segment);
+    }
+
+    private static void appendEncoded(StringBuilder sb, String segment, int firstReserved) {
+        sb.append(segment, 0, firstReserved);
+        byte[] bytes = segment.substring(firstReserved).getBytes(UTF_8);
+        for (byte b : bytes) {
+            char c = (char) (b & 0xff);
+            if (isUnreserved(c)) {
+                sb.append(c);
+            } else {
+                sb.append('%').append(HEX_DIGITS[(b >> 4) & 0x0f]).append(HEX_DIGITS[b & 0x0f]);
+            }
+        }
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+}
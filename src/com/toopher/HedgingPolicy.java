@@ -0,0 +1,112 @@
+package com.toopher;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when a slow status lookup is raced by a second, identical request
+ * <p>
+ * A lookup that has not been answered once it has taken longer than a given percentile of recent lookups is sent
+ * again; whichever response arrives first is used and the other request is cancelled.  Until enough lookups have
+ * been observed to estimate the percentile, no hedges are sent.  Hedges are limited by a budget shared by every
+ * lookup using this policy: each lookup adds a fraction of a hedge to the budget and each hedge spends a whole
+ * one, so the extra load stays a small, bounded fraction of the total even when the service slows down.
+ *
+ */
+public class HedgingPolicy {
+    /**
+     * The default latency percentile after which a hedge is sent
+     */
+    public static final double DEFAULT_PERCENTILE = 0.95;
+
+    /**
+     * The default lower bound on the delay before a hedge is sent
+     */
+    public static final long DEFAULT_MIN_DELAY_MS = 5;
+
+    /**
+     * The default number of hedges each lookup adds to the budget
+     */
+    public static final double DEFAULT_BUDGET_RATIO = 0.05;
+
+    /**
+     * Create a hedging policy with the default settings
+     */
+    public HedgingPolicy() {
+        this(DEFAULT_PERCENTILE, DEFAULT_MIN_DELAY_MS, DEFAULT_BUDGET_RATIO);
+    }
+
+    /**
+     * Create a hedging policy
+     *
+     * @param percentile
+     *            The latency percentile, between 0 and 1, after which a hedge is sent
+     * @param minDelayMillis
+     *            The lower bound on the delay before a hedge is sent
+     * @param budgetRatio
+     *            The number of hedges each lookup adds to the budget; 0.05 allows one hedge for every twenty lookups
+     */
+    public HedgingPolicy(double percentile, long minDelayMillis, double budgetRatio) {
+        if (percentile <= 0 || percentile >= 1 || minDelayMillis < 0 || budgetRatio < 0) {
+            throw new IllegalArgumentException("Invalid hedging policy settings");
+        }
+        this.percentile = percentile;
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMillis);
+        this.budgetRatio = budgetRatio;
+    }
+
+    /**
+     * Record that a lookup is about to be made, adding to the hedge budget
+     *
+     * @return How long to wait for a response before hedging, or -1 not to hedge
+     */
+    synchronized long onRequest() {
+        budget = Math.min(BUDGET_CAPACITY, budget + budgetRatio);
+        return delayNanos;
+    }
+
+    /**
+     * Spend from the hedge budget
+     *
+     * @return true if a hedge may be sent
+     */
+    synchronized boolean tryHedge() {
+        if (budget < 1) {
+            return false;
+        }
+        budget -= 1;
+        return true;
+    }
+
+    /**
+     * Record how long a lookup took to be answered
+     */
+    synchronized void recordLatency(long latencyNanos) {
+        samples[next] = latencyNanos;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+        if (++sinceUpdate >= UPDATE_INTERVAL && count >= MIN_SAMPLES) {
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            delayNanos = Math.max(minDelayNanos, sorted[(int) Math.min(count - 1, percentile * count)]);
+            sinceUpdate = 0;
+        }
+    }
+
+    private static final int SAMPLE_WINDOW = 1024;
+    private static final int MIN_SAMPLES = 100;
+    private static final int UPDATE_INTERVAL = 64;
+    private static final double BUDGET_CAPACITY = 10;
+
+    private final double percentile;
+    private final long minDelayNanos;
+    private final double budgetRatio;
+    private final long[] samples = new long[SAMPLE_WINDOW];
+    private int next;
+    private int count;
+    private int sinceUpdate;
+    private long delayNanos = -1;
+    private double budget;
+}
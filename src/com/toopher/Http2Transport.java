@@ -0,0 +1,311 @@
+package com.toopher;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Sends requests over HTTP/2 with the JDK's java.net.http client, multiplexing concurrent requests as streams over a
+ * few long-lived connections
+ * <p>
+ * Each connection belongs to its own client, and each carries at most a fixed number of streams at once, or a single
+ * request until the server has agreed to HTTP/2 so that a burst of requests doesn't open a connection each.  A request
+ * goes to the connection with the fewest requests sent or waiting, and waits in order of arrival when every
+ * connection is full, rather than being refused by the server for opening more streams than it allows.  If the
+ * server allows fewer streams than the limit, each connection's limit is lowered to match as the client runs out of
+ * streams.
+ * <p>
+ * HTTP/2 is negotiated with ALPN over TLS, or with an h2c upgrade over cleartext.  Once the server answers a request
+ * with HTTP/1.1, the transport falls back to sending every request over a pool of HTTP/1.1 connections with its own
+ * limit, and requests that were waiting for a stream wait for one of those connections instead.  The connect
+ * timeout is fixed when the transport is created; the one set on the ToopherAPI object is ignored.
+ * <p>
+ * Like {@link JdkHttpTransport}, it resumes TLS sessions from a cache shared by every transport in the process, and
+ * looks the host names of warmed-up hosts up again in the background.
+ *
+ */
+public class Http2Transport implements Transport {
+
+    /**
+     * Create a transport with the default stream limit and connect timeout
+     *
+     * @param connections
+     *            The number of HTTP/2 connections to open
+     * @param maxHttp1Connections
+     *            The maximum number of connections opened if the server only speaks HTTP/1.1
+     */
+    public Http2Transport(int connections, int maxHttp1Connections) {
+        this(connections, DEFAULT_MAX_CONCURRENT_STREAMS, maxHttp1Connections, ToopherAPI.DEFAULT_CONNECT_TIMEOUT_MS);
+    }
+
+    /**
+     * Create a transport
+     *
+     * @param connections
+     *            The number of HTTP/2 connections to open
+     * @param maxConcurrentStreams
+     *            The maximum number of requests sent at once over each connection
+     * @param maxHttp1Connections
+     *            The maximum number of connections opened if the server only speaks HTTP/1.1
+     * @param connectTimeoutMillis
+     *            The time allowed to establish a connection, or 0 to wait indefinitely
+     */
+    public Http2Transport(int connections, int maxConcurrentStreams, int maxHttp1Connections,
+                          int connectTimeoutMillis) {
+        if (connections <= 0) {
+            throw new IllegalArgumentException("The number of connections must be positive");
+        }
+        this.connections = new Connection[connections];
+        for (int i = 0; i < connections; i++) {
+            // one request at a time until the server agrees to HTTP/2, or a burst would open a connection each
+            this.connections[i] = new Connection(newClient(connectTimeoutMillis), new ConnectionPermits(1));
+        }
+        // the first client's pool carries the HTTP/1.1 connections after a fallback
+        http1Connections = new Connection(this.connections[0].client, new ConnectionPermits(maxHttp1Connections));
+        this.maxConcurrentStreams = maxConcurrentStreams;
+    }
+
+    @Override
+    public TransportResponse send(TransportRequest request) throws IOException {
+        checkOpen();
+        for (int attempt = 1;; attempt++) {
+            Connection connection = nextConnection();
+            HttpResponse<byte[]> response;
+            try {
+                response = JdkHttpTransport.send(connection.client, connection.permits, request);
+            } catch (IOException e) {
+                if (e instanceof ConnectionPermits.RetiredException) {
+                    // waiting for a stream when the transport fell back; wait for an HTTP/1.1 connection instead
+                    continue;
+                }
+                if (attempt < MAX_REFUSED_ATTEMPTS && isRefusedStream(connection, e)) {
+                    continue;
+                }
+                throw e;
+            }
+            onResponse(connection, response);
+            return JdkHttpTransport.toTransportResponse(response);
+        }
+    }
+
+    @Override
+    public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+        CompletableFuture<TransportResponse> result = new CompletableFuture<TransportResponse>();
+        try {
+            checkOpen();
+        } catch (IOException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        sendAsync(request, result, 1);
+        return result;
+    }
+
+    private void sendAsync(final TransportRequest request, final CompletableFuture<TransportResponse> result,
+                           final int attempt) {
+        final Connection connection = nextConnection();
+        final CompletableFuture<HttpResponse<byte[]>> exchange = JdkHttpTransport.sendAsync(connection.client,
+                                                                                           connection.permits,
+                                                                                           request);
+        result.whenComplete((response, error) -> exchange.cancel(false));
+        exchange.whenComplete((response, error) -> {
+            if (error == null) {
+                onResponse(connection, response);
+                result.complete(JdkHttpTransport.toTransportResponse(response));
+            } else if (!result.isDone() && error instanceof ConnectionPermits.RetiredException) {
+                sendAsync(request, result, attempt);
+            } else if (!result.isDone() && attempt < MAX_REFUSED_ATTEMPTS && isRefusedStream(connection, error)) {
+                sendAsync(request, result, attempt + 1);
+            } else {
+                result.completeExceptionally(error);
+            }
+        });
+    }
+
+    /**
+     * Send the request once over each connection, up to the number given, which also settles whether the server
+     * speaks HTTP/2.  After a fallback, warm the HTTP/1.1 pool instead.
+     */
+    @Override
+    public int warmUp(TransportRequest request, int connections) throws IOException {
+        checkOpen();
+        dnsResolver.resolve(request.getUri().getHost());
+        if (fellBack) {
+            return JdkHttpTransport.warmUp(http1Connections.client, http1Connections.permits, request,
+                                           Math.min(connections, http1Connections.permits.getMaxConnections()));
+        }
+        int warmed = Math.min(connections, this.connections.length);
+        List<CompletableFuture<HttpResponse<byte[]>>> exchanges =
+                new ArrayList<CompletableFuture<HttpResponse<byte[]>>>();
+        for (int i = 0; i < warmed; i++) {
+            exchanges.add(JdkHttpTransport.sendAsync(this.connections[i].client, this.connections[i].permits,
+                                                     request));
+        }
+        int open = 0;
+        Throwable failure = null;
+        for (int i = 0; i < warmed; i++) {
+            try {
+                onResponse(this.connections[i], exchanges.get(i).join());
+                open++;
+            } catch (CompletionException e) {
+                failure = e.getCause() == null ? e : e.getCause();
+            }
+        }
+        if (open == 0 && failure != null) {
+            throw failure instanceof IOException ? (IOException) failure
+                                                 : new IOException("Unable to open a connection", failure);
+        }
+        return open;
+    }
+
+    /**
+     * @return true until the server answers a request with HTTP/1.1
+     */
+    public boolean isMultiplexing() {
+        return !fellBack;
+    }
+
+    /**
+     * @return The number of streams open, or of HTTP/1.1 connections in use after a fallback
+     */
+    @Override
+    public int getLeasedConnections() {
+        int leased = http1Connections.permits.getLeased();
+        for (Connection connection : connections) {
+            leased += connection.permits.getLeased();
+        }
+        return leased;
+    }
+
+    /**
+     * @return The number of requests waiting for a stream, or for an HTTP/1.1 connection after a fallback
+     */
+    @Override
+    public int getPendingConnections() {
+        int pending = http1Connections.permits.getPending();
+        for (Connection connection : connections) {
+            pending += connection.permits.getPending();
+        }
+        return pending;
+    }
+
+    /**
+     * @return The maximum number of streams open at once, or of HTTP/1.1 connections after a fallback
+     */
+    @Override
+    public int getMaxConnections() {
+        if (fellBack) {
+            return http1Connections.permits.getMaxConnections();
+        }
+        int max = 0;
+        for (Connection connection : connections) {
+            max += connection.multiplexing ? connection.permits.getMaxConnections() : maxConcurrentStreams;
+        }
+        return max;
+    }
+
+    /**
+     * Fail requests sent from now on.  The clients have no way to shut down before Java 21; their connections are
+     * closed once they are no longer reachable.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        dnsResolver.close();
+    }
+
+    private static HttpClient newClient(int connectTimeoutMillis) {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .sslContext(TlsSessions.context());
+        if (connectTimeoutMillis > 0) {
+            builder.connectTimeout(Duration.ofMillis(connectTimeoutMillis));
+        }
+        return builder.build();
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("The transport has been closed");
+        }
+    }
+
+    /**
+     * @return The connection with the fewest requests sent or waiting, or the HTTP/1.1 pool after a fallback
+     */
+    private Connection nextConnection() {
+        if (fellBack) {
+            return http1Connections;
+        }
+        Connection next = connections[0];
+        int nextLoad = Integer.MAX_VALUE;
+        for (Connection connection : connections) {
+            int load = connection.permits.getLeased() + connection.permits.getPending();
+            if (load < nextLoad) {
+                next = connection;
+                nextLoad = load;
+            }
+        }
+        return next;
+    }
+
+    private void onResponse(Connection connection, HttpResponse<byte[]> response) {
+        if (response.version() == HttpClient.Version.HTTP_2) {
+            if (!connection.multiplexing) {
+                connection.multiplexing = true;
+                connection.permits.raiseMaxConnections(maxConcurrentStreams);
+            }
+        } else if (!fellBack) {
+            // requests already waiting for a stream are sent again through the HTTP/1.1 pool, within its limit
+            fellBack = true;
+            for (Connection multiplexed : connections) {
+                multiplexed.permits.retire();
+            }
+        }
+    }
+
+    /**
+     * The JDK client refuses to open a stream beyond the server's SETTINGS_MAX_CONCURRENT_STREAMS, failing the
+     * request before anything is sent.  Lower the connection's limit by one stream for each refusal, so that it
+     * settles at the server's limit and requests wait for a stream instead, and send the request again.
+     */
+    private static boolean isRefusedStream(Connection connection, Throwable error) {
+        if (!(error instanceof IOException) || error.getMessage() == null
+                || !error.getMessage().contains("too many concurrent streams")) {
+            return false;
+        }
+        connection.permits.lowerMaxConnections(connection.permits.getMaxConnections() - 1);
+        return true;
+    }
+
+    private static class Connection {
+        final HttpClient client;
+        final ConnectionPermits permits;
+        volatile boolean multiplexing;
+
+        Connection(HttpClient client, ConnectionPermits permits) {
+            this.client = client;
+            this.permits = permits;
+        }
+    }
+
+    /**
+     * The stream limit most servers advertise, and the smallest that RFC 7540 recommends
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_STREAMS = 100;
+
+    private static final int MAX_REFUSED_ATTEMPTS = 4;
+
+    private final Connection[] connections;
+    private final Connection http1Connections;
+    private final RefreshingDnsResolver dnsResolver = new RefreshingDnsResolver();
+    private final int maxConcurrentStreams;
+    private volatile boolean fellBack;
+    private volatile boolean closed;
+}
@@ -0,0 +1,493 @@
+package com.toopher;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLSocket;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
+import org.apache.http.HttpResponse;
+import org.apache.http.StatusLine;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.params.HttpClientParams;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ManagedClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.DefaultedHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.params.SyncBasicHttpParams;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Sends requests with Apache HttpClient: blocking requests over a pool of persistent connections, and non-blocking
+ * requests over a second pool run by a small number of I/O reactor threads, started on first use
+ * <p>
+ * Both pools resume TLS sessions from a cache shared by every transport in the process.  Host names are resolved once
+ * and refreshed in the background, so only the first connection to a host waits for DNS.
+ * <p>
+ * This is the transport a ToopherAPI object uses unless it is given another.  It needs the HttpClient, HttpCore and
+ * HttpCore NIO libraries.
+ *
+ */
+public class HttpClientTransport implements Transport {
+
+    /**
+     * Create a transport
+     *
+     * @param maxTotalConnections
+     *            The maximum number of connections kept open by each pool
+     * @param maxConnectionsPerRoute
+     *            The maximum number of connections each pool keeps open to a single host
+     */
+    public HttpClientTransport(int maxTotalConnections, int maxConnectionsPerRoute) {
+        SchemeRegistry schemeRegistry = new SchemeRegistry();
+        schemeRegistry.register(new Scheme("http", 80, PlainSocketFactory.getSocketFactory()));
+        schemeRegistry.register(new Scheme("https", 443, sslSocketFactory));
+        connectionManager = new PoolingClientConnectionManager(schemeRegistry, host -> dnsResolver.resolve(host));
+        connectionManager.setMaxTotal(maxTotalConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+
+        DefaultHttpClient client = new DefaultHttpClient(connectionManager);
+        client.setKeepAliveStrategy(keepAliveStrategy);
+        // retries, including of a request sent over a connection the server had closed, are made by the
+        // ToopherAPI's RetryPolicy within its budget
+        client.setHttpRequestRetryHandler(new DefaultHttpRequestRetryHandler(0, false));
+        client.addRequestInterceptor(TracingInterceptor.INSTANCE);
+        client.addResponseInterceptor(TracingInterceptor.INSTANCE);
+        httpClient = client;
+
+        asyncParams = new SyncBasicHttpParams();
+        HttpConnectionParams.setConnectionTimeout(asyncParams, asyncConnectTimeoutMillis);
+        HttpConnectionParams.setSoTimeout(asyncParams, asyncReadTimeoutMillis);
+
+        idleConnectionMonitor = new IdleConnectionMonitor(connectionManager, IDLE_CONNECTION_TIMEOUT_MS,
+                                                          IDLE_CONNECTION_CHECK_INTERVAL_MS);
+        idleConnectionMonitor.start();
+
+        this.maxTotalConnections = maxTotalConnections;
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    @Override
+    public TransportResponse send(TransportRequest request) throws IOException {
+        HttpRequestBase httpRequest = toHttpRequest(request);
+        HttpParams params = httpRequest.getParams();
+        HttpConnectionParams.setConnectionTimeout(params, request.getConnectTimeoutMillis());
+        HttpConnectionParams.setSoTimeout(params, request.getReadTimeoutMillis());
+        HttpClientParams.setConnectionManagerTimeout(params, request.getConnectionRequestTimeoutMillis());
+
+        Deadline deadline = request.getDeadline();
+        ScheduledFuture<?> abortTimer = deadline == null ? null : abortAtDeadline(httpRequest, deadline);
+        try {
+            if (!request.isTraced()) {
+                return httpClient.execute(httpRequest, responseHandler);
+            }
+            return httpClient.execute(httpRequest, responseHandler, TracingInterceptor.contextFor(request));
+        } finally {
+            if (abortTimer != null) {
+                abortTimer.cancel(false);
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+        final CompletableFuture<TransportResponse> result = new CompletableFuture<TransportResponse>();
+        try {
+            AsyncRequestExecutor asyncExecutor = getAsyncExecutor();
+            applyAsyncTimeouts(request);
+            final CompletableFuture<HttpResponse> exchange = asyncExecutor.execute(request);
+            result.whenComplete((response, error) -> exchange.cancel(false));
+            exchange.whenComplete((response, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                    return;
+                }
+                try {
+                    result.complete(responseHandler.handleResponse(response));
+                } catch (IOException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (IOException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Open pooled connections to the request's host, several at a time, without sending the request.  The
+     * non-blocking pool is warmed too once it has been started.
+     */
+    @Override
+    public int warmUp(TransportRequest request, int connections) throws IOException {
+        HttpRoute route;
+        HttpRequestBase httpRequest = toHttpRequest(request);
+        try {
+            route = httpClient.getRoutePlanner().determineRoute(URIUtils.extractHost(request.getUri()), httpRequest,
+                                                                new BasicHttpContext());
+        } catch (HttpException e) {
+            throw new IOException("Unable to route " + request, e);
+        }
+        HttpParams params = new DefaultedHttpParams(new BasicHttpParams(), httpClient.getParams());
+        HttpConnectionParams.setConnectionTimeout(params, (int) timeoutMillis(request.getConnectTimeoutMillis(),
+                                                                                request.getDeadline()));
+        HttpConnectionParams.setSoTimeout(params, (int) timeoutMillis(request.getReadTimeoutMillis(),
+                                                                        request.getDeadline()));
+
+        // lease every connection before opening any, so that each is a different one
+        List<ManagedClientConnection> leased = new ArrayList<ManagedClientConnection>();
+        long leaseTimeoutMillis = timeoutMillis(request.getConnectionRequestTimeoutMillis(), request.getDeadline());
+        try {
+            for (int i = 0; i < Math.min(connections, maxConnectionsPerRoute); i++) {
+                leased.add(connectionManager.requestConnection(route, null).getConnection(leaseTimeoutMillis,
+                                                                                          TimeUnit.MILLISECONDS));
+            }
+        } catch (ConnectionPoolTimeoutException e) {
+            // the pool is busy with requests; warm the connections leased so far
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            releaseAll(leased);
+            throw new InterruptedIOException("Interrupted while warming up");
+        }
+        int open;
+        try {
+            open = openAll(leased, route, params);
+        } finally {
+            releaseAll(leased);
+        }
+
+        AsyncRequestExecutor asyncExecutor = startedAsyncExecutor();
+        if (asyncExecutor != null) {
+            asyncExecutor.warmUp(request.getUri(), connections, leaseTimeoutMillis);
+        }
+        return open;
+    }
+
+    /**
+     * @return The number of pooled connections in use, blocking and non-blocking
+     */
+    @Override
+    public int getLeasedConnections() {
+        int leased = connectionManager.getTotalStats().getLeased();
+        AsyncRequestExecutor asyncExecutor = startedAsyncExecutor();
+        if (asyncExecutor != null) {
+            leased += asyncExecutor.getPoolStats().getLeased();
+        }
+        return leased;
+    }
+
+    @Override
+    public int getPendingConnections() {
+        int pending = connectionManager.getTotalStats().getPending();
+        AsyncRequestExecutor asyncExecutor = startedAsyncExecutor();
+        if (asyncExecutor != null) {
+            pending += asyncExecutor.getPoolStats().getPending();
+        }
+        return pending;
+    }
+
+    /**
+     * @return The maximum number of pooled connections, counting the non-blocking pool once it has been started
+     */
+    @Override
+    public int getMaxConnections() {
+        return startedAsyncExecutor() == null ? maxTotalConnections : 2 * maxTotalConnections;
+    }
+
+    @Override
+    public void close() {
+        dnsResolver.close();
+        idleConnectionMonitor.shutdown();
+        connectionManager.shutdown();
+        synchronized (this) {
+            closed = true;
+            if (asyncExecutor != null) {
+                asyncExecutor.shutdown();
+            }
+        }
+    }
+
+    private static HttpRequestBase toHttpRequest(TransportRequest request) {
+        HttpRequestBase httpRequest;
+        if (request.getBody() == null) {
+            httpRequest = new SignedRequest(request.getMethod());
+        } else {
+            SignedEntityEnclosingRequest enclosing = new SignedEntityEnclosingRequest(request.getMethod());
+            ByteArrayEntity entity = new ByteArrayEntity(request.getBody());
+            entity.setContentType(request.getContentType());
+            enclosing.setEntity(entity);
+            httpRequest = enclosing;
+        }
+        httpRequest.setURI(request.getUri());
+        httpRequest.setHeader("Authorization", request.getAuthorization());
+        httpRequest.setHeader("User-Agent", request.getUserAgent());
+        return httpRequest;
+    }
+
+    /**
+     * Open the leased connections that aren't open yet, on several threads at once
+     *
+     * @return The number of leased connections open
+     * @throws IOException
+     *             Thrown when none of them could be opened
+     */
+    private static int openAll(List<ManagedClientConnection> leased, final HttpRoute route, final HttpParams params)
+            throws IOException {
+        List<Future<Void>> opening = new ArrayList<Future<Void>>();
+        int threads = Math.max(1, Math.min(leased.size(), MAX_WARM_UP_THREADS));
+        ExecutorService executor = Executors.newFixedThreadPool(threads, warmUpThreadFactory);
+        try {
+            for (final ManagedClientConnection connection : leased) {
+                if (connection.isOpen()) {
+                    continue;
+                }
+                opening.add(executor.submit(() -> {
+                    connection.open(route, new BasicHttpContext(), params);
+                    return null;
+                }));
+            }
+            IOException failure = null;
+            for (Future<Void> future : opening) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        failure = (IOException) e.getCause();
+                    } else {
+                        failure = new IOException("Unable to open a connection", e.getCause());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while warming up");
+                }
+            }
+            int open = 0;
+            for (ManagedClientConnection connection : leased) {
+                if (connection.isOpen()) {
+                    open++;
+                }
+            }
+            if (open == 0 && failure != null) {
+                throw failure;
+            }
+            return open;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Return warmed connections to the pool to be kept for the idle timeout, and discard the others
+     */
+    private void releaseAll(List<ManagedClientConnection> leased) {
+        for (ManagedClientConnection connection : leased) {
+            if (connection.isOpen()) {
+                connection.markReusable();
+                connectionManager.releaseConnection(connection, IDLE_CONNECTION_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } else {
+                connectionManager.releaseConnection(connection, 0, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * @return The smaller of the timeout and the time left before the deadline, at least a millisecond if there is a
+     *         deadline, or 0 for no limit
+     */
+    private static long timeoutMillis(long timeoutMillis, Deadline deadline) {
+        if (deadline == null) {
+            return timeoutMillis;
+        }
+        long remainingMillis = Math.max(1, deadline.remaining(TimeUnit.MILLISECONDS));
+        return timeoutMillis == 0 ? remainingMillis : Math.min(timeoutMillis, remainingMillis);
+    }
+
+    /**
+     * The non-blocking pool takes its timeouts from shared parameters; update them only when they change
+     */
+    private void applyAsyncTimeouts(TransportRequest request) {
+        int connectTimeoutMillis = request.getConnectTimeoutMillis();
+        int readTimeoutMillis = request.getReadTimeoutMillis();
+        if (connectTimeoutMillis != asyncConnectTimeoutMillis || readTimeoutMillis != asyncReadTimeoutMillis) {
+            HttpConnectionParams.setConnectionTimeout(asyncParams, connectTimeoutMillis);
+            HttpConnectionParams.setSoTimeout(asyncParams, readTimeoutMillis);
+            asyncConnectTimeoutMillis = connectTimeoutMillis;
+            asyncReadTimeoutMillis = readTimeoutMillis;
+        }
+    }
+
+    /**
+     * Abort a blocking request when its deadline passes, whether it is waiting for a pooled connection,
+     * connecting, or reading the response
+     */
+    private static ScheduledFuture<?> abortAtDeadline(final HttpRequestBase httpRequest, Deadline deadline) {
+        return SharedScheduler.get().schedule(() -> httpRequest.abort(), deadline.remainingNanos(),
+                                              TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Lazily start the non-blocking pool, so callers who only use the blocking methods don't pay for it
+     */
+    private synchronized AsyncRequestExecutor getAsyncExecutor() throws IOException {
+        if (closed) {
+            throw new IOException("The transport has been closed");
+        }
+        if (asyncExecutor == null) {
+            asyncExecutor = new AsyncRequestExecutor(asyncParams, maxTotalConnections, maxConnectionsPerRoute);
+        }
+        return asyncExecutor;
+    }
+
+    private synchronized AsyncRequestExecutor startedAsyncExecutor() {
+        return asyncExecutor;
+    }
+
+    private static class SignedRequest extends HttpRequestBase {
+        private final String method;
+
+        SignedRequest(String method) {
+            this.method = method;
+        }
+
+        @Override
+        public String getMethod() {
+            return method;
+        }
+    }
+
+    private static class SignedEntityEnclosingRequest extends HttpEntityEnclosingRequestBase {
+        private final String method;
+
+        SignedEntityEnclosingRequest(String method) {
+            this.method = method;
+        }
+
+        @Override
+        public String getMethod() {
+            return method;
+        }
+    }
+
+    /**
+     * Opens TLS connections with the shared session cache, and checks the host name as the JDK's client does, so
+     * that sessions resumed by either are resumed by the other
+     */
+    private static final SSLSocketFactory sslSocketFactory = new SSLSocketFactory(
+            TlsSessions.context(), SSLSocketFactory.BROWSER_COMPATIBLE_HOSTNAME_VERIFIER) {
+
+        @Override
+        protected void prepareSocket(SSLSocket socket) throws IOException {
+            TlsSessions.identifyEndpoint(socket);
+        }
+    };
+
+    /**
+     * Reads the whole response, leaving out the body of an error response too large to hold an error code
+     */
+    private static final ResponseHandler<TransportResponse> responseHandler = response -> {
+        StatusLine statusLine = response.getStatusLine();
+        HttpEntity entity = response.getEntity();
+        byte[] body = null;
+        if (entity != null) {
+            if (statusLine.getStatusCode() < 300) {
+                body = EntityUtils.toByteArray(entity);
+            } else {
+                body = readErrorBody(entity);
+            }
+        }
+        Header contentType = entity == null ? null : entity.getContentType();
+        return new TransportResponse(statusLine.getStatusCode(), statusLine.getReasonPhrase(),
+                                     contentType == null ? null : contentType.getValue(), body);
+    };
+
+    /**
+     * Read an error body, whatever its declared length, through a stream that stops one byte past the largest body
+     * kept.  The client drains what is left so the connection can be reused.
+     *
+     * @return The body, or null if it is too large or couldn't be read
+     */
+    static byte[] readErrorBody(HttpEntity entity) {
+        if (entity.getContentLength() > TransportResponse.MAX_ERROR_BODY_BYTES) {
+            return null;
+        }
+        try {
+            InputStream in = entity.getContent();
+            if (in == null) {
+                return null;
+            }
+            byte[] body = in.readNBytes(TransportResponse.MAX_ERROR_BODY_BYTES + 1);
+            return body.length > TransportResponse.MAX_ERROR_BODY_BYTES ? null : body;
+        } catch (IOException e) {
+            // report the status alone
+            return null;
+        }
+    }
+
+    /**
+     * Honor the server's Keep-Alive header, but never keep an unused connection longer than the idle timeout
+     */
+    private static final ConnectionKeepAliveStrategy keepAliveStrategy = new DefaultConnectionKeepAliveStrategy() {
+
+        @Override
+        public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+            long duration = super.getKeepAliveDuration(response, context);
+            if (duration < 0 || duration > IDLE_CONNECTION_TIMEOUT_MS) {
+                return IDLE_CONNECTION_TIMEOUT_MS;
+            }
+            return duration;
+        }
+    };
+
+    private static final ThreadFactory warmUpThreadFactory = r -> {
+        Thread t = new Thread(r, "ToopherAPI-WarmUp");
+        t.setDaemon(true);
+        return t;
+    };
+
+    private static final long IDLE_CONNECTION_TIMEOUT_MS = 30000;
+    private static final long IDLE_CONNECTION_CHECK_INTERVAL_MS = 5000;
+    private static final int MAX_WARM_UP_THREADS = 8;
+
+    private final RefreshingDnsResolver dnsResolver = new RefreshingDnsResolver();
+    private final PoolingClientConnectionManager connectionManager;
+    private final IdleConnectionMonitor idleConnectionMonitor;
+    private final DefaultHttpClient httpClient;
+    private final HttpParams asyncParams;
+    private final int maxTotalConnections;
+    private final int maxConnectionsPerRoute;
+    private volatile int asyncConnectTimeoutMillis = ToopherAPI.DEFAULT_CONNECT_TIMEOUT_MS;
+    private volatile int asyncReadTimeoutMillis = ToopherAPI.DEFAULT_READ_TIMEOUT_MS;
+    private AsyncRequestExecutor asyncExecutor;
+    private boolean closed;
+}
@@ -0,0 +1,49 @@
+package com.toopher;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.conn.ClientConnectionManager;
+
+/**
+ * Background thread that evicts expired and idle connections from a pooled connection manager
+ *
+ */
+class IdleConnectionMonitor extends Thread {
+    private final ClientConnectionManager connectionManager;
+    private final long idleTimeoutMillis;
+    private final long checkIntervalMillis;
+    private volatile boolean shutdown;
+
+    IdleConnectionMonitor(ClientConnectionManager connectionManager, long idleTimeoutMillis, long checkIntervalMillis) {
+        super("ToopherAPI-IdleConnectionMonitor");
+        setDaemon(true);
+        this.connectionManager = connectionManager;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.checkIntervalMillis = checkIntervalMillis;
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!shutdown) {
+                synchronized (this) {
+                    wait(checkIntervalMillis);
+                }
+                if (shutdown) {
+                    break;
+                }
+                connectionManager.closeExpiredConnections();
+                connectionManager.closeIdleConnections(idleTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            // exit quietly
+        }
+    }
+
+    void shutdown() {
+        shutdown = true;
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.toopher;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Answers requests in-process with a handler instead of sending them over the network, for tests and benchmarks
+ * <p>
+ * Requests are signed, limited, retried and decoded exactly as they would be with a network transport.
+ * Non-blocking requests are answered on the calling thread.
+ *
+ */
+public class InMemoryTransport implements Transport {
+
+    /**
+     * Answers the requests sent through an InMemoryTransport
+     */
+    public interface Handler {
+
+        /**
+         * @param request
+         *            The signed request
+         * @return The response to return to the ToopherAPI object
+         * @throws IOException
+         *             To simulate a failed exchange
+         */
+        TransportResponse handle(TransportRequest request) throws IOException;
+    }
+
+    /**
+     * @param handler
+     *            Answers every request; it must be safe to call from many threads at once
+     */
+    public InMemoryTransport(Handler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public TransportResponse send(TransportRequest request) throws IOException {
+        if (closed) {
+            throw new IOException("The transport has been closed");
+        }
+        inFlight.incrementAndGet();
+        try {
+            request.connectionLeased();
+            TransportResponse response = handler.handle(request);
+            request.responseStarted();
+            return response;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    @Override
+    public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+        CompletableFuture<TransportResponse> result = new CompletableFuture<TransportResponse>();
+        try {
+            result.complete(send(request));
+        } catch (IOException e) {
+            result.completeExceptionally(e);
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * @return The number of requests being handled
+     */
+    @Override
+    public int getLeasedConnections() {
+        return inFlight.get();
+    }
+
+    @Override
+    public int getPendingConnections() {
+        return 0;
+    }
+
+    @Override
+    public int getMaxConnections() {
+        return 0;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    private final Handler handler;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile boolean closed;
+}
@@ -0,0 +1,41 @@
+package com.toopher;
+
+/**
+ * Observes the requests a {@link ToopherAPI} object sends, for metrics or tracing
+ * <p>
+ * Callbacks must be fast and must not block: they are made on the calling thread for blocking requests and on an
+ * I/O thread for non-blocking ones.  {@link RequestMetrics} is a ready-made implementation that keeps latency
+ * histograms and counters.
+ *
+ */
+public interface Instrumentation {
+
+    /**
+     * Called when a request starts, before it waits for any limiter
+     *
+     * @param trace
+     *            The request's trace, which is completed before it is passed to
+     *            {@link #requestCompleted(RequestTrace)}
+     */
+    void requestStarted(RequestTrace trace);
+
+    /**
+     * Called once when a request succeeds, fails or is abandoned
+     *
+     * @param trace
+     *            The request's trace, with its phase timings, response size and any failure
+     */
+    void requestCompleted(RequestTrace trace);
+
+    /**
+     * Called when a failed request is about to be retried
+     *
+     * @param endpoint
+     *            The operation being retried
+     * @param attempt
+     *            The number of the attempt that failed, starting at 1
+     * @param cause
+     *            The category of the failure
+     */
+    void requestRetried(RequestTrace.Endpoint endpoint, int attempt, RequestTrace.ErrorCategory cause);
+}
@@ -0,0 +1,321 @@
+package com.toopher;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends requests with the JDK's java.net.http client
+ * <p>
+ * Nothing on the way holds a monitor while it waits: callers queue for a connection in order of arrival and wait
+ * for the response in {@link HttpClient#send}, which parks the calling thread.  On a runtime with virtual threads, a
+ * virtual thread blocked here releases its carrier thread, so many thousands of callers can wait on a few hundred
+ * connections.  The transport needs no libraries beyond the JDK.
+ * <p>
+ * TLS sessions are resumed from a cache shared by every transport in the process, and the host names of warmed-up
+ * hosts are looked up again in the background, which keeps the JVM's address cache from expiring under the client.
+ * <p>
+ * The connect timeout is fixed when the transport is created; the one set on the ToopherAPI object is ignored.
+ *
+ */
+public class JdkHttpTransport implements Transport {
+
+    /**
+     * Create a transport with the default connect timeout
+     *
+     * @param maxConnections
+     *            The maximum number of requests sent at once, and so of connections opened
+     */
+    public JdkHttpTransport(int maxConnections) {
+        this(maxConnections, ToopherAPI.DEFAULT_CONNECT_TIMEOUT_MS);
+    }
+
+    /**
+     * Create a transport
+     *
+     * @param maxConnections
+     *            The maximum number of requests sent at once, and so of connections opened
+     * @param connectTimeoutMillis
+     *            The time allowed to establish a connection, or 0 to wait indefinitely
+     */
+    public JdkHttpTransport(int maxConnections, int connectTimeoutMillis) {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .sslContext(TlsSessions.context());
+        if (connectTimeoutMillis > 0) {
+            builder.connectTimeout(Duration.ofMillis(connectTimeoutMillis));
+        }
+        this.client = builder.build();
+        this.permits = new ConnectionPermits(maxConnections);
+    }
+
+    @Override
+    public TransportResponse send(TransportRequest request) throws IOException {
+        checkOpen();
+        return toTransportResponse(send(client, permits, request));
+    }
+
+    @Override
+    public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+        final CompletableFuture<TransportResponse> result = new CompletableFuture<TransportResponse>();
+        try {
+            checkOpen();
+        } catch (IOException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        final CompletableFuture<HttpResponse<byte[]>> exchange = sendAsync(client, permits, request);
+        result.whenComplete((response, error) -> exchange.cancel(false));
+        exchange.whenComplete((response, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(toTransportResponse(response));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Send the request once per connection, all at once, since the client only opens a connection to send a
+     * request and reuses a free one when it can
+     */
+    @Override
+    public int warmUp(TransportRequest request, int connections) throws IOException {
+        checkOpen();
+        dnsResolver.resolve(request.getUri().getHost());
+        return warmUp(client, permits, request, Math.min(connections, permits.getMaxConnections()));
+    }
+
+    @Override
+    public int getLeasedConnections() {
+        return permits.getLeased();
+    }
+
+    @Override
+    public int getPendingConnections() {
+        return permits.getPending();
+    }
+
+    @Override
+    public int getMaxConnections() {
+        return permits.getMaxConnections();
+    }
+
+    /**
+     * Fail requests sent from now on.  The client has no way to shut down before Java 21; its idle connections are
+     * closed once it is no longer reachable.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        dnsResolver.close();
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("The transport has been closed");
+        }
+    }
+
+    /**
+     * Send a request with a client once a permit is free, blocking until the response has been read
+     */
+    static HttpResponse<byte[]> send(HttpClient client, ConnectionPermits permits, TransportRequest request)
+            throws IOException {
+        HttpRequest httpRequest = toHttpRequest(request);
+        permits.acquire(timeoutNanos(request.getConnectionRequestTimeoutMillis(), request.getDeadline()));
+        try {
+            request.connectionLeased();
+            return client.send(httpRequest, bodyHandler(request));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the response");
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Send a request with a client once a permit is free, without blocking
+     *
+     * @return A future completed with the response.  Cancelling it stops the wait for a permit or the exchange.
+     */
+    static CompletableFuture<HttpResponse<byte[]>> sendAsync(final HttpClient client, final ConnectionPermits permits,
+                                                             final TransportRequest request) {
+        final CompletableFuture<HttpResponse<byte[]>> result = new CompletableFuture<HttpResponse<byte[]>>();
+        final HttpRequest httpRequest = toHttpRequest(request);
+        final CompletableFuture<Void> permit = permits.acquireAsync(
+                timeoutNanos(request.getConnectionRequestTimeoutMillis(), request.getDeadline()));
+        result.whenComplete((response, error) -> permit.cancel(false));
+        permit.whenComplete((granted, leaseError) -> {
+            if (leaseError != null) {
+                result.completeExceptionally(unwrap(leaseError));
+                return;
+            }
+            if (result.isDone()) {
+                // cancelled while waiting for a connection
+                permits.release();
+                return;
+            }
+            request.connectionLeased();
+            final CompletableFuture<HttpResponse<byte[]>> exchange = client.sendAsync(httpRequest,
+                                                                                     bodyHandler(request));
+            result.whenComplete((response, error) -> exchange.cancel(true));
+            exchange.whenComplete((response, error) -> {
+                permits.release();
+                if (error != null) {
+                    result.completeExceptionally(unwrap(error));
+                } else {
+                    result.complete(response);
+                }
+            });
+        });
+        return result;
+    }
+
+    /**
+     * Send a request a number of times at once with a client, so that each is sent over its own connection
+     *
+     * @return The number of requests answered, whatever their status
+     * @throws IOException
+     *             Thrown when none was answered
+     */
+    static int warmUp(HttpClient client, ConnectionPermits permits, TransportRequest request, int connections)
+            throws IOException {
+        List<CompletableFuture<HttpResponse<byte[]>>> exchanges =
+                new ArrayList<CompletableFuture<HttpResponse<byte[]>>>();
+        for (int i = 0; i < connections; i++) {
+            exchanges.add(sendAsync(client, permits, request));
+        }
+        int open = 0;
+        Throwable failure = null;
+        for (CompletableFuture<HttpResponse<byte[]>> exchange : exchanges) {
+            try {
+                exchange.join();
+                open++;
+            } catch (CompletionException e) {
+                failure = unwrap(e);
+            }
+        }
+        if (open == 0 && failure != null) {
+            throw failure instanceof IOException ? (IOException) failure
+                                                 : new IOException("Unable to open a connection", failure);
+        }
+        return open;
+    }
+
+    private static HttpRequest toHttpRequest(TransportRequest request) {
+        byte[] body = request.getBody();
+        HttpRequest.Builder builder = HttpRequest.newBuilder(request.getUri())
+                .method(request.getMethod(), body == null ? HttpRequest.BodyPublishers.noBody()
+                                                          : HttpRequest.BodyPublishers.ofByteArray(body))
+                .header("Authorization", request.getAuthorization())
+                .header("User-Agent", request.getUserAgent());
+        if (request.getContentType() != null) {
+            builder.header("Content-Type", request.getContentType());
+        }
+        // the client has no read timeout; bound the wait for the response instead
+        long timeoutNanos = timeoutNanos(request.getReadTimeoutMillis(), request.getDeadline());
+        if (timeoutNanos > 0) {
+            builder.timeout(Duration.ofNanos(timeoutNanos));
+        }
+        return builder.build();
+    }
+
+    private static HttpResponse.BodyHandler<byte[]> bodyHandler(final TransportRequest request) {
+        return responseInfo -> {
+            request.responseStarted();
+            if (responseInfo.statusCode() < 300) {
+                return HttpResponse.BodySubscribers.ofByteArray();
+            }
+            return new ErrorBodySubscriber();
+        };
+    }
+
+    /**
+     * Keeps an error body of up to {@link TransportResponse#MAX_ERROR_BODY_BYTES}, completing with null instead if
+     * the body is larger.  The rest of a larger body is dropped as it arrives.
+     */
+    private static class ErrorBodySubscriber implements HttpResponse.BodySubscriber<byte[]> {
+        private final CompletableFuture<byte[]> body = new CompletableFuture<byte[]>();
+        private ByteArrayOutputStream kept = new ByteArrayOutputStream();
+
+        @Override
+        public CompletionStage<byte[]> getBody() {
+            return body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            for (ByteBuffer buffer : buffers) {
+                if (kept != null && kept.size() + buffer.remaining() <= TransportResponse.MAX_ERROR_BODY_BYTES) {
+                    byte[] bytes = new byte[buffer.remaining()];
+                    buffer.get(bytes);
+                    kept.write(bytes, 0, bytes.length);
+                } else {
+                    kept = null;
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            body.completeExceptionally(error);
+        }
+
+        @Override
+        public void onComplete() {
+            body.complete(kept == null ? null : kept.toByteArray());
+        }
+    }
+
+    static TransportResponse toTransportResponse(HttpResponse<byte[]> response) {
+        return new TransportResponse(response.statusCode(), null,
+                                     response.headers().firstValue("Content-Type").orElse(null), response.body());
+    }
+
+    /**
+     * @return The smaller of the timeout and the time left before the deadline, at least a nanosecond if there is a
+     *         deadline, or 0 for no limit
+     */
+    private static long timeoutNanos(long timeoutMillis, Deadline deadline) {
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        if (deadline == null) {
+            return timeoutNanos;
+        }
+        long remainingNanos = Math.max(1, deadline.remainingNanos());
+        return timeoutNanos == 0 ? remainingNanos : Math.min(timeoutNanos, remainingNanos);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        if (error instanceof ExecutionException || error instanceof CompletionException) {
+            return error.getCause() == null ? error : error.getCause();
+        }
+        return error;
+    }
+
+    private final HttpClient client;
+    private final ConnectionPermits permits;
+    private final RefreshingDnsResolver dnsResolver = new RefreshingDnsResolver();
+    private volatile boolean closed;
+}
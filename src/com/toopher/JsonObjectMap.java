@@ -0,0 +1,71 @@
+package com.toopher;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.json.JSONObject;
+
+/**
+ * A read-only Map view over a JSONObject, so the raw response can be exposed as a Map without copying it
+ *
+ */
+class JsonObjectMap extends AbstractMap<String, Object> {
+    private final JSONObject json;
+
+    JsonObjectMap(JSONObject json) {
+        this.json = json;
+    }
+
+    @Override
+    public Object get(Object key) {
+        return key instanceof String ? json.opt((String) key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && json.has((String) key);
+    }
+
+    @Override
+    public int size() {
+        return json.length();
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        return new AbstractSet<Map.Entry<String, Object>>() {
+
+            @Override
+            public Iterator<Map.Entry<String, Object>> iterator() {
+                @SuppressWarnings("unchecked")
+                final Iterator<String> keys = json.keys();
+                return new Iterator<Map.Entry<String, Object>>() {
+
+                    @Override
+                    public boolean hasNext() {
+                        return keys.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<String, Object> next() {
+                        String key = keys.next();
+                        return new AbstractMap.SimpleImmutableEntry<String, Object>(key, json.opt(key));
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return json.length();
+            }
+        };
+    }
+}
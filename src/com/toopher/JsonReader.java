@@ -0,0 +1,268 @@
+package com.toopher;
+
+import java.nio.charset.Charset;
+
+import org.json.JSONException;
+
+/**
+ * A minimal pull parser that reads JSON tokens directly from a UTF-8 encoded response body, so that response
+ * objects can fill their fields without building an intermediate JSONObject
+ * <p>
+ * Values are read in the same way as {@link org.json.JSONObject#getString(String)} and
+ * {@link org.json.JSONObject#getBoolean(String)}: strings must be JSON strings, and booleans may be either JSON
+ * booleans or the strings "true" and "false".
+ *
+ */
+final class JsonReader {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final byte[] buf;
+    private final int end;
+    private int pos;
+    private boolean expectComma;
+
+    JsonReader(byte[] body) {
+        this.buf = body;
+        this.end = body.length;
+        this.pos = 0;
+    }
+
+    void beginObject() throws JSONException {
+        consume('{');
+        expectComma = false;
+    }
+
+    void endObject() throws JSONException {
+        consume('}');
+        expectComma = true;
+    }
+
+    /**
+     * @return true if the current object has another member
+     */
+    boolean hasNext() throws JSONException {
+        char c = peekChar();
+        if (c == '}') {
+            return false;
+        }
+        if (expectComma) {
+            consume(',');
+            expectComma = false;
+        }
+        return true;
+    }
+
+    String nextName() throws JSONException {
+        if (peekChar() != '"') {
+            throw syntaxError("Expected a member name");
+        }
+        String name = readString();
+        consume(':');
+        return name;
+    }
+
+    String nextString() throws JSONException {
+        if (peekChar() != '"') {
+            throw syntaxError("Expected a string");
+        }
+        String value = readString();
+        expectComma = true;
+        return value;
+    }
+
+    boolean nextBoolean() throws JSONException {
+        char c = peekChar();
+        String value;
+        if (c == '"') {
+            value = readString();
+        } else if (c == '{' || c == '[') {
+            throw syntaxError("Expected a boolean");
+        } else {
+            value = readLiteral();
+        }
+        expectComma = true;
+        if ("true".equalsIgnoreCase(value)) {
+            return true;
+        }
+        if ("false".equalsIgnoreCase(value)) {
+            return false;
+        }
+        throw new JSONException("Expected a boolean but found " + value);
+    }
+
+    /**
+     * Read an integer, which may be either a JSON number or a string holding one
+     */
+    int nextInt() throws JSONException {
+        char c = peekChar();
+        String value = c == '"' ? readString() : readLiteral();
+        expectComma = true;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new JSONException("Expected an integer but found " + value);
+        }
+    }
+
+    /**
+     * Skip the next value, including any nested objects or arrays
+     */
+    void skipValue() throws JSONException {
+        char c = peekChar();
+        if (c == '{' || c == '[') {
+            int depth = 0;
+            do {
+                c = peekChar();
+                if (c == '"') {
+                    skipString();
+                    continue;
+                }
+                pos++;
+                if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+            } while (depth > 0);
+        } else if (c == '"') {
+            skipString();
+        } else {
+            readLiteral();
+        }
+        expectComma = true;
+    }
+
+    private String readString() throws JSONException {
+        pos++; // opening quote
+        int start = pos;
+        while (pos < end) {
+            byte b = buf[pos];
+            if (b == '"') {
+                String s = new String(buf, start, pos - start, UTF_8);
+                pos++;
+                return s;
+            }
+            if (b == '\\') {
+                return readEscapedString(start);
+            }
+            pos++;
+        }
+        throw syntaxError("Unterminated string");
+    }
+
+    /**
+     * Slow path for strings containing escape sequences
+     */
+    private String readEscapedString(int start) throws JSONException {
+        StringBuilder sb = new StringBuilder(new String(buf, start, pos - start, UTF_8));
+        int runStart = pos;
+        while (pos < end) {
+            byte b = buf[pos];
+            if (b == '"') {
+                sb.append(new String(buf, runStart, pos - runStart, UTF_8));
+                pos++;
+                return sb.toString();
+            }
+            if (b != '\\') {
+                pos++;
+                continue;
+            }
+            sb.append(new String(buf, runStart, pos - runStart, UTF_8));
+            if (pos + 1 >= end) {
+                break;
+            }
+            char e = (char) buf[pos + 1];
+            pos += 2;
+            switch (e) {
+            case 'b':
+                sb.append('\b');
+                break;
+            case 't':
+                sb.append('\t');
+                break;
+            case 'n':
+                sb.append('\n');
+                break;
+            case 'f':
+                sb.append('\f');
+                break;
+            case 'r':
+                sb.append('\r');
+                break;
+            case 'u':
+                if (pos + 4 > end) {
+                    throw syntaxError("Illegal escape");
+                }
+                try {
+                    sb.append((char) Integer.parseInt(new String(buf, pos, 4, UTF_8), 16));
+                } catch (NumberFormatException ex) {
+                    throw syntaxError("Illegal escape");
+                }
+                pos += 4;
+                break;
+            case '"':
+            case '\\':
+            case '/':
+                sb.append(e);
+                break;
+            default:
+                throw syntaxError("Illegal escape");
+            }
+            runStart = pos;
+        }
+        throw syntaxError("Unterminated string");
+    }
+
+    private void skipString() throws JSONException {
+        pos++; // opening quote
+        while (pos < end) {
+            byte b = buf[pos++];
+            if (b == '\\') {
+                pos++;
+            } else if (b == '"') {
+                return;
+            }
+        }
+        throw syntaxError("Unterminated string");
+    }
+
+    private String readLiteral() throws JSONException {
+        int start = pos;
+        while (pos < end) {
+            byte b = buf[pos];
+            if (b == ',' || b == '}' || b == ']' || b == ':' || isWhitespace(b)) {
+                break;
+            }
+            pos++;
+        }
+        if (pos == start) {
+            throw syntaxError("Missing value");
+        }
+        return new String(buf, start, pos - start, UTF_8);
+    }
+
+    private char peekChar() throws JSONException {
+        while (pos < end && isWhitespace(buf[pos])) {
+            pos++;
+        }
+        if (pos >= end) {
+            throw syntaxError("Unexpected end of input");
+        }
+        return (char) buf[pos];
+    }
+
+    private void consume(char expected) throws JSONException {
+        if (peekChar() != expected) {
+            throw syntaxError("Expected '" + expected + "'");
+        }
+        pos++;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private JSONException syntaxError(String message) {
+        return new JSONException(message + " at character " + pos);
+    }
+}
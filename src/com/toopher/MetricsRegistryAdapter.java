@@ -0,0 +1,130 @@
+package com.toopher;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Publishes {@link RequestMetrics} and connection pool utilization to a metrics registry as gauges
+ * <p>
+ * The adapter doesn't depend on any metrics library.  Instead, it hands each gauge to a {@link GaugeRegistrar},
+ * which is typically a line of code for the registry in use.  For example, with Micrometer:
+ *
+ * <pre>
+ * MetricsRegistryAdapter.bind(metrics, api, (name, tags, value) -&gt; Gauge.builder(name, value::getAsDouble)
+ *         .tags(tags.entrySet().stream().map(e -&gt; Tag.of(e.getKey(), e.getValue())).collect(Collectors.toList()))
+ *         .register(meterRegistry));
+ * </pre>
+ *
+ * The gauges published are, for each endpoint:
+ * <ul>
+ * <li>toopher.requests, toopher.requests.in_flight and toopher.retries</li>
+ * <li>toopher.errors, tagged with the error category</li>
+ * <li>toopher.request.seconds, tagged with the phase ("total" for the whole request) and the statistic: count,
+ * mean, p50, p90, p99 or max</li>
+ * <li>toopher.response.bytes, tagged with the statistic</li>
+ * </ul>
+ * and for the connection pools: toopher.pool.leased, toopher.pool.pending, toopher.pool.max and
+ * toopher.pool.utilization.
+ *
+ */
+public final class MetricsRegistryAdapter {
+
+    /**
+     * Registers a gauge with a metrics registry
+     */
+    public interface GaugeRegistrar {
+
+        /**
+         * @param name
+         *            The name of the gauge
+         * @param tags
+         *            The gauge's tags, in a fixed order
+         * @param value
+         *            Supplies the gauge's current value whenever the registry reads it
+         */
+        void register(String name, Map<String, String> tags, DoubleSupplier value);
+    }
+
+    private MetricsRegistryAdapter() {
+    }
+
+    /**
+     * Register gauges for request metrics and connection pool utilization
+     *
+     * @param metrics
+     *            The metrics installed on the API object
+     * @param api
+     *            The API object whose connection pools are reported, or null to report only request metrics
+     * @param registrar
+     *            Registers each gauge with the registry
+     */
+    public static void bind(RequestMetrics metrics, final ToopherAPI api, GaugeRegistrar registrar) {
+        for (RequestTrace.Endpoint endpoint : RequestTrace.Endpoint.values()) {
+            final RequestMetrics.EndpointMetrics endpointMetrics = metrics.get(endpoint);
+            String endpointName = endpoint.name().toLowerCase();
+            Map<String, String> endpointTags = tags("endpoint", endpointName);
+
+            registrar.register("toopher.requests", endpointTags, () -> endpointMetrics.getRequests());
+            registrar.register("toopher.requests.in_flight", endpointTags, () -> endpointMetrics.getInFlight());
+            registrar.register("toopher.retries", endpointTags, () -> endpointMetrics.getRetries());
+            for (final RequestTrace.ErrorCategory category : RequestTrace.ErrorCategory.values()) {
+                registrar.register("toopher.errors",
+                                   tags("endpoint", endpointName, "category", category.name().toLowerCase()),
+                                   () -> endpointMetrics.getErrors(category));
+            }
+
+            bindHistogram(registrar, "toopher.request.seconds", endpointName, "total", endpointMetrics.getLatency(),
+                          NANOS_PER_SECOND);
+            for (RequestTrace.Phase phase : RequestTrace.Phase.values()) {
+                bindHistogram(registrar, "toopher.request.seconds", endpointName, phase.name().toLowerCase(),
+                              endpointMetrics.getLatency(phase), NANOS_PER_SECOND);
+            }
+            bindHistogram(registrar, "toopher.response.bytes", endpointName, null, endpointMetrics.getResponseBytes(),
+                          1);
+        }
+
+        if (api == null) {
+            return;
+        }
+        registrar.register("toopher.pool.leased", tags(), () -> api.getLeasedConnections());
+        registrar.register("toopher.pool.pending", tags(), () -> api.getPendingConnections());
+        registrar.register("toopher.pool.max", tags(), () -> api.getMaxConnections());
+        registrar.register("toopher.pool.utilization", tags(), () -> {
+            int max = api.getMaxConnections();
+            return max == 0 ? 0 : (double) api.getLeasedConnections() / max;
+        });
+    }
+
+    private static void bindHistogram(GaugeRegistrar registrar, String name, String endpointName, String phaseName,
+                                      final Histogram histogram, final double scale) {
+        registrar.register(name, histogramTags(endpointName, phaseName, "count"), () -> histogram.getCount());
+        registrar.register(name, histogramTags(endpointName, phaseName, "mean"), () -> histogram.getMean() / scale);
+        registrar.register(name, histogramTags(endpointName, phaseName, "max"), () -> histogram.getMax() / scale);
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            final double percentile = PERCENTILES[i];
+            registrar.register(name, histogramTags(endpointName, phaseName, PERCENTILE_NAMES[i]),
+                               () -> histogram.getPercentile(percentile) / scale);
+        }
+    }
+
+    private static Map<String, String> histogramTags(String endpointName, String phaseName, String statistic) {
+        if (phaseName == null) {
+            return tags("endpoint", endpointName, "statistic", statistic);
+        }
+        return tags("endpoint", endpointName, "phase", phaseName, "statistic", statistic);
+    }
+
+    private static Map<String, String> tags(String... keysAndValues) {
+        Map<String, String> tags = new LinkedHashMap<String, String>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            tags.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return Collections.unmodifiableMap(tags);
+    }
+
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final double[] PERCENTILES = { 0.5, 0.9, 0.99 };
+    private static final String[] PERCENTILE_NAMES = { "p50", "p90", "p99" };
+}
@@ -0,0 +1,281 @@
+package com.toopher;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.URLEncodedUtils;
+
+/**
+ * Signs requests with two-legged OAuth 1.0a HMAC-SHA1, producing the same Authorization header as the signpost
+ * library's CommonsHttpOAuthConsumer
+ * <p>
+ * The signing key is prepared once, and initialized Mac instances are pooled and reused, so signing a request
+ * only hashes its signature base string.  Form parameters are signed from the list that builds the request body,
+ * without reading the body back.
+ *
+ */
+public class OAuthRequestSigner implements RequestSigner {
+    private static final String SIGNATURE_METHOD = "HMAC-SHA1";
+    private static final String OAUTH_VERSION = "1.0";
+    private static final String MAC_ALGORITHM = "HmacSHA1";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    /**
+     * Create a signer for a requester
+     * 
+     * @param consumerKey
+     *            The consumer key for a requester (obtained from the developer portal)
+     * @param consumerSecret
+     *            The consumer secret for a requester (obtained from the developer portal)
+     */
+    public OAuthRequestSigner(String consumerKey, String consumerSecret) {
+        this.encodedConsumerKey = percentEncode(consumerKey);
+        byte[] key = (percentEncode(consumerSecret) + "&").getBytes(UTF_8);
+        try {
+            prototypeMac = Mac.getInstance(MAC_ALGORITHM);
+            prototypeMac.init(new SecretKeySpec(key, MAC_ALGORITHM));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA1 is not available", e);
+        }
+    }
+
+    @Override
+    public String sign(String method, URI uri, List<NameValuePair> formParameters) throws RequestError {
+        return sign(method, uri, formParameters, Long.toString(ThreadLocalRandom.current().nextLong()), timestamp());
+    }
+
+    /**
+     * Sign with a given nonce and timestamp
+     */
+    String sign(String method, URI uri, List<NameValuePair> formParameters, String nonce, String timestamp)
+            throws RequestError {
+        String encodedNonce = percentEncode(nonce);
+        String encodedTimestamp = percentEncode(timestamp);
+
+        String[][] parameters = collectParameters(uri, formParameters, encodedNonce, encodedTimestamp);
+        StringBuilder normalized = new StringBuilder(256);
+        String[] previous = null;
+        for (String[] parameter : parameters) {
+            if (previous != null && previous[0].equals(parameter[0]) && previous[1].equals(parameter[1])) {
+                // signpost keeps parameter values in a set, so exact duplicates are signed once
+                continue;
+            }
+            if (normalized.length() > 0) {
+                normalized.append('&');
+            }
+            normalized.append(parameter[0]).append('=').append(parameter[1]);
+            previous = parameter;
+        }
+
+        StringBuilder baseString = new StringBuilder(512);
+        baseString.append(method).append('&').append(percentEncode(normalizeUrl(uri))).append('&')
+                .append(percentEncode(normalized.toString()));
+
+        String signature = percentEncode(hmac(baseString.toString()));
+
+        StringBuilder header = new StringBuilder(256);
+        header.append("OAuth oauth_consumer_key=\"").append(encodedConsumerKey)
+                .append("\", oauth_nonce=\"").append(encodedNonce)
+                .append("\", oauth_signature=\"").append(signature)
+                .append("\", oauth_signature_method=\"").append(SIGNATURE_METHOD)
+                .append("\", oauth_timestamp=\"").append(encodedTimestamp)
+                .append("\", oauth_version=\"").append(OAUTH_VERSION).append('"');
+        return header.toString();
+    }
+
+    /**
+     * Collect the percent-encoded parameters that take part in the signature, sorted by name and then value
+     * <p>
+     * As in signpost, parameters without a value are not signed, and form parameters replace all query
+     * parameters of the same name.
+     */
+    private String[][] collectParameters(URI uri, List<NameValuePair> formParameters, String encodedNonce,
+                                         String encodedTimestamp) {
+        List<NameValuePair> queryParameters = uri.getRawQuery() == null ? Collections.<NameValuePair> emptyList()
+                : URLEncodedUtils.parse(uri, "UTF-8");
+        int formCount = formParameters == null ? 0 : formParameters.size();
+
+        String[][] parameters = new String[5 + formCount + queryParameters.size()][];
+        int n = 0;
+        parameters[n++] = new String[] { "oauth_consumer_key", encodedConsumerKey };
+        parameters[n++] = new String[] { "oauth_nonce", encodedNonce };
+        parameters[n++] = new String[] { "oauth_signature_method", SIGNATURE_METHOD };
+        parameters[n++] = new String[] { "oauth_timestamp", encodedTimestamp };
+        parameters[n++] = new String[] { "oauth_version", OAUTH_VERSION };
+        for (int i = 0; i < formCount; i++) {
+            NameValuePair pair = formParameters.get(i);
+            if (pair.getValue() != null) {
+                parameters[n++] = new String[] { encodeFormValue(pair.getName()), encodeFormValue(pair.getValue()) };
+            }
+        }
+        for (NameValuePair pair : queryParameters) {
+            if (pair.getValue() != null && !hasName(formParameters, pair.getName())) {
+                parameters[n++] = new String[] { percentEncode(pair.getName()), percentEncode(pair.getValue()) };
+            }
+        }
+
+        if (n < parameters.length) {
+            parameters = Arrays.copyOf(parameters, n);
+        }
+        Arrays.sort(parameters, PARAMETER_ORDER);
+        return parameters;
+    }
+
+    private static boolean hasName(List<NameValuePair> parameters, String name) {
+        if (parameters == null) {
+            return false;
+        }
+        for (NameValuePair pair : parameters) {
+            if (pair.getName().equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String hmac(String baseString) {
+        Mac mac = macPool.poll();
+        if (mac == null) {
+            try {
+                mac = (Mac) prototypeMac.clone();
+            } catch (CloneNotSupportedException e) {
+                throw new IllegalStateException("HMAC-SHA1 provider does not support cloning", e);
+            }
+        }
+        try {
+            return Base64.getEncoder().encodeToString(mac.doFinal(baseString.getBytes(UTF_8)));
+        } finally {
+            macPool.offer(mac);
+        }
+    }
+
+    /**
+     * The request URL normalized as for the signature base string: lower-case scheme and authority, default port
+     * omitted, no query
+     */
+    private static String normalizeUrl(URI uri) {
+        String scheme = uri.getScheme().toLowerCase(Locale.ENGLISH);
+        String authority = uri.getRawAuthority().toLowerCase(Locale.ENGLISH);
+        if ((uri.getPort() == 80 && "http".equals(scheme)) || (uri.getPort() == 443 && "https".equals(scheme))) {
+            authority = authority.substring(0, authority.lastIndexOf(':'));
+        }
+        String path = uri.getRawPath();
+        if (path == null || path.length() == 0) {
+            path = "/";
+        }
+        return scheme + "://" + authority + path;
+    }
+
+    /**
+     * Encode a form parameter as signpost sees it.  The request body is form-encoded as ISO-8859-1 and signpost
+     * decodes it as UTF-8 before signing, so non-ASCII values go through the same round trip to sign identically.
+     */
+    private static String encodeFormValue(String value) {
+        if (value == null) {
+            return "";
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                try {
+                    String formEncoded = URLEncoder.encode(value, ISO_8859_1.name());
+                    return percentEncode(URLDecoder.decode(formEncoded, UTF_8.name()));
+                } catch (UnsupportedEncodingException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        return percentEncode(value);
+    }
+
+    /**
+     * RFC 3986 percent-encoding, as required by OAuth
+     */
+    static String percentEncode(String s) {
+        if (s == null) {
+            return "";
+        }
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (!isUnreserved(c)) {
+                return percentEncodeFrom(s, i);
+            }
+        }
+        return s;
+    }
+
+    private static String percentEncodeFrom(String s, int firstReserved) {
+        StringBuilder sb = new StringBuilder(s.length() + 16);
+        sb.append(s, 0, firstReserved);
+        for (byte b : s.substring(firstReserved).getBytes(UTF_8)) {
+            char c = (char) (b & 0xff);
+            if (isUnreserved(c)) {
+                sb.append(c);
+            } else {
+                sb.append('%').append(HEX_DIGITS[(b >> 4) & 0x0f]).append(HEX_DIGITS[b & 0x0f]);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+
+    /**
+     * The current time in seconds, formatted once per second rather than once per request
+     */
+    private String timestamp() {
+        long seconds = System.currentTimeMillis() / 1000L;
+        CachedTimestamp cached = cachedTimestamp;
+        if (cached == null || cached.seconds != seconds) {
+            cached = new CachedTimestamp(seconds);
+            cachedTimestamp = cached;
+        }
+        return cached.text;
+    }
+
+    private static final class CachedTimestamp {
+        final long seconds;
+        final String text;
+
+        CachedTimestamp(long seconds) {
+            this.seconds = seconds;
+            this.text = Long.toString(seconds);
+        }
+    }
+
+    private static final Comparator<String[]> PARAMETER_ORDER = new Comparator<String[]>() {
+
+        @Override
+        public int compare(String[] a, String[] b) {
+            int result = a[0].compareTo(b[0]);
+            return result != 0 ? result : a[1].compareTo(b[1]);
+        }
+    };
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private final String encodedConsumerKey;
+    private final Mac prototypeMac;
+    private final ConcurrentLinkedQueue<Mac> macPool = new ConcurrentLinkedQueue<Mac>();
+    private volatile CachedTimestamp cachedTimestamp;
+}
@@ -0,0 +1,19 @@
+package com.toopher;
+
+/**
+ * The pairing has been deactivated, so the user must pair again before they can be authenticated
+ *
+ */
+public class PairingDeactivatedError extends ApiError {
+
+    /**
+     * The Toopher error code for this error
+     */
+    public static final int ERROR_CODE = 601;
+
+    PairingDeactivatedError(int statusCode, String errorMessage, Throwable cause) {
+        super(statusCode, ERROR_CODE, errorMessage, cause);
+    }
+
+    private static final long serialVersionUID = 2463382631953L;
+}
@@ -0,0 +1,812 @@
+package com.toopher;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * A durable local index of pairings, keyed by pairing ID and by user name, so that services can find a user's
+ * pairing without a request to the API
+ * <p>
+ * Pairings are stored in an append-only log, and found through a hash table in a memory-mapped file that points
+ * into the log.  A lookup reads one record from the log and takes a few microseconds.  The log is the record of
+ * truth: if the process stops between writing the log and updating the table, the table is brought up to date from
+ * the log when the index is next opened, and a torn record at the end of the log is dropped.  Writes reach the
+ * operating system at once, but are only forced to disk by {@link #flush()} and {@link #close()}; pairings lost to
+ * a crash of the machine are fetched from the API again.
+ * <p>
+ * Given to a ToopherAPI object with {@link ToopherAPI#setPairingIndex(PairingIndex)}, the index is kept up to date
+ * by {@link ToopherAPI#pair(String, String)} and {@link ToopherAPI#getPairingStatus(String)}, and status lookups
+ * are answered from it until the time-to-live passes.  Pending pairings are not stored, as they change as soon as
+ * the user answers.  A lookup answered during the refresh-ahead window at the end of the time-to-live also starts a
+ * refresh in the background, so pairings in regular use never expire.
+ * <p>
+ * The log only grows when a pairing changes; use {@link #compact()} to drop the records that have been replaced.
+ * Only one PairingIndex may have a directory open at a time.
+ *
+ */
+public class PairingIndex implements Closeable {
+
+    /**
+     * Open the index in a directory, creating it if it doesn't exist
+     *
+     * @param directory
+     *            The directory holding the log and the table
+     * @param ttlMillis
+     *            How long a stored pairing answers status lookups without a request to the API.  A pairing disabled
+     *            or deactivated outside the ToopherAPI object using the index is reported as stored until then.
+     * @param refreshAheadMillis
+     *            How long before the time-to-live passes a lookup starts a background refresh, or 0 for none
+     * @throws IOException
+     *             If the files can't be read or created
+     */
+    public PairingIndex(File directory, long ttlMillis, long refreshAheadMillis) throws IOException {
+        if (ttlMillis < 0 || refreshAheadMillis < 0 || refreshAheadMillis > ttlMillis) {
+            throw new IllegalArgumentException(
+                    "The time-to-live must not be negative, and the refresh-ahead window must not be longer");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+        this.directory = directory;
+        this.ttlMillis = ttlMillis;
+        this.refreshAheadMillis = refreshAheadMillis;
+        state = open(directory);
+    }
+
+    /**
+     * @param pairingId
+     *            The unique id for a pairing
+     * @return The stored pairing, however long ago it was stored, or null if there is none
+     */
+    public PairingStatus get(String pairingId) throws IOException {
+        Entry entry = lookup(pairingId);
+        return entry == null ? null : entry.status;
+    }
+
+    /**
+     * @param userName
+     *            The user name given when pairing
+     * @return The user's most recently stored enabled pairing, or their most recent pairing if none is enabled, or
+     *         null if there is none or the one found by the user name was removed
+     */
+    public PairingStatus getByUserName(String userName) throws IOException {
+        lock.readLock().lock();
+        try {
+            State state = checkOpen();
+            int slot = state.find(USER_NAME, userName);
+            return slot < 0 ? null : state.readRecord(state.offsetAt(slot)).status;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Store a pairing, replacing the one with the same ID.  It becomes the pairing found by its user name unless
+     * it is disabled and the user has another pairing.
+     *
+     * @param status
+     *            The pairing
+     */
+    public void put(PairingStatus status) throws IOException {
+        put(status, System.currentTimeMillis());
+    }
+
+    /**
+     * Forget a pairing, for example one that has been deactivated
+     *
+     * @param pairingId
+     *            The unique id for a pairing
+     * @return true if the pairing was stored
+     */
+    public boolean remove(String pairingId) throws IOException {
+        lock.writeLock().lock();
+        try {
+            State state = checkOpen();
+            if (state.find(PAIRING_ID, pairingId) < 0) {
+                return false;
+            }
+            state.append(removeRecord(pairingId));
+            state.removePairing(pairingId);
+            state.commit();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return The number of pairings stored
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return state == null ? 0 : state.pairings;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrite the log with only the current pairings, and rebuild the table
+     */
+    public void compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            State old = checkOpen();
+            File compactedLog = new File(directory, LOG_FILE + ".compact");
+            State compacted = State.create(compactedLog, new File(directory, INDEX_FILE + ".compact"),
+                                           old.generation + 1, capacityFor(old.pairings));
+            try {
+                for (int slot = 0; slot < old.capacity; slot++) {
+                    long offset = old.offsetAt(slot);
+                    if (!isPairingId(old.hashAt(slot)) || offset < 0) {
+                        continue;
+                    }
+                    PairingStatus status = old.readRecord(offset).status;
+                    long storedAtMillis = old.storedAtMillisAt(slot);
+                    long newOffset = compacted.append(putRecord(status, storedAtMillis));
+                    compacted.upsert(PAIRING_ID, status.getId(), newOffset, storedAtMillis);
+                    // keep the pairing each user name finds
+                    int userSlot = old.find(USER_NAME, status.getUserName());
+                    if (userSlot >= 0 && old.offsetAt(userSlot) == offset) {
+                        compacted.upsert(USER_NAME, status.getUserName(), newOffset, storedAtMillis);
+                    }
+                }
+                compacted.commit();
+                compacted.force();
+            } catch (IOException e) {
+                compacted.close();
+                throw e;
+            }
+            state = null;
+            try {
+                old.close();
+                compacted.close();
+                // the new log goes first; a table from another generation is rebuilt from the log when opened
+                Files.move(compactedLog.toPath(), new File(directory, LOG_FILE).toPath(),
+                           StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Files.move(new File(directory, INDEX_FILE + ".compact").toPath(),
+                           new File(directory, INDEX_FILE).toPath(), StandardCopyOption.REPLACE_EXISTING,
+                           StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                // whichever files a failed move left in place, they open as a consistent index
+                state = open(directory);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Force the log and the table to disk
+     */
+    public void flush() throws IOException {
+        lock.writeLock().lock();
+        try {
+            checkOpen().force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Force the log and the table to disk and close them
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (state != null) {
+                state.force();
+                state.close();
+                state = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return The stored pairing and when it was stored, or null if there is none
+     */
+    Entry lookup(String pairingId) throws IOException {
+        lock.readLock().lock();
+        try {
+            State state = checkOpen();
+            int slot = state.find(PAIRING_ID, pairingId);
+            if (slot < 0) {
+                return null;
+            }
+            Entry entry = state.readRecord(state.offsetAt(slot));
+            return new Entry(entry.status, state.storedAtMillisAt(slot));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void put(PairingStatus status, long nowMillis) throws IOException {
+        lock.writeLock().lock();
+        try {
+            State state = checkOpen();
+            state.store(status, nowMillis);
+            state.commit();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return true if a stored pairing may no longer answer status lookups
+     */
+    boolean isExpired(Entry entry, long nowMillis) {
+        return nowMillis - entry.storedAtMillis >= ttlMillis;
+    }
+
+    /**
+     * Claim the refresh of a pairing that is in its refresh-ahead window
+     *
+     * @return true if the caller should refresh the pairing and then call {@link #endRefresh(String)}
+     */
+    boolean startRefresh(Entry entry, long nowMillis) {
+        if (refreshAheadMillis == 0 || nowMillis - entry.storedAtMillis < ttlMillis - refreshAheadMillis) {
+            return false;
+        }
+        return refreshing.add(entry.status.getId());
+    }
+
+    void endRefresh(String pairingId) {
+        refreshing.remove(pairingId);
+    }
+
+    private State checkOpen() throws IOException {
+        if (state == null) {
+            throw new IOException("The pairing index has been closed");
+        }
+        return state;
+    }
+
+    private static State open(File directory) throws IOException {
+        File log = new File(directory, LOG_FILE);
+        File index = new File(directory, INDEX_FILE);
+        if (log.length() == 0) {
+            return State.create(log, index, 1, INITIAL_CAPACITY);
+        }
+        return State.recover(log, index);
+    }
+
+    private static boolean isPairingId(long hash) {
+        return (hash & 1) != 0;
+    }
+
+    /**
+     * @return A power of two at least twice the number of keys the pairings need
+     */
+    private static int capacityFor(int pairings) {
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < 4 * pairings) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * A 64-bit hash of a key, odd for pairing IDs and even but never {@link #EMPTY} for user names
+     */
+    static long hash(byte kind, String key) {
+        // FNV-1a over the kind and the characters, then a finalizer to spread the bits across the table
+        long h = 0xcbf29ce484222325L;
+        h = (h ^ kind) * 0x100000001b3L;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        if (kind == PAIRING_ID) {
+            return h | 1;
+        }
+        h &= ~1L;
+        return h == EMPTY ? 2 : h;
+    }
+
+    private static byte[] putRecord(PairingStatus status, long storedAtMillis) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(PUT);
+        out.writeLong(storedAtMillis);
+        out.writeUTF(status.getId());
+        out.writeUTF(status.getUserId());
+        out.writeUTF(status.getUserName());
+        out.writeBoolean(status.isEnabled());
+        out.writeBoolean(status.isPending());
+        return bytes.toByteArray();
+    }
+
+    private static byte[] removeRecord(String pairingId) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(48);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(REMOVE);
+        out.writeUTF(pairingId);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * A stored pairing and when it was stored
+     */
+    static final class Entry {
+        final PairingStatus status;
+        final long storedAtMillis;
+
+        Entry(PairingStatus status, long storedAtMillis) {
+            this.status = status;
+            this.storedAtMillis = storedAtMillis;
+        }
+    }
+
+    /**
+     * An open log and the table that indexes it
+     * <p>
+     * The table file starts with a header: a magic number, its capacity, the generation of the log it indexes and the
+     * length of the log it reflects.  Each slot that follows holds the hash of a key, the offset of the key's record
+     * in the log (negated, less one, once the key is removed) and when the pairing was last stored.  The file may run
+     * on past the last slot, where a larger table was once rebuilt as a smaller one.  Log records are a length, a
+     * CRC-32 and the record.
+     */
+    private static final class State {
+        final RandomAccessFile logFile;
+        final FileChannel log;
+        final RandomAccessFile indexFile;
+        MappedByteBuffer table;
+        final long generation;
+        int capacity;
+        int used;
+        int pairings;
+        long logLength;
+
+        private State(RandomAccessFile logFile, RandomAccessFile indexFile, long generation)
+                throws IOException {
+            this.logFile = logFile;
+            this.log = logFile.getChannel();
+            this.indexFile = indexFile;
+            this.generation = generation;
+            FileLock lock;
+            try {
+                lock = log.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            if (lock == null) {
+                close();
+                throw new IOException("The pairing index is already open");
+            }
+        }
+
+        static State create(File logPath, File indexPath, long generation, int capacity) throws IOException {
+            State state = new State(new RandomAccessFile(logPath, "rw"), new RandomAccessFile(indexPath, "rw"),
+                                    generation);
+            state.log.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_BYTES);
+            header.putInt(LOG_MAGIC).putLong(generation).flip();
+            state.log.write(header, 0);
+            state.logLength = LOG_HEADER_BYTES;
+            state.mapTable(capacity);
+            state.commit();
+            return state;
+        }
+
+        /**
+         * Open an existing log, and bring its table up to date or rebuild it
+         */
+        static State recover(File logPath, File indexPath) throws IOException {
+            RandomAccessFile logFile = new RandomAccessFile(logPath, "rw");
+            ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_BYTES);
+            logFile.getChannel().read(header, 0);
+            header.flip();
+            if (header.remaining() < LOG_HEADER_BYTES || header.getInt() != LOG_MAGIC) {
+                logFile.close();
+                throw new IOException(logPath + " is not a pairing log");
+            }
+            long generation = header.getLong();
+
+            State state = new State(logFile, new RandomAccessFile(indexPath, "rw"), generation);
+            if (!state.loadTable()) {
+                state.logLength = LOG_HEADER_BYTES;
+                state.pairings = 0;
+                state.used = 0;
+                state.mapTable(INITIAL_CAPACITY);
+            }
+            state.replay();
+            state.commit();
+            return state;
+        }
+
+        /**
+         * Map the table file as it was left
+         *
+         * @return false if the table is missing, damaged or indexes another log
+         */
+        private boolean loadTable() throws IOException {
+            if (indexFile.length() < TABLE_HEADER_BYTES) {
+                return false;
+            }
+            MappedByteBuffer header = indexFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0,
+                                                                 TABLE_HEADER_BYTES);
+            int capacity = header.getInt(4);
+            long length = header.getLong(16);
+            if (header.getInt(0) != TABLE_MAGIC || header.getLong(8) != generation || Integer.bitCount(capacity) != 1
+                    || indexFile.length() < TABLE_HEADER_BYTES + (long) capacity * SLOT_BYTES
+                    || length < LOG_HEADER_BYTES || length > log.size()) {
+                return false;
+            }
+            this.capacity = capacity;
+            this.table = indexFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0,
+                                                    TABLE_HEADER_BYTES + (long) capacity * SLOT_BYTES);
+            this.logLength = length;
+            this.used = 0;
+            this.pairings = 0;
+            for (int slot = 0; slot < capacity; slot++) {
+                long hash = hashAt(slot);
+                if (hash != EMPTY) {
+                    used++;
+                    if (isPairingId(hash) && offsetAt(slot) >= 0) {
+                        pairings++;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Apply the records written after the table was last committed, dropping a torn record at the end
+         */
+        private void replay() throws IOException {
+            long end = log.size();
+            while (logLength < end) {
+                byte[] record = readRecordBytes(logLength, end);
+                if (record == null) {
+                    log.truncate(logLength);
+                    break;
+                }
+                long offset = logLength;
+                logLength += RECORD_HEADER_BYTES + record.length;
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+                if (in.readByte() == PUT) {
+                    long storedAtMillis = in.readLong();
+                    index(decodeStatus(in), offset, storedAtMillis);
+                } else {
+                    removePairing(in.readUTF());
+                }
+            }
+        }
+
+        /**
+         * Store a pairing, appending a record only if it differs from the stored one
+         */
+        void store(PairingStatus status, long storedAtMillis) throws IOException {
+            int slot = find(PAIRING_ID, status.getId());
+            if (slot >= 0 && readRecord(offsetAt(slot)).status.equals(status)) {
+                table.putLong(slotPosition(slot) + 16, storedAtMillis);
+                int userSlot = find(USER_NAME, status.getUserName());
+                if (userSlot >= 0 && offsetAt(userSlot) == offsetAt(slot)) {
+                    table.putLong(slotPosition(userSlot) + 16, storedAtMillis);
+                }
+                return;
+            }
+            long offset = append(putRecord(status, storedAtMillis));
+            index(status, offset, storedAtMillis);
+        }
+
+        /**
+         * Point the pairing's ID at a record, and its user name too unless that would hide an enabled pairing behind
+         * a disabled one
+         */
+        private void index(PairingStatus status, long offset, long storedAtMillis) throws IOException {
+            upsert(PAIRING_ID, status.getId(), offset, storedAtMillis);
+            int userSlot = find(USER_NAME, status.getUserName());
+            PairingStatus found = userSlot < 0 ? null : readRecord(offsetAt(userSlot)).status;
+            if (found == null || status.isEnabled() || !found.isEnabled() || found.getId().equals(status.getId())) {
+                upsert(USER_NAME, status.getUserName(), offset, storedAtMillis);
+            }
+        }
+
+        /**
+         * Remove a pairing's ID, and its user name if that finds it
+         */
+        void removePairing(String pairingId) throws IOException {
+            int slot = find(PAIRING_ID, pairingId);
+            if (slot < 0) {
+                return;
+            }
+            long offset = offsetAt(slot);
+            remove(slot);
+            int userSlot = find(USER_NAME, readRecord(offset).status.getUserName());
+            if (userSlot >= 0 && offsetAt(userSlot) == offset) {
+                remove(userSlot);
+            }
+        }
+
+        /**
+         * Point a key at a record, adding the key if it is not in the table
+         */
+        void upsert(byte kind, String key, long offset, long storedAtMillis) throws IOException {
+            if (used + 1 > capacity / 2) {
+                grow();
+            }
+            long hash = hash(kind, key);
+            int reusable = -1;
+            int slot = home(hash);
+            while (hashAt(slot) != EMPTY) {
+                if (hashAt(slot) == hash) {
+                    long existing = offsetAt(slot);
+                    if (matches(kind, key, existing < 0 ? -existing - 1 : existing)) {
+                        setSlot(slot, hash, offset, storedAtMillis);
+                        if (existing < 0 && kind == PAIRING_ID) {
+                            pairings++;
+                        }
+                        return;
+                    }
+                }
+                if (reusable < 0 && offsetAt(slot) < 0) {
+                    reusable = slot;
+                }
+                slot = (slot + 1) & (capacity - 1);
+            }
+            if (reusable >= 0) {
+                setSlot(reusable, hash, offset, storedAtMillis);
+            } else {
+                setSlot(slot, hash, offset, storedAtMillis);
+                used++;
+            }
+            if (kind == PAIRING_ID) {
+                pairings++;
+            }
+        }
+
+        /**
+         * @return The slot holding a key that hasn't been removed, or -1
+         */
+        int find(byte kind, String key) throws IOException {
+            long hash = hash(kind, key);
+            int slot = home(hash);
+            while (true) {
+                long slotHash = hashAt(slot);
+                if (slotHash == EMPTY) {
+                    return -1;
+                }
+                if (slotHash == hash) {
+                    long offset = offsetAt(slot);
+                    if (offset >= 0 && matches(kind, key, offset)) {
+                        return slot;
+                    }
+                }
+                slot = (slot + 1) & (capacity - 1);
+            }
+        }
+
+        /**
+         * @return The slot a key's probe starts from, taken from the bits of its hash above the kind of key
+         */
+        private int home(long hash) {
+            return (int) (hash >>> 1) & (capacity - 1);
+        }
+
+        /**
+         * Mark a key removed, keeping its hash so that probes for other keys pass over it
+         */
+        private void remove(int slot) {
+            table.putLong(slotPosition(slot) + 8, -offsetAt(slot) - 1);
+            if (isPairingId(hashAt(slot))) {
+                pairings--;
+            }
+        }
+
+        private boolean matches(byte kind, String key, long offset) throws IOException {
+            PairingStatus status = readRecord(offset).status;
+            return key.equals(kind == PAIRING_ID ? status.getId() : status.getUserName());
+        }
+
+        /**
+         * Double the table, dropping removed keys
+         */
+        private void grow() throws IOException {
+            int oldCapacity = capacity;
+            long[] slots = new long[oldCapacity * 3];
+            for (int slot = 0; slot < oldCapacity; slot++) {
+                slots[slot * 3] = hashAt(slot);
+                slots[slot * 3 + 1] = offsetAt(slot);
+                slots[slot * 3 + 2] = storedAtMillisAt(slot);
+            }
+            mapTable(oldCapacity * 2);
+            used = 0;
+            for (int i = 0; i < slots.length; i += 3) {
+                if (slots[i] == EMPTY || slots[i + 1] < 0) {
+                    continue;
+                }
+                int slot = home(slots[i]);
+                while (hashAt(slot) != EMPTY) {
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                setSlot(slot, slots[i], slots[i + 1], slots[i + 2]);
+                used++;
+            }
+        }
+
+        /**
+         * Map a zeroed table of the given capacity over the start of the table file
+         * <p>
+         * The file is extended if it is too small, but never truncated: a file can't be truncated while an earlier
+         * mapping of it is still live on every platform.  The committed log length is cleared first, so that a table
+         * left half rewritten by a crash is rebuilt from the log.
+         */
+        private void mapTable(int capacity) throws IOException {
+            long size = TABLE_HEADER_BYTES + (long) capacity * SLOT_BYTES;
+            if (table != null) {
+                table.putLong(16, 0);
+            }
+            if (indexFile.length() < size) {
+                indexFile.setLength(size);
+            }
+            table = indexFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            for (int position = 0; position < size; position += 8) {
+                table.putLong(position, 0);
+            }
+            table.putInt(0, TABLE_MAGIC);
+            table.putInt(4, capacity);
+            table.putLong(8, generation);
+            this.capacity = capacity;
+        }
+
+        long append(byte[] record) throws IOException {
+            CRC32 crc = new CRC32();
+            crc.update(record);
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_BYTES + record.length);
+            buffer.putInt(record.length).putInt((int) crc.getValue()).put(record).flip();
+            long offset = logLength;
+            while (buffer.hasRemaining()) {
+                log.write(buffer, offset + buffer.position());
+            }
+            logLength += buffer.limit();
+            return offset;
+        }
+
+        /**
+         * Record in the table header what it reflects, once the log and the slots have been written
+         */
+        void commit() {
+            table.putLong(16, logLength);
+        }
+
+        Entry readRecord(long offset) throws IOException {
+            byte[] record = readRecordBytes(offset, logLength);
+            if (record == null) {
+                throw new IOException("The pairing log is damaged at offset " + offset);
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+            if (in.readByte() != PUT) {
+                throw new IOException("The pairing log has no pairing at offset " + offset);
+            }
+            long storedAtMillis = in.readLong();
+            return new Entry(decodeStatus(in), storedAtMillis);
+        }
+
+        /**
+         * @return The record at an offset, or null if it runs past the end or fails its checksum
+         */
+        private byte[] readRecordBytes(long offset, long end) throws IOException {
+            if (end - offset < RECORD_HEADER_BYTES) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_READ_BYTES);
+            if (end - offset < RECORD_READ_BYTES) {
+                buffer.limit((int) (end - offset));
+            }
+            readFully(buffer, offset);
+            int length = buffer.getInt(0);
+            if (length <= 0 || length > end - offset - RECORD_HEADER_BYTES) {
+                return null;
+            }
+            byte[] record = new byte[length];
+            if (RECORD_HEADER_BYTES + length <= buffer.limit()) {
+                buffer.position(RECORD_HEADER_BYTES);
+                buffer.get(record);
+            } else {
+                readFully(ByteBuffer.wrap(record), offset + RECORD_HEADER_BYTES);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(record);
+            return (int) crc.getValue() == buffer.getInt(4) ? record : null;
+        }
+
+        private void readFully(ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (log.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of the pairing log");
+                }
+            }
+        }
+
+        private static PairingStatus decodeStatus(DataInputStream in) throws IOException {
+            return new PairingStatus.Builder()
+                    .setId(in.readUTF())
+                    .setUserId(in.readUTF())
+                    .setUserName(in.readUTF())
+                    .setEnabled(in.readBoolean())
+                    .setPending(in.readBoolean())
+                    .build();
+        }
+
+        long hashAt(int slot) {
+            return table.getLong(slotPosition(slot));
+        }
+
+        long offsetAt(int slot) {
+            return table.getLong(slotPosition(slot) + 8);
+        }
+
+        long storedAtMillisAt(int slot) {
+            return table.getLong(slotPosition(slot) + 16);
+        }
+
+        private void setSlot(int slot, long hash, long offset, long storedAtMillis) {
+            int position = slotPosition(slot);
+            table.putLong(position + 8, offset);
+            table.putLong(position + 16, storedAtMillis);
+            table.putLong(position, hash);
+        }
+
+        private static int slotPosition(int slot) {
+            return TABLE_HEADER_BYTES + slot * SLOT_BYTES;
+        }
+
+        void force() throws IOException {
+            log.force(false);
+            table.force();
+        }
+
+        void close() throws IOException {
+            logFile.close();
+            indexFile.close();
+        }
+    }
+
+    private static final String LOG_FILE = "pairings.log";
+    private static final String INDEX_FILE = "pairings.idx";
+    private static final int LOG_MAGIC = 0x54504c47;
+    // changed when keys move to other slots, so that older tables are rebuilt from the log
+    private static final int TABLE_MAGIC = 0x54504959;
+    private static final int LOG_HEADER_BYTES = 12;
+    private static final int TABLE_HEADER_BYTES = 24;
+    private static final int SLOT_BYTES = 24;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int RECORD_READ_BYTES = 256;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long EMPTY = 0;
+    private static final byte PAIRING_ID = 1;
+    private static final byte USER_NAME = 2;
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+
+    private final File directory;
+    private final long ttlMillis;
+    private final long refreshAheadMillis;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private State state;
+}
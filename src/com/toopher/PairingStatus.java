@@ -5,50 +5,226 @@ import org.json.JSONObject;
 
 /**
  * Provides information about the status of a pairing request
- * 
+ * <p>
+ * Instances are immutable.  Decoded responses keep their raw data only if
+ * {@link ToopherAPI#setRetainRawResponses(boolean)} is on.
+ *
  */
-public class PairingStatus extends ApiResponseObject {
+public final class PairingStatus extends ApiResponseObject {
+
+    /**
+     * Builds a PairingStatus, for example to stand in for the API in tests
+     */
+    public static final class Builder {
+        private String id;
+        private String userId;
+        private String userName;
+        private byte flags;
+
+        /**
+         * @param id
+         *            The unique id for the pairing request
+         * @return This builder
+         */
+        public Builder setId(String id) {
+            this.id = id;
+            return this;
+        }
+
+        /**
+         * @param userId
+         *            The unique id for the user associated with the pairing request
+         * @return This builder
+         */
+        public Builder setUserId(String userId) {
+            this.userId = userId;
+            return this;
+        }
+
+        /**
+         * @param userName
+         *            The descriptive name for the user associated with the pairing request
+         * @return This builder
+         */
+        public Builder setUserName(String userName) {
+            this.userName = userName;
+            return this;
+        }
+
+        /**
+         * @param enabled
+         *            Whether the pairing has been enabled by the user
+         * @return This builder
+         */
+        public Builder setEnabled(boolean enabled) {
+            flags = setFlag(flags, ENABLED, enabled);
+            return this;
+        }
+
+        /**
+         * @param pending
+         *            Whether the user has yet to react to the pairing request
+         * @return This builder
+         */
+        public Builder setPending(boolean pending) {
+            flags = setFlag(flags, PENDING, pending);
+            return this;
+        }
+
+        /**
+         * @return A new PairingStatus
+         * @throws IllegalStateException
+         *             If the id, user id or user name has not been set
+         */
+        public PairingStatus build() {
+            if (id == null || userId == null || userName == null) {
+                throw new IllegalStateException("A pairing status needs an id, a user id and a user name");
+            }
+            return new PairingStatus(id, userId, userName, flags, null);
+        }
+    }
+
+    private PairingStatus(String id, String userId, String userName, byte flags, byte[] body) {
+        super(body);
+        this.id = id;
+        this.userId = userId;
+        this.userName = userName;
+        this.flags = flags;
+    }
+
+    public PairingStatus(JSONObject json) throws JSONException {
+        super(json);
+
+        this.id = json.getString("id");
+
+        JSONObject user = json.getJSONObject("user");
+        this.userId = user.getString("id");
+        this.userName = user.getString("name");
+
+        byte flags = 0;
+        flags = setFlag(flags, PENDING, json.getBoolean("pending"));
+        flags = setFlag(flags, ENABLED, json.getBoolean("enabled"));
+        this.flags = flags;
+    }
+
+    /**
+     * Decode a pairing status directly from a response body
+     *
+     * @param retainRaw
+     *            Whether to keep the body as the raw response data
+     */
+    static PairingStatus decode(byte[] body, boolean retainRaw) throws JSONException {
+        String id = null, userId = null, userName = null;
+        byte flags = 0;
+        boolean hasPending = false, hasEnabled = false;
+        JsonReader reader = new JsonReader(body);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("id".equals(name)) {
+                id = reader.nextString();
+            } else if ("user".equals(name)) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String userField = reader.nextName();
+                    if ("id".equals(userField)) {
+                        userId = reader.nextString();
+                    } else if ("name".equals(userField)) {
+                        userName = reader.nextString();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else if ("pending".equals(name)) {
+                flags = setFlag(flags, PENDING, reader.nextBoolean());
+                hasPending = true;
+            } else if ("enabled".equals(name)) {
+                flags = setFlag(flags, ENABLED, reader.nextBoolean());
+                hasEnabled = true;
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (id == null || userId == null || userName == null || !hasPending || !hasEnabled) {
+            throw new JSONException("Pairing status is missing required fields");
+        }
+        return new PairingStatus(id, userId, userName, flags, retainRaw ? body : null);
+    }
+
     /**
-     * The unique id for the pairing request
+     * @return The unique id for the pairing request
      */
-    public String id;
+    public String getId() {
+        return id;
+    }
 
     /**
-     * The unique id for the user associated with the pairing request
+     * @return The unique id for the user associated with the pairing request
      */
-    public String userId;
+    public String getUserId() {
+        return userId;
+    }
 
     /**
-     * The descriptive name for the user associated with the pairing request
+     * @return The descriptive name for the user associated with the pairing request
      */
-    public String userName;
+    public String getUserName() {
+        return userName;
+    }
+
+    /**
+     * @return true if the pairing has been enabled by the user
+     */
+    public boolean isEnabled() {
+        return (flags & ENABLED) != 0;
+    }
 
     /**
-     * Indicates if the pairing has been enabled by the user
+     * @return true if the user has yet to react to the pairing request
      */
-    public boolean enabled;
+    public boolean isPending() {
+        return (flags & PENDING) != 0;
+    }
 
     /**
-     * Indicates if the user has reacted to the pairing request
+     * Two statuses are equal if all their fields are; raw response data is not compared
      */
-    public boolean pending;
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PairingStatus)) {
+            return false;
+        }
+        PairingStatus other = (PairingStatus) o;
+        return flags == other.flags && id.equals(other.id) && userId.equals(other.userId)
+                && userName.equals(other.userName);
+    }
+
+    @Override
+    public int hashCode() {
+        return ((id.hashCode() * 31 + userId.hashCode()) * 31 + userName.hashCode()) * 31 + flags;
+    }
 
     @Override
     public String toString() {
         return String.format("[PairingStatus: id=%s; userId=%s; userName=%s, pending=%b, enabled=%b]", id,
-                             userId, userName, pending, enabled);
+                             userId, userName, isPending(), isEnabled());
     }
 
-    public PairingStatus (JSONObject json) throws JSONException {
-    	super(json);
-        
-    	this.id = json.getString("id");
+    private static byte setFlag(byte flags, int flag, boolean value) {
+        return (byte) (value ? flags | flag : flags & ~flag);
+    }
 
-        JSONObject user = json.getJSONObject("user");
-        this.userId = user.getString("id");
-        this.userName = user.getString("name");
+    private static final int ENABLED = 1;
+    private static final int PENDING = 1 << 1;
 
-        this.pending = json.getBoolean("pending");
-        this.enabled = json.getBoolean("enabled");
-    }
+    private final String id;
+    private final String userId;
+    private final String userName;
+    private final byte flags;
 }
@@ -0,0 +1,100 @@
+package com.toopher;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket limiting the rate at which a ToopherAPI object sends requests
+ * <p>
+ * The bucket holds up to {@code burst} tokens and refills at {@code requestsPerSecond}.  A request that finds the
+ * bucket empty either waits for a token, if one will be available within the maximum wait, or fails immediately
+ * with a RequestError.  Waiting requests are served in order of arrival.
+ *
+ */
+public class RateLimiter {
+
+    /**
+     * Create a rate limiter that fails requests immediately when the bucket is empty
+     *
+     * @param requestsPerSecond
+     *            The sustained request rate
+     * @param burst
+     *            The number of requests that may be sent at once after an idle period
+     */
+    public RateLimiter(double requestsPerSecond, int burst) {
+        this(requestsPerSecond, burst, 0);
+    }
+
+    /**
+     * Create a rate limiter
+     *
+     * @param requestsPerSecond
+     *            The sustained request rate
+     * @param burst
+     *            The number of requests that may be sent at once after an idle period
+     * @param maxWaitMillis
+     *            How long a request may queue for a token before failing; zero to fail immediately
+     */
+    public RateLimiter(double requestsPerSecond, int burst, long maxWaitMillis) {
+        if (requestsPerSecond <= 0 || burst <= 0 || maxWaitMillis < 0) {
+            throw new IllegalArgumentException(
+                    "The rate and burst must be positive, and the maximum wait must not be negative");
+        }
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+        this.burstNanos = (burst - 1) * intervalNanos;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.nextFreeNanos = System.nanoTime();
+    }
+
+    /**
+     * Take a token, waiting for one if necessary
+     *
+     * @param deadline
+     *            The deadline of the call, or null
+     * @throws RequestError
+     *             Thrown when no token will be available within the maximum wait or before the deadline, or the
+     *             wait is interrupted
+     */
+    void acquire(Deadline deadline) throws RequestError {
+        long waitNanos = reserve(deadline);
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RequestError(e);
+            }
+        }
+    }
+
+    /**
+     * Take a token without waiting for it
+     *
+     * @param deadline
+     *            The deadline of the call, or null
+     * @return How long the caller must wait before sending its request
+     * @throws RequestError
+     *             Thrown when no token will be available within the maximum wait or before the deadline
+     */
+    long reserve(Deadline deadline) throws RequestError {
+        long now = System.nanoTime();
+        synchronized (this) {
+            // nextFreeNanos is when the bucket would next be empty; up to a burst of requests may run ahead of it
+            long next = Math.max(nextFreeNanos, now);
+            long waitNanos = next - burstNanos - now;
+            if (waitNanos > maxWaitNanos) {
+                throw new RequestError(new RejectedExecutionException("Request rate limit exceeded"));
+            }
+            if (deadline != null && waitNanos > deadline.remainingNanos()) {
+                throw Deadline.exceeded(null);
+            }
+            nextFreeNanos = next + intervalNanos;
+            return Math.max(0, waitNanos);
+        }
+    }
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final long maxWaitNanos;
+    private long nextFreeNanos;
+}
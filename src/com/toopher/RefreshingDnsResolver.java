@@ -0,0 +1,137 @@
+package com.toopher;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves host names once, then keeps the answers fresh in the background, so that only the first connection to a
+ * host waits for DNS
+ * <p>
+ * Each host is looked up again on a background thread every refresh interval, which also keeps the JVM's own
+ * address cache warm for clients that resolve names themselves.  If a lookup fails, the last answer is kept, but only
+ * for the maximum stale time: after that the host is forgotten, so that the next connection looks it up afresh and
+ * fails if the name no longer resolves.  Hosts not resolved for the idle time are forgotten too.  It needs no
+ * libraries beyond the JDK.
+ *
+ */
+class RefreshingDnsResolver {
+
+    RefreshingDnsResolver() {
+        this(REFRESH_INTERVAL_MS, IDLE_TIMEOUT_MS, MAX_STALE_MS);
+    }
+
+    /**
+     * @param refreshIntervalMillis
+     *            How often each host is looked up again
+     * @param idleTimeoutMillis
+     *            How long a host is kept fresh after it was last resolved
+     * @param maxStaleMillis
+     *            How long the last answer is kept after a successful lookup while lookups fail
+     */
+    RefreshingDnsResolver(long refreshIntervalMillis, long idleTimeoutMillis, long maxStaleMillis) {
+        this.refreshIntervalMillis = refreshIntervalMillis;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.maxStaleNanos = TimeUnit.MILLISECONDS.toNanos(maxStaleMillis);
+    }
+
+    InetAddress[] resolve(String host) throws UnknownHostException {
+        Entry entry = entries.get(host);
+        if (entry != null) {
+            entry.lastResolvedNanos = System.nanoTime();
+            return entry.addresses;
+        }
+        InetAddress[] addresses = InetAddress.getAllByName(host);
+        entries.putIfAbsent(host, new Entry(addresses));
+        startRefreshing();
+        return addresses;
+    }
+
+    /**
+     * Stop refreshing
+     */
+    synchronized void close() {
+        closed = true;
+        if (refreshTask != null) {
+            refreshTask.cancel(false);
+        }
+        entries.clear();
+    }
+
+    private synchronized void startRefreshing() {
+        if (refreshTask != null || closed) {
+            return;
+        }
+        refreshTask = Holder.EXECUTOR.scheduleWithFixedDelay(() -> refresh(), refreshIntervalMillis,
+                                                             refreshIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void refresh() {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> entry = iterator.next();
+            if (now - entry.getValue().lastResolvedNanos > idleTimeoutNanos) {
+                iterator.remove();
+                continue;
+            }
+            try {
+                entry.getValue().addresses = InetAddress.getAllByName(entry.getKey());
+                entry.getValue().lookedUpNanos = now;
+            } catch (UnknownHostException e) {
+                // keep the last answer for a while, as connections to it fail on their own if it has gone stale
+                if (now - entry.getValue().lookedUpNanos > maxStaleNanos) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private static class Entry {
+        volatile InetAddress[] addresses;
+        volatile long lastResolvedNanos = System.nanoTime();
+        // only read and written by the refresh thread, after the entry is published
+        long lookedUpNanos = lastResolvedNanos;
+
+        Entry(InetAddress[] addresses) {
+            this.addresses = addresses;
+        }
+    }
+
+    /**
+     * One daemon thread for the lookups of every resolver; they block, so they can't run on the shared scheduler
+     */
+    private static class Holder {
+        static final ScheduledExecutorService EXECUTOR = create();
+
+        private static ScheduledExecutorService create() {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread t = new Thread(r, "ToopherAPI-DNS");
+                t.setDaemon(true);
+                return t;
+            });
+            executor.setRemoveOnCancelPolicy(true);
+            return executor;
+        }
+    }
+
+    /**
+     * The JVM's default time-to-live for successful lookups
+     */
+    private static final long REFRESH_INTERVAL_MS = 30000;
+    private static final long IDLE_TIMEOUT_MS = 10 * 60 * 1000;
+    private static final long MAX_STALE_MS = 5 * 60 * 1000;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    private final long refreshIntervalMillis;
+    private final long idleTimeoutNanos;
+    private final long maxStaleNanos;
+    private ScheduledFuture<?> refreshTask;
+    private boolean closed;
+}
@@ -1,12 +1,17 @@
 package com.toopher;
 
 import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.http.client.ClientProtocolException;
 import org.json.JSONException;
 
 /**
  * Request errors from API calls
+ * <p>
+ * Errors reported by the API itself are thrown as {@link ApiError} or one of its subclasses, which carry the HTTP
+ * status and the Toopher error code and message.
  * 
  */
 public class RequestError extends Exception {
@@ -27,5 +32,24 @@ public class RequestError extends Exception {
         super("Request error", e);
     }
 
+    /**
+     * @param writableStackTrace
+     *            false to skip capturing the stack trace, for errors that are expected outcomes of a call rather than
+     *            faults in the calling code
+     */
+    protected RequestError(String message, Throwable cause, boolean writableStackTrace) {
+        super(message, cause, true, writableStackTrace);
+    }
+
+    /**
+     * @return true if the same call might succeed if it is made again later: the API could not be reached, didn't
+     *         answer in time, or the request was held back by a limiter or circuit breaker
+     */
+    public boolean isRetryable() {
+        Throwable cause = getCause();
+        return cause instanceof IOException || cause instanceof TimeoutException
+                || cause instanceof RejectedExecutionException;
+    }
+
     private static final long serialVersionUID = -1479647692976296897L;
 }
@@ -0,0 +1,143 @@
+package com.toopher;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Instrumentation that keeps latency histograms and counters for each endpoint, with no dependencies
+ * <p>
+ * Install it with {@link ToopherAPI#setInstrumentation(Instrumentation)} and read it directly, or publish it to a
+ * metrics registry with {@link MetricsRegistryAdapter}.  Histograms and counters cover every request since the
+ * object was created.
+ *
+ */
+public class RequestMetrics implements Instrumentation {
+
+    /**
+     * Create metrics with empty histograms and counters
+     */
+    public RequestMetrics() {
+        for (RequestTrace.Endpoint endpoint : RequestTrace.Endpoint.values()) {
+            endpoints.put(endpoint, new EndpointMetrics());
+        }
+    }
+
+    /**
+     * @param endpoint
+     *            An API operation
+     * @return The metrics for requests to the operation
+     */
+    public EndpointMetrics get(RequestTrace.Endpoint endpoint) {
+        return endpoints.get(endpoint);
+    }
+
+    @Override
+    public void requestStarted(RequestTrace trace) {
+        endpoints.get(trace.getEndpoint()).inFlight.increment();
+    }
+
+    @Override
+    public void requestCompleted(RequestTrace trace) {
+        EndpointMetrics metrics = endpoints.get(trace.getEndpoint());
+        metrics.inFlight.decrement();
+        metrics.requests.increment();
+        metrics.latency.record(trace.getTotalNanos());
+        for (RequestTrace.Phase phase : PHASES) {
+            metrics.phaseLatencies[phase.ordinal()].record(trace.getPhaseNanos(phase));
+        }
+        if (trace.getResponseBytes() >= 0) {
+            metrics.responseBytes.record(trace.getResponseBytes());
+        }
+        RequestTrace.ErrorCategory category = trace.getErrorCategory();
+        if (category != null) {
+            metrics.errors[category.ordinal()].increment();
+        }
+    }
+
+    @Override
+    public void requestRetried(RequestTrace.Endpoint endpoint, int attempt, RequestTrace.ErrorCategory cause) {
+        endpoints.get(endpoint).retries.increment();
+    }
+
+    /**
+     * Metrics for the requests to one API operation
+     */
+    public static final class EndpointMetrics {
+
+        private EndpointMetrics() {
+            for (int i = 0; i < phaseLatencies.length; i++) {
+                phaseLatencies[i] = new Histogram();
+            }
+            for (int i = 0; i < errors.length; i++) {
+                errors[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * @return The number of requests completed, whether they succeeded or failed
+         */
+        public long getRequests() {
+            return requests.sum();
+        }
+
+        /**
+         * @return The number of requests started and not yet completed, including those waiting for a limiter
+         */
+        public long getInFlight() {
+            return inFlight.sum();
+        }
+
+        /**
+         * @return The number of retries
+         */
+        public long getRetries() {
+            return retries.sum();
+        }
+
+        /**
+         * @param category
+         *            A category of failure
+         * @return The number of requests that failed for that reason
+         */
+        public long getErrors(RequestTrace.ErrorCategory category) {
+            return errors[category.ordinal()].sum();
+        }
+
+        /**
+         * @return The total time taken by completed requests, in nanoseconds
+         */
+        public Histogram getLatency() {
+            return latency;
+        }
+
+        /**
+         * @param phase
+         *            A phase of a request
+         * @return The time spent in the phase by requests that completed it, in nanoseconds
+         */
+        public Histogram getLatency(RequestTrace.Phase phase) {
+            return phaseLatencies[phase.ordinal()];
+        }
+
+        /**
+         * @return The sizes of response bodies, in bytes
+         */
+        public Histogram getResponseBytes() {
+            return responseBytes;
+        }
+
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder inFlight = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder[] errors = new LongAdder[RequestTrace.ErrorCategory.values().length];
+        private final Histogram latency = new Histogram();
+        private final Histogram[] phaseLatencies = new Histogram[PHASES.length];
+        private final Histogram responseBytes = new Histogram();
+    }
+
+    private static final RequestTrace.Phase[] PHASES = RequestTrace.Phase.values();
+
+    private final Map<RequestTrace.Endpoint, EndpointMetrics> endpoints =
+            new EnumMap<RequestTrace.Endpoint, EndpointMetrics>(RequestTrace.Endpoint.class);
+}
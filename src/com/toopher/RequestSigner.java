@@ -0,0 +1,29 @@
+package com.toopher;
+
+import java.net.URI;
+import java.util.List;
+
+import org.apache.http.NameValuePair;
+
+/**
+ * Produces the Authorization header that authenticates a request to the Toopher API
+ * <p>
+ * Implementations must be safe to call from many threads at once.
+ *
+ */
+public interface RequestSigner {
+    /**
+     * Sign a request
+     * 
+     * @param method
+     *            The HTTP method of the request, for example GET or POST
+     * @param uri
+     *            The absolute request URI
+     * @param formParameters
+     *            The form parameters sent in the request body, or null if the request has no body
+     * @return The value of the Authorization header to send with the request
+     * @throws RequestError
+     *             Thrown when the request cannot be signed
+     */
+    String sign(String method, URI uri, List<NameValuePair> formParameters) throws RequestError;
+}
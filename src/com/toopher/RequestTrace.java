@@ -0,0 +1,275 @@
+package com.toopher;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.http.client.HttpResponseException;
+import org.json.JSONException;
+
+/**
+ * The timeline of a single request to the API, passed to an {@link Instrumentation} as it starts and completes
+ * <p>
+ * Each attempt is traced separately, so a call that is retried or hedged produces several traces.  The phases of a
+ * request are timed back to back: a phase that was not reached, because the request failed or the transport does
+ * not report it, has no duration and its time is counted in the next phase that was reached.
+ *
+ */
+public final class RequestTrace {
+
+    /**
+     * The API operations
+     */
+    public enum Endpoint {
+        PAIR, PAIRING_STATUS, AUTHENTICATE, AUTHENTICATION_STATUS
+    }
+
+    /**
+     * The phases of a request, in order
+     */
+    public enum Phase {
+        /**
+         * Waiting for the rate limiter, the concurrency limiter and the circuit breaker
+         */
+        QUEUE,
+
+        /**
+         * Signing the request
+         */
+        SIGN,
+
+        /**
+         * Leasing a pooled connection, including connecting if none was idle
+         */
+        LEASE,
+
+        /**
+         * Sending the request and waiting for the response headers
+         */
+        FIRST_BYTE,
+
+        /**
+         * Reading the response body
+         */
+        READ,
+
+        /**
+         * Decoding the response body
+         */
+        PARSE
+    }
+
+    /**
+     * Why a request failed
+     */
+    public enum ErrorCategory {
+        /**
+         * The API answered 429 Too Many Requests
+         */
+        THROTTLED,
+
+        /**
+         * The API answered with any other 4xx status
+         */
+        CLIENT_ERROR,
+
+        /**
+         * The API answered with a 5xx status
+         */
+        SERVER_ERROR,
+
+        /**
+         * A connect or read timeout expired, or the call's deadline passed
+         */
+        TIMEOUT,
+
+        /**
+         * The request could not be sent or the response could not be read
+         */
+        CONNECTION,
+
+        /**
+         * A limiter or an open circuit breaker refused to send the request
+         */
+        REJECTED,
+
+        /**
+         * The request was abandoned, because another hedged request won or the caller cancelled it
+         */
+        CANCELLED,
+
+        /**
+         * The response could not be decoded
+         */
+        INVALID_RESPONSE,
+
+        /**
+         * Any other failure
+         */
+        OTHER;
+
+        /**
+         * @param error
+         *            A failure, possibly wrapped in a RequestError or a CompletionException
+         * @return The category of the failure
+         */
+        public static ErrorCategory of(Throwable error) {
+            while ((error instanceof RequestError || error instanceof CompletionException
+                    || error instanceof ExecutionException) && error.getCause() != null) {
+                error = error.getCause();
+            }
+            if (error instanceof HttpResponseException) {
+                int status = ((HttpResponseException) error).getStatusCode();
+                if (status == 429) {
+                    return THROTTLED;
+                }
+                return status >= 500 ? SERVER_ERROR : CLIENT_ERROR;
+            }
+            if (error instanceof TimeoutException || error instanceof InterruptedIOException
+                    || error instanceof HttpTimeoutException) {
+                // SocketTimeoutException and ConnectTimeoutException are InterruptedIOExceptions
+                return TIMEOUT;
+            }
+            if (error instanceof IOException) {
+                return CONNECTION;
+            }
+            if (error instanceof RejectedExecutionException) {
+                return REJECTED;
+            }
+            if (error instanceof CancellationException) {
+                return CANCELLED;
+            }
+            if (error instanceof JSONException) {
+                return INVALID_RESPONSE;
+            }
+            return OTHER;
+        }
+    }
+
+    private RequestTrace(Endpoint endpoint, URI uri, Instrumentation instrumentation) {
+        this.endpoint = endpoint;
+        this.uri = uri;
+        this.instrumentation = instrumentation;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Start tracing a request and report it to the instrumentation
+     */
+    static RequestTrace start(Endpoint endpoint, URI uri, Instrumentation instrumentation) {
+        RequestTrace trace = new RequestTrace(endpoint, uri, instrumentation);
+        instrumentation.requestStarted(trace);
+        return trace;
+    }
+
+    /**
+     * @return The operation requested
+     */
+    public Endpoint getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * @return The URI requested, which identifies the pairing or authentication request for status lookups
+     */
+    public URI getUri() {
+        return uri;
+    }
+
+    /**
+     * @param phase
+     *            A phase of the request
+     * @return The time spent in the phase in nanoseconds, or -1 if the request did not complete the phase
+     */
+    public long getPhaseNanos(Phase phase) {
+        int i = phase.ordinal();
+        if (phaseEndNanos[i] == 0) {
+            return -1;
+        }
+        long phaseStart = startNanos;
+        for (int j = i - 1; j >= 0; j--) {
+            if (phaseEndNanos[j] != 0) {
+                phaseStart = phaseEndNanos[j];
+                break;
+            }
+        }
+        return phaseEndNanos[i] - phaseStart;
+    }
+
+    /**
+     * @return The time from the start of the request until it completed, in nanoseconds, or -1 if it has not
+     *         completed
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * @return The size of the response body in bytes, or -1 if no body was read
+     */
+    public int getResponseBytes() {
+        return responseBytes;
+    }
+
+    /**
+     * @return The failure, or null if the request succeeded or has not completed
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * @return The category of the failure, or null if the request succeeded or has not completed
+     */
+    public ErrorCategory getErrorCategory() {
+        return error == null ? null : ErrorCategory.of(error);
+    }
+
+    /**
+     * Record the end of a phase.  Only the first end recorded for a phase is kept.
+     */
+    void mark(Phase phase) {
+        int i = phase.ordinal();
+        if (phaseEndNanos[i] == 0) {
+            phaseEndNanos[i] = System.nanoTime();
+        }
+    }
+
+    /**
+     * Record that the response body has been read
+     */
+    void responseRead(int bytes) {
+        mark(Phase.READ);
+        responseBytes = bytes;
+    }
+
+    /**
+     * Complete the trace and report it to the instrumentation.  Later calls are ignored.
+     *
+     * @param failure
+     *            The failure, or null if the request succeeded
+     */
+    void complete(Throwable failure) {
+        if (totalNanos >= 0) {
+            return;
+        }
+        totalNanos = System.nanoTime() - startNanos;
+        error = failure;
+        instrumentation.requestCompleted(this);
+    }
+
+    private final Endpoint endpoint;
+    private final URI uri;
+    private final Instrumentation instrumentation;
+    private final long startNanos;
+    private final long[] phaseEndNanos = new long[Phase.values().length];
+    private volatile long totalNanos = -1;
+    private int responseBytes = -1;
+    private Throwable error;
+}
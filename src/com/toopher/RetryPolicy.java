@@ -0,0 +1,174 @@
+package com.toopher;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.net.http.HttpConnectTimeoutException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.conn.ConnectTimeoutException;
+
+/**
+ * Decides whether a failed request is sent again, and how long to wait first
+ * <p>
+ * Status lookups are retried after any connection error and after HTTP 429, 500, 502, 503 and 504 responses.
+ * Requests that create something on the server (pairing and authentication) are retried only when the request
+ * cannot have been acted on: the connection could not be established, or the server answered 429 or 503.
+ * <p>
+ * Waits grow exponentially from the initial backoff up to the maximum, and each is drawn at random from zero up to
+ * that bound so that clients failing together don't retry together.  Retries are also limited by a budget shared by
+ * every request using this policy: each request adds a fraction of a retry to the budget, each retry spends a
+ * whole one, and a small number of retries per second are always allowed.  The budget starts with one second of
+ * those.  Once the budget is spent, failures are returned to the caller instead of being retried, so that retries
+ * cannot multiply the load on a struggling service.
+ *
+ */
+public class RetryPolicy {
+    /**
+     * The default maximum number of attempts, including the first
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    /**
+     * The default upper bound on the wait before the first retry
+     */
+    public static final long DEFAULT_INITIAL_BACKOFF_MS = 100;
+
+    /**
+     * The default upper bound on the wait before any retry
+     */
+    public static final long DEFAULT_MAX_BACKOFF_MS = 2000;
+
+    /**
+     * The default number of retries each request adds to the budget
+     */
+    public static final double DEFAULT_BUDGET_RATIO = 0.1;
+
+    /**
+     * The default number of retries allowed per second regardless of the budget
+     */
+    public static final int DEFAULT_MIN_RETRIES_PER_SECOND = 10;
+
+    /**
+     * Create a retry policy with the default settings
+     */
+    public RetryPolicy() {
+        this(DEFAULT_MAX_ATTEMPTS, DEFAULT_INITIAL_BACKOFF_MS, DEFAULT_MAX_BACKOFF_MS, DEFAULT_BUDGET_RATIO,
+             DEFAULT_MIN_RETRIES_PER_SECOND);
+    }
+
+    /**
+     * Create a retry policy
+     *
+     * @param maxAttempts
+     *            The maximum number of attempts, including the first
+     * @param initialBackoffMillis
+     *            The upper bound on the wait before the first retry
+     * @param maxBackoffMillis
+     *            The upper bound on the wait before any retry
+     * @param budgetRatio
+     *            The number of retries each request adds to the budget; 0.1 allows one retry for every ten requests
+     * @param minRetriesPerSecond
+     *            The number of retries allowed per second regardless of the budget
+     */
+    public RetryPolicy(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis, double budgetRatio,
+                       int minRetriesPerSecond) {
+        if (maxAttempts <= 0 || initialBackoffMillis < 0 || maxBackoffMillis < initialBackoffMillis
+                || budgetRatio < 0 || minRetriesPerSecond < 0) {
+            throw new IllegalArgumentException("Invalid retry policy settings");
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(initialBackoffMillis);
+        this.maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(maxBackoffMillis);
+        this.budgetRatio = budgetRatio;
+        this.minRetriesPerNano = minRetriesPerSecond / (double) TimeUnit.SECONDS.toNanos(1);
+        this.budgetCapacity = Math.max(1, minRetriesPerSecond) * BUDGET_CAPACITY_SECONDS;
+        // start with a second's worth, so that a client started into an outage doesn't retry a burst at once
+        this.budget = Math.min(budgetCapacity, minRetriesPerSecond);
+        this.budgetUpdatedNanos = System.nanoTime();
+    }
+
+    /**
+     * Record that a request is about to be made for the first time, adding to the retry budget
+     */
+    void onRequest() {
+        synchronized (this) {
+            refill();
+            budget = Math.min(budgetCapacity, budget + budgetRatio);
+        }
+    }
+
+    /**
+     * Decide whether to retry a failed attempt, spending from the retry budget if so
+     *
+     * @param attempt
+     *            The number of attempts made so far
+     * @param failure
+     *            The reason the latest attempt failed
+     * @param idempotent
+     *            true if sending the request again cannot have any further effect
+     * @return true to retry
+     */
+    boolean shouldRetry(int attempt, Exception failure, boolean idempotent) {
+        if (attempt >= maxAttempts || !isRetryable(failure, idempotent)) {
+            return false;
+        }
+        synchronized (this) {
+            refill();
+            if (budget < 1) {
+                return false;
+            }
+            budget -= 1;
+            return true;
+        }
+    }
+
+    /**
+     * @param attempt
+     *            The number of attempts made so far
+     * @return How long to wait before the next attempt
+     */
+    long backoffNanos(int attempt) {
+        long bound = initialBackoffNanos << Math.min(attempt - 1, 30);
+        if (bound <= 0 || bound > maxBackoffNanos) {
+            bound = maxBackoffNanos;
+        }
+        return bound == 0 ? 0 : ThreadLocalRandom.current().nextLong(bound);
+    }
+
+    private static boolean isRetryable(Exception failure, boolean idempotent) {
+        if (failure instanceof HttpResponseException) {
+            int status = ((HttpResponseException) failure).getStatusCode();
+            if (status == 429 || status == 503) {
+                // refused without being processed
+                return true;
+            }
+            return idempotent && (status == 500 || status == 502 || status == 504);
+        }
+        if (failure instanceof ConnectException || failure instanceof ConnectTimeoutException
+                || failure instanceof HttpConnectTimeoutException || failure instanceof UnknownHostException) {
+            // the request was never sent
+            return true;
+        }
+        return idempotent && failure instanceof IOException;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        budget = Math.min(budgetCapacity, budget + (now - budgetUpdatedNanos) * minRetriesPerNano);
+        budgetUpdatedNanos = now;
+    }
+
+    private static final int BUDGET_CAPACITY_SECONDS = 10;
+
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final double budgetRatio;
+    private final double minRetriesPerNano;
+    private final double budgetCapacity;
+    private double budget;
+    private long budgetUpdatedNanos;
+}
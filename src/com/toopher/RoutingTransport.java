@@ -0,0 +1,346 @@
+package com.toopher;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Spreads requests over several endpoints that serve the same API, such as regional endpoints or proxies in front of
+ * it, each with a transport and connections of its own
+ * <p>
+ * ToopherAPI asks for an endpoint with {@link #route(URI)} before signing each request, so every attempt, retry and
+ * hedge is routed on its own.  Of two endpoints picked at random, a request goes to the one with the lower cost: its
+ * average latency times one more than its requests in flight.  The average jumps to a slower response at once and
+ * decays over about ten seconds, including while the endpoint isn't used, so that a slow endpoint loses traffic
+ * quickly and is tried again once it may have recovered.  A failed request, a connection error, timeout or 5xx
+ * response, counts as a slow one.
+ * <p>
+ * An endpoint that fails several requests in a row is ejected: it is sent no requests while a background probe sends
+ * it a signed HEAD request, after a second and then backing off, until it answers without a server error.  If every
+ * endpoint has been ejected, requests are spread over all of them.
+ *
+ */
+final class RoutingTransport implements Transport {
+
+    /**
+     * @param requestSigner
+     *            Signs warm-up requests and probes
+     * @param baseUris
+     *            The base URI of each endpoint; requests are routed from the first
+     * @param transports
+     *            Creates the transport of each endpoint
+     */
+    RoutingTransport(RequestSigner requestSigner, List<String> baseUris, Supplier<Transport> transports) {
+        this.requestSigner = requestSigner;
+        endpoints = new Endpoint[baseUris.size()];
+        for (int i = 0; i < endpoints.length; i++) {
+            endpoints[i] = new Endpoint(baseUris.get(i), transports.get());
+        }
+        available = endpoints;
+    }
+
+    /**
+     * Choose an endpoint for a request
+     *
+     * @param uri
+     *            A URI under the first endpoint's base URI
+     * @return The same URI under the chosen endpoint's base URI
+     */
+    URI route(URI uri) {
+        Endpoint endpoint = choose();
+        if (endpoint == endpoints[0]) {
+            return uri;
+        }
+        return rebase(uri, endpoints[0], endpoint);
+    }
+
+    @Override
+    public TransportResponse send(TransportRequest request) throws IOException {
+        Endpoint endpoint = endpointOf(request.getUri());
+        endpoint.inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            TransportResponse response = endpoint.transport.send(request);
+            failed = isServerError(response);
+            return response;
+        } finally {
+            onCompleted(endpoint, System.nanoTime() - start, failed);
+        }
+    }
+
+    @Override
+    public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+        final Endpoint endpoint;
+        try {
+            endpoint = endpointOf(request.getUri());
+        } catch (IOException e) {
+            CompletableFuture<TransportResponse> result = new CompletableFuture<TransportResponse>();
+            result.completeExceptionally(e);
+            return result;
+        }
+        endpoint.inFlight.incrementAndGet();
+        final long start = System.nanoTime();
+        CompletableFuture<TransportResponse> exchange = endpoint.transport.sendAsync(request);
+        exchange.whenComplete((response, error) -> {
+            if (error instanceof CancellationException) {
+                // a lost hedge or an abandoned call says nothing about the endpoint
+                endpoint.inFlight.decrementAndGet();
+            } else {
+                onCompleted(endpoint, System.nanoTime() - start, error != null || isServerError(response));
+            }
+        });
+        return exchange;
+    }
+
+    /**
+     * Warm up every endpoint, signing the request again for each
+     *
+     * @return The number of connections open to all the endpoints
+     */
+    @Override
+    public int warmUp(TransportRequest request, int connections) throws IOException {
+        Endpoint from = endpointOf(request.getUri());
+        int open = 0;
+        IOException failure = null;
+        for (Endpoint endpoint : endpoints) {
+            URI uri = rebase(request.getUri(), from, endpoint);
+            try {
+                TransportRequest warmUp = new TransportRequest(
+                        request.getMethod(), uri, requestSigner.sign(request.getMethod(), uri, null),
+                        request.getContentType(), request.getBody(), request.getUserAgent(),
+                        request.getConnectTimeoutMillis(), request.getReadTimeoutMillis(),
+                        request.getConnectionRequestTimeoutMillis(), request.getDeadline(), null);
+                open += endpoint.transport.warmUp(warmUp, connections);
+            } catch (IOException e) {
+                failure = e;
+            } catch (RequestError e) {
+                failure = new IOException("Unable to sign the warm-up request", e);
+            }
+        }
+        if (open == 0 && failure != null) {
+            throw failure;
+        }
+        return open;
+    }
+
+    @Override
+    public int getLeasedConnections() {
+        int leased = 0;
+        for (Endpoint endpoint : endpoints) {
+            leased += endpoint.transport.getLeasedConnections();
+        }
+        return leased;
+    }
+
+    @Override
+    public int getPendingConnections() {
+        int pending = 0;
+        for (Endpoint endpoint : endpoints) {
+            pending += endpoint.transport.getPendingConnections();
+        }
+        return pending;
+    }
+
+    @Override
+    public int getMaxConnections() {
+        int max = 0;
+        for (Endpoint endpoint : endpoints) {
+            max += endpoint.transport.getMaxConnections();
+        }
+        return max;
+    }
+
+    /**
+     * Stop probing and close every endpoint's transport
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            for (Endpoint endpoint : endpoints) {
+                if (endpoint.probe != null) {
+                    endpoint.probe.cancel(false);
+                }
+            }
+        }
+        for (Endpoint endpoint : endpoints) {
+            endpoint.transport.close();
+        }
+    }
+
+    /**
+     * @return The cheaper of two endpoints picked at random from those not ejected
+     */
+    private Endpoint choose() {
+        Endpoint[] candidates = available;
+        if (candidates.length == 1) {
+            return candidates[0];
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.length);
+        int second = random.nextInt(candidates.length - 1);
+        if (second >= first) {
+            second++;
+        }
+        long now = System.nanoTime();
+        return candidates[first].cost(now) <= candidates[second].cost(now) ? candidates[first] : candidates[second];
+    }
+
+    private Endpoint endpointOf(URI uri) throws IOException {
+        String target = uri.toString();
+        Endpoint match = null;
+        for (Endpoint endpoint : endpoints) {
+            if (target.startsWith(endpoint.baseUri)
+                    && (match == null || endpoint.baseUri.length() > match.baseUri.length())) {
+                match = endpoint;
+            }
+        }
+        if (match == null) {
+            throw new IOException("No endpoint serves " + uri);
+        }
+        return match;
+    }
+
+    private static URI rebase(URI uri, Endpoint from, Endpoint to) {
+        return URI.create(to.baseUri + uri.toString().substring(from.baseUri.length()));
+    }
+
+    private static boolean isServerError(TransportResponse response) {
+        return response.getStatusCode() >= 500;
+    }
+
+    private void onCompleted(Endpoint endpoint, long latencyNanos, boolean failed) {
+        endpoint.inFlight.decrementAndGet();
+        boolean eject;
+        synchronized (endpoint) {
+            endpoint.observe(failed ? Math.max(latencyNanos, FAILURE_PENALTY_NANOS) : latencyNanos,
+                             System.nanoTime());
+            endpoint.consecutiveFailures = failed ? endpoint.consecutiveFailures + 1 : 0;
+            eject = !endpoint.ejected && endpoint.consecutiveFailures >= EJECTION_FAILURES;
+            if (eject) {
+                endpoint.ejected = true;
+            }
+        }
+        if (eject) {
+            updateAvailable();
+            scheduleProbe(endpoint, MIN_PROBE_INTERVAL_MS);
+        }
+    }
+
+    private synchronized void updateAvailable() {
+        List<Endpoint> healthy = new ArrayList<Endpoint>(endpoints.length);
+        for (Endpoint endpoint : endpoints) {
+            if (!endpoint.ejected) {
+                healthy.add(endpoint);
+            }
+        }
+        available = healthy.isEmpty() ? endpoints : healthy.toArray(new Endpoint[healthy.size()]);
+    }
+
+    private synchronized void scheduleProbe(final Endpoint endpoint, final long delayMillis) {
+        if (closed) {
+            return;
+        }
+        endpoint.probe = SharedScheduler.get().schedule(() -> probe(endpoint, delayMillis),
+                                                        delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void probe(final Endpoint endpoint, final long delayMillis) {
+        final long nextDelayMillis = Math.min(delayMillis * 2, MAX_PROBE_INTERVAL_MS);
+        URI uri = URI.create(endpoint.baseUri);
+        TransportRequest request;
+        try {
+            request = new TransportRequest(HEAD, uri, requestSigner.sign(HEAD, uri, null), null, null,
+                                           ToopherAPI.USER_AGENT, PROBE_TIMEOUT_MS, PROBE_TIMEOUT_MS,
+                                           PROBE_TIMEOUT_MS, Deadline.after(PROBE_TIMEOUT_MS, TimeUnit.MILLISECONDS),
+                                           null);
+        } catch (RequestError e) {
+            scheduleProbe(endpoint, nextDelayMillis);
+            return;
+        }
+        final long start = System.nanoTime();
+        endpoint.transport.sendAsync(request).whenComplete((response, error) -> {
+            if (error == null && !isServerError(response)) {
+                reinstate(endpoint, System.nanoTime() - start);
+            } else {
+                scheduleProbe(endpoint, nextDelayMillis);
+            }
+        });
+    }
+
+    private void reinstate(Endpoint endpoint, long latencyNanos) {
+        synchronized (endpoint) {
+            endpoint.latencyNanos = latencyNanos;
+            endpoint.updatedNanos = System.nanoTime();
+            endpoint.consecutiveFailures = 0;
+            endpoint.ejected = false;
+        }
+        updateAvailable();
+    }
+
+    private static class Endpoint {
+        final String baseUri;
+        final Transport transport;
+        final AtomicInteger inFlight = new AtomicInteger();
+        volatile boolean ejected;
+        ScheduledFuture<?> probe;
+        // guarded by this
+        double latencyNanos;
+        long updatedNanos = System.nanoTime();
+        int consecutiveFailures;
+
+        Endpoint(String baseUri, Transport transport) {
+            this.baseUri = baseUri;
+            this.transport = transport;
+        }
+
+        /**
+         * Fold a latency into the average, which takes a higher one as it is
+         */
+        void observe(long latencyNanos, long now) {
+            double weight = Math.exp(-(double) Math.max(0, now - updatedNanos) / DECAY_NANOS);
+            double decayed = this.latencyNanos * weight;
+            this.latencyNanos = latencyNanos > decayed ? latencyNanos : decayed + latencyNanos * (1 - weight);
+            updatedNanos = now;
+        }
+
+        synchronized double cost(long now) {
+            return (decayed(now) + MIN_COST_NANOS) * (inFlight.get() + 1);
+        }
+
+        private double decayed(long now) {
+            return latencyNanos * Math.exp(-(double) Math.max(0, now - updatedNanos) / DECAY_NANOS);
+        }
+    }
+
+    private static final String HEAD = "HEAD";
+    private static final int EJECTION_FAILURES = 5;
+    private static final long MIN_PROBE_INTERVAL_MS = 1000;
+    private static final long MAX_PROBE_INTERVAL_MS = 30000;
+    private static final int PROBE_TIMEOUT_MS = 5000;
+    private static final double DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * What a failed request counts as, so that an endpoint that fails fast isn't mistaken for a fast one
+     */
+    private static final long FAILURE_PENALTY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Added to each average, so that requests in flight count for something before an endpoint has been timed
+     */
+    private static final double MIN_COST_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final RequestSigner requestSigner;
+    private final Endpoint[] endpoints;
+    private volatile Endpoint[] available;
+    private boolean closed;
+}
@@ -0,0 +1,33 @@
+package com.toopher;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/**
+ * A single daemon thread for the short timed tasks of every ToopherAPI instance, such as starting a delayed
+ * request or expiring a wait.  Tasks must not block.
+ *
+ */
+final class SharedScheduler {
+
+    private SharedScheduler() {
+    }
+
+    static ScheduledExecutorService get() {
+        return Holder.INSTANCE;
+    }
+
+    private static class Holder {
+        static final ScheduledExecutorService INSTANCE = create();
+
+        private static ScheduledExecutorService create() {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread t = new Thread(r, "ToopherAPI-Scheduler");
+                t.setDaemon(true);
+                return t;
+            });
+            executor.setRemoveOnCancelPolicy(true);
+            return executor;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.toopher;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A bounded cache of recent status lookups that also lets concurrent lookups of the same ID share one request
+ * <p>
+ * A successful lookup is reused until the positive time-to-live passes.  A lookup the API rejected as a client
+ * error, such as an unknown ID, is reused until the negative time-to-live passes.  Other failures, such as timeouts
+ * and server errors, are never reused.  With both times-to-live zero, the cache only coalesces lookups that are in
+ * flight at the same time.  When the cache is full, the least recently used entry is evicted.
+ *
+ * @param <T>
+ *            The status type, PairingStatus or AuthenticationStatus
+ */
+public class StatusCache<T> {
+
+    /**
+     * Create a cache
+     *
+     * @param maxEntries
+     *            The maximum number of IDs cached
+     * @param positiveTtlMillis
+     *            How long a successful lookup is reused
+     * @param negativeTtlMillis
+     *            How long a lookup rejected by the API is reused
+     */
+    public StatusCache(final int maxEntries, long positiveTtlMillis, long negativeTtlMillis) {
+        if (maxEntries <= 0 || positiveTtlMillis < 0 || negativeTtlMillis < 0) {
+            throw new IllegalArgumentException(
+                    "The maximum number of entries must be positive and times-to-live must not be negative");
+        }
+        this.positiveTtlNanos = TimeUnit.MILLISECONDS.toNanos(positiveTtlMillis);
+        this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtlMillis);
+        this.entries = new LinkedHashMap<String, Entry<T>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<T>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Forget the cached status of an ID, so that the next lookup goes to the API.  A lookup in flight is still
+     * shared with callers who already joined it.
+     *
+     * @param id
+     *            The pairing or authentication request ID
+     */
+    public void invalidate(String id) {
+        synchronized (entries) {
+            entries.remove(id);
+        }
+    }
+
+    /**
+     * Forget all cached statuses
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * @return The number of IDs cached, including lookups in flight and entries that have expired but not yet been
+     *         evicted
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return The number of lookups answered from the cache or by joining a lookup in flight
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The number of lookups sent to the API
+     */
+    public long getLoadCount() {
+        return loads.sum();
+    }
+
+    /**
+     * Look up a status, from the cache if it holds a live entry for the ID, or else with the loader
+     *
+     * @param deadline
+     *            The time by which this caller needs the status, or null.  The shared lookup itself has no deadline,
+     *            so one caller running out of time doesn't fail the others.
+     * @return A future for this caller alone; cancelling it doesn't affect other callers
+     */
+    CompletableFuture<T> get(String id, Deadline deadline, Function<String, CompletableFuture<T>> loader) {
+        long now = System.nanoTime();
+        Entry<T> entry;
+        boolean load = false;
+        synchronized (entries) {
+            entry = entries.get(id);
+            if (entry == null || entry.isExpired(now)) {
+                entry = new Entry<T>();
+                entries.put(id, entry);
+                load = true;
+            }
+        }
+        if (load) {
+            loads.increment();
+            load(id, entry, loader);
+        } else {
+            hits.increment();
+        }
+
+        final CompletableFuture<T> result = new CompletableFuture<T>();
+        entry.future.whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(error);
+            }
+        });
+        if (deadline != null && !result.isDone()) {
+            deadline.enforce(result);
+        }
+        return result;
+    }
+
+    private void load(final String id, final Entry<T> entry, Function<String, CompletableFuture<T>> loader) {
+        CompletableFuture<T> lookup;
+        try {
+            lookup = loader.apply(id);
+        } catch (RuntimeException e) {
+            lookup = new CompletableFuture<T>();
+            lookup.completeExceptionally(new RequestError(e));
+        }
+        lookup.whenComplete((value, error) -> {
+            long ttlNanos;
+            if (error == null) {
+                ttlNanos = positiveTtlNanos;
+            } else if (RequestTrace.ErrorCategory.of(error) == RequestTrace.ErrorCategory.CLIENT_ERROR) {
+                ttlNanos = negativeTtlNanos;
+            } else {
+                ttlNanos = 0;
+            }
+            // the expiry must be visible before the future completes, as isExpired reads them in that order
+            entry.expiresAtNanos = System.nanoTime() + ttlNanos;
+            if (ttlNanos == 0) {
+                synchronized (entries) {
+                    entries.remove(id, entry);
+                }
+            }
+            if (error == null) {
+                entry.future.complete(value);
+            } else {
+                entry.future.completeExceptionally(error);
+            }
+        });
+    }
+
+    private static class Entry<T> {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        volatile long expiresAtNanos;
+
+        boolean isExpired(long now) {
+            // a lookup in flight never expires: callers join it
+            return future.isDone() && now - expiresAtNanos >= 0;
+        }
+    }
+
+    private final long positiveTtlNanos;
+    private final long negativeTtlNanos;
+    private final LinkedHashMap<String, Entry<T>> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+}
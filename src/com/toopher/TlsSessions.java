@@ -0,0 +1,66 @@
+package com.toopher;
+
+import java.security.GeneralSecurityException;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+
+/**
+ * The SSLContext shared by every transport in the process, so that a TLS session negotiated by one connection is
+ * resumed by the others with an abbreviated handshake, whichever pool, transport or ToopherAPI object opens them
+ *
+ */
+final class TlsSessions {
+
+    private TlsSessions() {
+    }
+
+    static SSLContext context() {
+        return Holder.CONTEXT;
+    }
+
+    /**
+     * Have the TLS layer check the server's host name, as the JDK's HTTP client does.  A session is only resumed by
+     * a connection that identifies the server the same way, so the pools that check host names themselves ask for
+     * it too, to share sessions with the JDK's client.
+     */
+    static void identifyEndpoint(SSLSocket socket) {
+        SSLParameters parameters = socket.getSSLParameters();
+        parameters.setEndpointIdentificationAlgorithm(ENDPOINT_IDENTIFICATION_ALGORITHM);
+        socket.setSSLParameters(parameters);
+    }
+
+    static void identifyEndpoint(SSLEngine engine) {
+        SSLParameters parameters = engine.getSSLParameters();
+        parameters.setEndpointIdentificationAlgorithm(ENDPOINT_IDENTIFICATION_ALGORITHM);
+        engine.setSSLParameters(parameters);
+    }
+
+    private static class Holder {
+        static final SSLContext CONTEXT = create();
+
+        private static SSLContext create() {
+            SSLContext context;
+            try {
+                context = SSLContext.getInstance("TLS");
+                context.init(null, null, null);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Unable to initialize TLS", e);
+            }
+            SSLSessionContext sessions = context.getClientSessionContext();
+            sessions.setSessionCacheSize(SESSION_CACHE_SIZE);
+            sessions.setSessionTimeout(SESSION_TIMEOUT_SECONDS);
+            return context;
+        }
+    }
+
+    /**
+     * Enough for every host a process is likely to call, with room for the API's load-balanced addresses
+     */
+    private static final int SESSION_CACHE_SIZE = 1000;
+    private static final int SESSION_TIMEOUT_SECONDS = 24 * 60 * 60;
+    private static final String ENDPOINT_IDENTIFICATION_ALGORITHM = "HTTPS";
+}
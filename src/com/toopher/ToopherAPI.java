@@ -1,46 +1,83 @@
 package com.toopher;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
-import oauth.signpost.OAuthConsumer;
-import oauth.signpost.commonshttp.CommonsHttpOAuthConsumer;
-
-import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
-import org.apache.http.StatusLine;
-import org.apache.http.client.ClientProtocolException;
-import org.apache.http.client.HttpClient;
 import org.apache.http.client.HttpResponseException;
-import org.apache.http.client.ResponseHandler;
-import org.apache.http.client.entity.UrlEncodedFormEntity;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.apache.http.conn.ConnectTimeoutException;
 import org.apache.http.message.BasicNameValuePair;
-import org.apache.http.params.HttpProtocolParams;
-import org.apache.http.util.EntityUtils;
 import org.json.JSONException;
-import org.json.JSONObject;
-import org.json.JSONTokener;
 
 /**
  * A Java binding for the Toopher API
+ * <p>
+ * A single instance is safe to share between threads: requests are executed over a pool of
+ * persistent connections. Each blocking method has an {@code *Async} counterpart that returns a
+ * {@link CompletableFuture} and runs on a small pool of non-blocking I/O threads instead of the caller's thread.
+ * The futures are mostly completed on those threads, so stages chained with {@code thenApply} and the like run
+ * there too; a stage that blocks stalls every request sharing the thread.  Chain blocking work with the
+ * {@code *Async} stage methods and an executor of your own.  Call {@link #close()} when the instance is no longer
+ * needed to release the I/O threads.
  * 
  */
-public class ToopherAPI {
+public class ToopherAPI implements Closeable {
     /**
      * The ToopherJava binding library version
      */
     public static final String VERSION = "1.0.0";
 
+    /**
+     * The default maximum number of pooled connections
+     */
+    public static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 100;
+
+    /**
+     * The default maximum number of pooled connections to a single host
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 100;
+
+    /**
+     * The default maximum number of requests in flight for a batch lookup
+     */
+    public static final int DEFAULT_BATCH_CONCURRENCY = 16;
+
+    /**
+     * The default time allowed to establish a connection
+     */
+    public static final int DEFAULT_CONNECT_TIMEOUT_MS = 10000;
+
+    /**
+     * The default time allowed between packets of a response
+     */
+    public static final int DEFAULT_READ_TIMEOUT_MS = 30000;
+
+    /**
+     * The default time allowed to wait for a pooled connection to become free
+     */
+    public static final long DEFAULT_CONNECTION_REQUEST_TIMEOUT_MS = 10000;
+
     /**
      * Create an API object with the supplied credentials
      * 
@@ -84,11 +121,89 @@ public class ToopherAPI {
      *            The alternate URI
      */
     public ToopherAPI(String consumerKey, String consumerSecret, URI uri) {
-    	httpClient = new DefaultHttpClient();
-        HttpProtocolParams.setUserAgent(httpClient.getParams(),
-                                        String.format("ToopherJava/%s", VERSION));
+        this(consumerKey, consumerSecret, uri, DEFAULT_MAX_TOTAL_CONNECTIONS, DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+    }
+
+    /**
+     * Create an API object with the supplied credentials and connection pool limits, overriding the default API URI
+     * of https://api.toopher.com/v1/
+     * 
+     * @param consumerKey
+     *            The consumer key for a requester (obtained from the developer portal)
+     * @param consumerSecret
+     *            The consumer secret for a requester (obtained from the developer portal)
+     * @param uri
+     *            The alternate URI, or null to use the default
+     * @param maxTotalConnections
+     *            The maximum number of connections kept open by this object
+     * @param maxConnectionsPerRoute
+     *            The maximum number of connections kept open to a single host
+     */
+    public ToopherAPI(String consumerKey, String consumerSecret, URI uri,
+                      int maxTotalConnections, int maxConnectionsPerRoute) {
+        this(new OAuthRequestSigner(consumerKey, consumerSecret), uri, maxTotalConnections, maxConnectionsPerRoute);
+    }
+
+    /**
+     * Create an API object with the supplied credentials and connection pool limits, and open connections to the API
+     * before returning, so that the first requests don't pay for DNS, TCP and TLS setup.  If the API can't be
+     * reached within the connect timeout, the object is created anyway and requests open connections as they need
+     * them; use {@link #warmUp(int)} to see why.
+     * 
+     * @param consumerKey
+     *            The consumer key for a requester (obtained from the developer portal)
+     * @param consumerSecret
+     *            The consumer secret for a requester (obtained from the developer portal)
+     * @param uri
+     *            The alternate URI, or null to use the default
+     * @param maxTotalConnections
+     *            The maximum number of connections kept open by this object
+     * @param maxConnectionsPerRoute
+     *            The maximum number of connections kept open to a single host
+     * @param warmConnections
+     *            The number of connections to open
+     */
+    public ToopherAPI(String consumerKey, String consumerSecret, URI uri,
+                      int maxTotalConnections, int maxConnectionsPerRoute, int warmConnections) {
+        this(consumerKey, consumerSecret, uri, maxTotalConnections, maxConnectionsPerRoute);
+        try {
+            warmUp(warmConnections, Deadline.after(connectTimeoutMillis, TimeUnit.MILLISECONDS));
+        } catch (RequestError e) {
+            // requests open their own connections
+        }
+    }
+
+    /**
+     * Create an API object that signs requests with the supplied signer
+     * 
+     * @param requestSigner
+     *            Produces the Authorization header for each request
+     * @param uri
+     *            The alternate URI, or null to use the default
+     * @param maxTotalConnections
+     *            The maximum number of connections kept open by this object
+     * @param maxConnectionsPerRoute
+     *            The maximum number of connections kept open to a single host
+     */
+    public ToopherAPI(RequestSigner requestSigner, URI uri, int maxTotalConnections, int maxConnectionsPerRoute) {
+        this(requestSigner, uri, new HttpClientTransport(maxTotalConnections, maxConnectionsPerRoute));
+    }
+
+    /**
+     * Create an API object that signs requests with the supplied signer and sends them with the supplied transport
+     * 
+     * @param requestSigner
+     *            Produces the Authorization header for each request
+     * @param uri
+     *            The alternate URI, or null to use the default
+     * @param transport
+     *            Sends the signed requests, for example a {@link JdkHttpTransport}; it is closed with this object
+     */
+    public ToopherAPI(RequestSigner requestSigner, URI uri, Transport transport) {
+        this.requestSigner = requestSigner;
+        this.transport = transport;
+        this.router = transport instanceof RoutingTransport ? (RoutingTransport) transport : null;
 
-        consumer = new CommonsHttpOAuthConsumer(consumerKey, consumerSecret);
         if (uri == null){
             this.uriScheme = ToopherAPI.DEFAULT_URI_SCHEME;
         	this.uriHost = ToopherAPI.DEFAULT_URI_HOST;
@@ -100,9 +215,274 @@ public class ToopherAPI {
 	    	this.uriPort = uri.getPort();
 	    	this.uriBase = uri.getPath();
 	    }
+
+        String baseUri = baseUriOf(this.uriScheme, this.uriHost, this.uriPort, this.uriBase);
+        this.baseUri = URI.create(baseUri);
+        pairUri = URI.create(baseUri + "pairings/create");
+        authenticateUri = URI.create(baseUri + "authentication_requests/initiate");
+        pairingStatusEndpoint = new EndpointTemplate(baseUri, "pairings/");
+        authenticationStatusEndpoint = new EndpointTemplate(baseUri, "authentication_requests/");
+    }
+
+    /**
+     * Create an API object that spreads requests over several endpoints serving the API, such as regional endpoints
+     * or proxies in front of it, each with a transport and connection pool of its own
+     * <p>
+     * Each request, and each retry or hedge of one, goes to the faster of two endpoints picked at random, judged by
+     * a moving average of their latency and their requests in flight.  An endpoint that fails five requests in a row
+     * gets no more requests until a background probe finds that it answers again.
+     * 
+     * @param requestSigner
+     *            Produces the Authorization header for each request
+     * @param uris
+     *            The base URI of each endpoint
+     * @param transports
+     *            Creates the transport of each endpoint, for example a new {@link HttpClientTransport} each time; they
+     *            are closed with this object
+     */
+    public ToopherAPI(RequestSigner requestSigner, List<URI> uris, Supplier<Transport> transports) {
+        this(requestSigner, uris.isEmpty() ? null : uris.get(0), routingTransport(requestSigner, uris, transports));
+    }
+
+    private static Transport routingTransport(RequestSigner requestSigner, List<URI> uris,
+                                              Supplier<Transport> transports) {
+        if (uris.isEmpty()) {
+            throw new IllegalArgumentException("At least one endpoint is required");
+        } else if (uris.size() == 1) {
+            return transports.get();
+        }
+        List<String> baseUris = new ArrayList<String>(uris.size());
+        for (URI uri : uris) {
+            if (uri == null) {
+                throw new IllegalArgumentException("Endpoint URIs must not be null");
+            }
+            baseUris.add(baseUriOf(uri.getScheme(), uri.getHost(), uri.getPort(), uri.getPath()));
+        }
+        return new RoutingTransport(requestSigner, baseUris, transports);
+    }
+
+    private static String baseUriOf(String scheme, String host, int port, String path) {
+        try {
+            return new URIBuilder().setScheme(scheme).setHost(host).setPort(port).setPath(path).build().toString();
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid API URI", e);
+        }
+    }
+
+    /**
+     * Release the pooled connections held by this object.  Requests made after close() will fail.
+     */
+    @Override
+    public void close() {
+        transport.close();
+    }
+
+    /**
+     * Open connections to the API ahead of the first requests, so that they don't wait for DNS, a TCP connect or a
+     * TLS handshake.  Call it when the application starts, before it takes traffic; connections already open count
+     * towards the number.  The default transport opens connections without sending anything; the JDK transports
+     * send a signed HEAD request to the API's base URI over each connection, since their client only opens a
+     * connection to send a request.  With several endpoints, each is warmed up.
+     * 
+     * @param connections
+     *            The number of connections to have open, up to the transport's limit
+     * @return The number of connections open, or 0 if the transport doesn't use connections
+     * @throws RequestError
+     *             Thrown when no connection could be opened
+     */
+    public int warmUp(int connections) throws RequestError {
+        return warmUp(connections, null);
+    }
+
+    /**
+     * Open connections to the API ahead of the first requests, failing if they can't be opened in time
+     * 
+     * @param connections
+     *            The number of connections to have open, up to the transport's limit
+     * @param deadline
+     *            The time by which the call must complete, or null for no deadline
+     * @return The number of connections open, or 0 if the transport doesn't use connections
+     * @throws RequestError
+     *             Thrown when no connection could be opened
+     */
+    public int warmUp(int connections, Deadline deadline) throws RequestError {
+        try {
+            return transport.warmUp(newRequest(HEAD, baseUri, null, deadline, null), connections);
+        } catch (RequestError e) {
+            throw e;
+        } catch (Exception e) {
+            throw asRequestError(e);
+        }
+    }
+
+    /**
+     * Set the time allowed to establish a connection.  Set timeouts before making requests; non-blocking requests
+     * also wait no longer than this for a pooled connection.  Transports that fix their connect timeout when they
+     * are created, such as {@link JdkHttpTransport}, ignore it.
+     * 
+     * @param timeoutMillis
+     *            The connect timeout, or 0 to wait indefinitely
+     */
+    public void setConnectTimeout(int timeoutMillis) {
+        connectTimeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Set the time allowed between packets of a response, after which the request fails with a
+     * SocketTimeoutException
+     * 
+     * @param timeoutMillis
+     *            The read timeout, or 0 to wait indefinitely
+     */
+    public void setReadTimeout(int timeoutMillis) {
+        readTimeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Set the time a blocking request waits for a pooled connection to become free when all are in use
+     * 
+     * @param timeoutMillis
+     *            The connection request timeout, or 0 to wait indefinitely
+     */
+    public void setConnectionRequestTimeout(long timeoutMillis) {
+        connectionRequestTimeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Observe every request for metrics or tracing.  There is no instrumentation by default, and none of its
+     * bookkeeping is done without it.
+     * 
+     * @param instrumentation
+     *            The instrumentation, such as a {@link RequestMetrics}, or null to stop observing requests
+     */
+    public void setInstrumentation(Instrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+    }
+
+    /**
+     * @return The number of pooled connections in use by requests, blocking and non-blocking
+     */
+    public int getLeasedConnections() {
+        return transport.getLeasedConnections();
+    }
+
+    /**
+     * @return The number of requests waiting for a pooled connection to become free
+     */
+    public int getPendingConnections() {
+        return transport.getPendingConnections();
+    }
+
+    /**
+     * @return The maximum number of pooled connections, as reported by the transport
+     */
+    public int getMaxConnections() {
+        return transport.getMaxConnections();
+    }
+
+    /**
+     * Answer repeated pairing status lookups from a cache, and share one request between concurrent lookups of the
+     * same pairing.  There is no cache by default.
+     * 
+     * @param cache
+     *            The cache for {@link #getPairingStatus(String)} and its variants, or null to always send a request
+     */
+    public void setPairingStatusCache(StatusCache<PairingStatus> cache) {
+        this.pairingStatusCache = cache;
+    }
+
+    /**
+     * Remember pairings in a durable local index, so that pairing status lookups are answered locally while the
+     * stored pairing is younger than the index's time-to-live.  Pairings created with {@link #pair(String, String)}
+     * or looked up with {@link #getPairingStatus(String)} are stored once they are no longer pending, and pairings
+     * the API reports as deactivated or unknown are removed.  A pairing disabled or deactivated outside this client
+     * is still reported as it was stored until the time-to-live passes.  There is no index by default.  The caller
+     * remains responsible for closing the index.
+     * 
+     * @param index
+     *            The pairing index, or null to stop using it
+     */
+    public void setPairingIndex(PairingIndex index) {
+        this.pairingIndex = index;
+    }
+
+    /**
+     * Answer repeated authentication status lookups from a cache, and share one request between concurrent lookups
+     * of the same authentication request.  There is no cache by default.  Authentication requests change state when
+     * the user responds, so keep the time-to-live short.
+     * 
+     * @param cache
+     *            The cache for {@link #getAuthenticationStatus(String)} and its variants, or null to always send a
+     *            request
+     */
+    public void setAuthenticationStatusCache(StatusCache<AuthenticationStatus> cache) {
+        this.authenticationStatusCache = cache;
+    }
+
+    /**
+     * Keep the raw response data of the status objects returned, so that it can be read with
+     * {@link ApiResponseObject#getRaw()}.  It is off by default, which keeps status objects small.
+     * 
+     * @param retainRawResponses
+     *            Whether to keep the raw response data
+     */
+    public void setRetainRawResponses(boolean retainRawResponses) {
+        this.retainRawResponses = retainRawResponses;
+    }
+
+    /**
+     * Set how failed requests are retried.  By default, a new {@link RetryPolicy} with the default settings is used,
+     * so that status lookups survive a stale pooled connection and requests that were never sent are sent again.
+     * 
+     * @param retryPolicy
+     *            The retry policy, or null to never retry
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Race slow status lookups with a second request.  Hedging is off by default.
+     * 
+     * @param hedgingPolicy
+     *            The hedging policy for {@link #getPairingStatus(String)} and
+     *            {@link #getAuthenticationStatus(String)} and their async counterparts, or null not to hedge
+     */
+    public void setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+        this.hedgingPolicy = hedgingPolicy;
+    }
+
+    /**
+     * Stop sending requests while the API is failing or slow.  There is no circuit breaker by default.
+     * 
+     * @param circuitBreaker
+     *            The circuit breaker to apply to every request, or null to always send requests
+     */
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Limit the rate at which this object sends requests
+     * 
+     * @param rateLimiter
+     *            The rate limiter to apply to every request, or null to send requests as fast as they are made
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Limit the number of requests this object has in flight at once
+     * 
+     * @param concurrencyLimiter
+     *            The concurrency limiter to apply to every request, or null for no limit beyond the size of the
+     *            connection pool
+     */
+    public void setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
     }
 
-    
     /**
      * Create a pairing
      * 
@@ -132,183 +512,1282 @@ public class ToopherAPI {
      *             Thrown when an exceptional condition is encountered
      */
     public PairingStatus pair(String pairingPhrase, String userName, Map<String, String> extras) throws RequestError {
-        final String endpoint = "pairings/create";
-
-        List<NameValuePair> params = new ArrayList<NameValuePair>();
-        params.add(new BasicNameValuePair("pairing_phrase", pairingPhrase));
-        params.add(new BasicNameValuePair("user_name", userName));
-        
-        try {
-            JSONObject json = post(endpoint, params, extras);
-            return new PairingStatus(json);
-        } catch (Exception e) {
-            throw new RequestError(e);
-        }
+        return pair(pairingPhrase, userName, extras, null);
     }
 
     /**
-     * Retrieve the current status of a pairing request
+     * Create a pairing, failing if it can't be completed in time
      * 
-     * @param pairingRequestId
-     *            The unique id for a pairing request
+     * @param pairingPhrase
+     *            The pairing phrase supplied by the user
+     * @param userName
+     *            A user-facing descriptive name for the user (displayed in requests)
+     * @param extras
+     *            An optional Map of extra parameters to provide to the API
+     * @param deadline
+     *            The time by which the call must complete, or null for no deadline
      * @return A PairingStatus object
      * @throws RequestError
      *             Thrown when an exceptional condition is encountered
      */
-    public PairingStatus getPairingStatus(String pairingRequestId) throws RequestError {
-        final String endpoint = String.format("pairings/%s", pairingRequestId);
-
+    public PairingStatus pair(String pairingPhrase, String userName, Map<String, String> extras, Deadline deadline)
+            throws RequestError {
         try {
-            JSONObject json = get(endpoint);
-            return new PairingStatus(json);
+            List<NameValuePair> params = pairParameters(pairingPhrase, userName, extras);
+            return indexPairing(pairingIndex, request(POST, pairUri, params, pairParser, deadline));
+        } catch (RequestError e) {
+            throw e;
         } catch (Exception e) {
-            throw new RequestError(e);
+            throw asRequestError(e);
         }
     }
 
     /**
-     * Initiate a login authentication request
+     * Create a pairing without blocking the calling thread
      * 
-     * @param pairingId
-     *            The pairing id indicating to whom the request should be sent
-     * @param terminalName
-     *            The user-facing descriptive name for the terminal from which the request originates
-     * @return An AuthenticationStatus object
-     * @throws RequestError
-     *             Thrown when an exceptional condition is encountered
+     * @param pairingPhrase
+     *            The pairing phrase supplied by the user
+     * @param userName
+     *            A user-facing descriptive name for the user (displayed in requests)
+     * @return A future completed with a PairingStatus object, or exceptionally with a RequestError
+     *         on an I/O thread that dependent stages must not block
      */
-    public AuthenticationStatus authenticate(String pairingId, String terminalName) throws RequestError {
-        return authenticate(pairingId, terminalName, null, null);
+    public CompletableFuture<PairingStatus> pairAsync(String pairingPhrase, String userName) {
+        return pairAsync(pairingPhrase, userName, null);
     }
-    
+
     /**
-     * Initiate a login authentication request
+     * Create a pairing without blocking the calling thread
      * 
-     * @param pairingId
-     *            The pairing id indicating to whom the request should be sent
-     * @param terminalName
-     *            The user-facing descriptive name for the terminal from which the request originates
-     * @param actionName
-     *            The user-facing descriptive name for the action which is being authenticated
-     * @return An AuthenticationStatus object
-     * @throws RequestError
-     *             Thrown when an exceptional condition is encountered
+     * @param pairingPhrase
+     *            The pairing phrase supplied by the user
+     * @param userName
+     *            A user-facing descriptive name for the user (displayed in requests)
+     * @param extras
+     *            An optional Map of extra parameters to provide to the API
+     * @return A future completed with a PairingStatus object, or exceptionally with a RequestError
+     *         on an I/O thread that dependent stages must not block
      */
-    public AuthenticationStatus authenticate(String pairingId, String terminalName, String actionName) throws RequestError {
-        return authenticate(pairingId, terminalName, actionName, null);
+    public CompletableFuture<PairingStatus> pairAsync(String pairingPhrase, String userName, Map<String, String> extras) {
+        return pairAsync(pairingPhrase, userName, extras, null);
     }
 
     /**
-     * Initiate an authentication request
+     * Create a pairing without blocking the calling thread, failing if it can't be completed in time
      * 
-     * @param pairingId
-     *            The pairing id indicating to whom the request should be sent
-     * @param terminalName
-     *            The user-facing descriptive name for the terminal from which the request originates
-     * @param actionName
-     *            The user-facing descriptive name for the action which is being authenticated
+     * @param pairingPhrase
+     *            The pairing phrase supplied by the user
+     * @param userName
+     *            A user-facing descriptive name for the user (displayed in requests)
      * @param extras
      *            An optional Map of extra parameters to provide to the API
-     * @return An AuthenticationStatus object
-     * @throws RequestError
-     *             Thrown when an exceptional condition is encountered
+     * @param deadline
+     *            The time by which the call must complete, or null for no deadline
+     * @return A future completed with a PairingStatus object, or exceptionally with a RequestError
+     *         on an I/O thread that dependent stages must not block
      */
-    public AuthenticationStatus authenticate(String pairingId, String terminalName,
-                                             String actionName, Map<String, String> extras) throws RequestError {
-        final String endpoint = "authentication_requests/initiate";
-
-        List<NameValuePair> params = new ArrayList<NameValuePair>();
-        params.add(new BasicNameValuePair("pairing_id", pairingId));
-        params.add(new BasicNameValuePair("terminal_name", terminalName));
-        if (actionName != null && actionName.length() > 0) {
-            params.add(new BasicNameValuePair("action_name", actionName));
-        }
-
+    public CompletableFuture<PairingStatus> pairAsync(String pairingPhrase, String userName, Map<String, String> extras,
+                                                      Deadline deadline) {
         try {
-            JSONObject json = post(endpoint, params, extras);
-            return new AuthenticationStatus(json);
+            List<NameValuePair> params = pairParameters(pairingPhrase, userName, extras);
+            CompletableFuture<PairingStatus> request = requestAsync(POST, pairUri, params, pairParser, deadline);
+            PairingIndex index = pairingIndex;
+            return index == null ? request : indexing(index, null, request);
         } catch (Exception e) {
-            throw new RequestError(e);
+            return failedFuture(e);
         }
     }
 
     /**
-     * Retrieve status information for an authentication request
+     * Retrieve the current status of a pairing request
      * 
-     * @param authenticationRequestId
-     *            The authentication request ID
-     * @return An AuthenticationStatus object
+     * @param pairingRequestId
+     *            The unique id for a pairing request
+     * @return A PairingStatus object
      * @throws RequestError
      *             Thrown when an exceptional condition is encountered
      */
-    public AuthenticationStatus getAuthenticationStatus(String authenticationRequestId)
-            throws RequestError {
-        final String endpoint = String.format("authentication_requests/%s", authenticationRequestId);
-
+    public PairingStatus getPairingStatus(String pairingRequestId) throws RequestError {
+        return getPairingStatus(pairingRequestId, null);
+    }
+
+    /**
+     * Retrieve the current status of a pairing request, failing if it can't be retrieved in time
+     * 
+     * @param pairingRequestId
+     *            The unique id for a pairing request
+     * @param deadline
+     *            The time by which the call must complete, or null for no deadline
+     * @return A PairingStatus object
+     * @throws RequestError
+     *             Thrown when an exceptional condition is encountered
+     */
+    public PairingStatus getPairingStatus(String pairingRequestId, Deadline deadline) throws RequestError {
+        PairingIndex index = pairingIndex;
+        if (index == null) {
+            return fetchPairingStatus(pairingRequestId, deadline);
+        }
+        PairingStatus indexed = fromIndex(index, pairingRequestId);
+        if (indexed != null) {
+            return indexed;
+        }
         try {
-            JSONObject json = get(endpoint);
-            return new AuthenticationStatus(json);
+            return indexPairing(index, fetchPairingStatus(pairingRequestId, deadline));
+        } catch (RequestError e) {
+            unindexPairing(index, pairingRequestId, e);
+            throw e;
+        }
+    }
+
+    private PairingStatus fetchPairingStatus(String pairingRequestId, Deadline deadline) throws RequestError {
+        try {
+            StatusCache<PairingStatus> cache = pairingStatusCache;
+            if (cache != null) {
+                return await(cache.get(pairingRequestId, deadline, pairingStatusLookup));
+            }
+            URI uri = pairingStatusEndpoint.expand(pairingRequestId);
+            if (hedgingPolicy != null) {
+                return await(getAsync(uri, pairingStatusParser, deadline));
+            }
+            return request(GET, uri, null, pairingStatusParser, deadline);
+        } catch (RequestError e) {
+            throw e;
         } catch (Exception e) {
-            throw new RequestError(e);
+            throw asRequestError(e);
+        }
+    }
+
+    /**
+     * Retrieve the current status of a pairing request without blocking the calling thread
+     * 
+     * @param pairingRequestId
+     *            The unique id for a pairing request
+     * @return A future completed with a PairingStatus object, or exceptionally with a RequestError
+     *         on an I/O thread that dependent stages must not block
+     */
+    public CompletableFuture<PairingStatus> getPairingStatusAsync(String pairingRequestId) {
+        return getPairingStatusAsync(pairingRequestId, null);
+    }
+
+    /**
+     * Retrieve the current status of a pairing request without blocking the calling thread, failing if it can't be
+     * retrieved in time
+     * 
+     * @param pairingRequestId
+     *            The unique id for a pairing request
+     * @param deadline
+     *            The time by which the call must complete, or null for no deadline
+     * @return A future completed with a PairingStatus object, or exceptionally with a RequestError
+     *         on an I/O thread that dependent stages must not block
+     */
+    public CompletableFuture<PairingStatus> getPairingStatusAsync(String pairingRequestId, Deadline deadline) {
+        PairingIndex index = pairingIndex;
+        if (index == null) {
+            return fetchPairingStatusAsync(pairingRequestId, deadline);
+        }
+        PairingStatus indexed = fromIndex(index, pairingRequestId);
+        if (indexed != null) {
+            return CompletableFuture.completedFuture(indexed);
+        }
+        return indexing(index, pairingRequestId, fetchPairingStatusAsync(pairingRequestId, deadline));
+    }
+
+    private CompletableFuture<PairingStatus> fetchPairingStatusAsync(String pairingRequestId, Deadline deadline) {
+        try {
+            StatusCache<PairingStatus> cache = pairingStatusCache;
+            if (cache != null) {
+                return cache.get(pairingRequestId, deadline, pairingStatusLookup);
+            }
+            return getAsync(pairingStatusEndpoint.expand(pairingRequestId), pairingStatusParser, deadline);
+        } catch (Exception e) {
+            return failedFuture(e);
+        }
+    }
+
+    /**
+     * Retrieve the current status of many pairing requests, with up to {@link #DEFAULT_BATCH_CONCURRENCY}
+     * requests in flight at once
+     * 
+     * @param pairingRequestIds
+     *            The unique ids of the pairing requests
+     * @return An iterator over the results in the order they arrive.  Requests are started as the iterator is
+     *         consumed; a lookup that fails is reported in its own result and doesn't stop the rest.
+     */
+    public Iterator<BatchResult<PairingStatus>> getPairingStatuses(Collection<String> pairingRequestIds) {
+        return getPairingStatuses(pairingRequestIds, DEFAULT_BATCH_CONCURRENCY, 0);
+    }
+
+    /**
+     * Retrieve the current status of many pairing requests
+     * 
+     * @param pairingRequestIds
+     *            The unique ids of the pairing requests
+     * @param maxConcurrency
+     *            The maximum number of requests in flight at once
+     * @param maxRequestsPerSecond
+     *            The maximum rate at which requests are sent, or zero for no limit
+     * @return An iterator over the results in the order they arrive.  Requests are started as the iterator is
+     *         consumed; a lookup that fails is reported in its own result and doesn't stop the rest.
+     */
+    public Iterator<BatchResult<PairingStatus>> getPairingStatuses(Collection<String> pairingRequestIds,
+                                                                   int maxConcurrency, double maxRequestsPerSecond) {
+        return new BatchFetcher<PairingStatus>(pairingRequestIds.iterator(), maxConcurrency, maxRequestsPerSecond) {
+
+            @Override
+            CompletableFuture<PairingStatus> fetch(String pairingRequestId) {
+                return getPairingStatusAsync(pairingRequestId);
+            }
+        };
+    }
+
+    /**
+     * Retrieve the current status of many pairing requests, returning once every lookup has finished
+     * 
+     * @param pairingRequestIds
+     *            The unique ids of the pairing requests
+     * @param maxConcurrency
+     *            The maximum number of requests in flight at once
+     * @param maxRequestsPerSecond
+     *            The maximum rate at which requests are sent, or zero for no limit
+     * @param callback
+     *            Receives each result as it arrives, always on the calling thread
+     */
+    public void getPairingStatuses(Collection<String> pairingRequestIds, int maxConcurrency,
+                                   double maxRequestsPerSecond, BatchCallback<PairingStatus> callback) {
+        Iterator<BatchResult<PairingStatus>> results = getPairingStatuses(pairingRequestIds, maxConcurrency,
+                                                                          maxRequestsPerSecond);
+        while (results.hasNext()) {
+            BatchResult<PairingStatus> result = results.next();
+            try {
+                callback.onSuccess(result.getId(), result.get());
+            } catch (RequestError e) {
+                callback.onFailure(result.getId(), e);
+            }
+        }
+    }
+
+    /**
+     * Initiate a login authentication request
+     * 
+     * @param pairingId
+     *            The pairing id indicating to whom the request should be sent
+     * @param terminalName
+     *            The user-facing descriptive name for the terminal from which the request originates
+     * @return An AuthenticationStatus object
+     * @throws RequestError
+     *             Thrown when an exceptional condition is encountered
+     */
+    public AuthenticationStatus authenticate(String pairingId, String terminalName) throws RequestError {
+        return authenticate(pairingId, terminalName, null, null);
+    }
+    
+    /**
+     * Initiate a login authentication request
+     * 
+     * @param pairingId
+     *            The pairing id indicating to whom the request should be sent
+     * @param terminalName
+     *            The user-facing descriptive name for the terminal from which the request originates
+     * @param actionName
+     *            The user-facing descriptive name for the action which is being authenticated
+     * @return An AuthenticationStatus object
+     * @throws RequestError
+     *             Thrown when an exceptional condition is encountered
+     */
+    public AuthenticationStatus authenticate(String pairingId, String terminalName, String actionName) throws RequestError {
+        return authenticate(pairingId, terminalName, actionName, null);
+    }
+
+    /**
+     * Initiate an authentication request
+     * 
+     * @param pairingId
+     *            The pairing id indicating to whom the request should be sent
+     * @param terminalName
+     *            The user-facing descriptive name for the terminal from which the request originates
+     * @param actionName
+     *            The user-facing descriptive name for the action which is being authenticated
+     * @param extras
+     *            An optional Map of extra parameters to provide to the API
+     * @return An AuthenticationStatus object
+     * @throws RequestError
+     *             Thrown when an exceptional condition is encountered
+     */
+    public AuthenticationStatus authenticate(String pairingId, String terminalName,
+                                             String actionName, Map<String, String> extras) throws RequestError {
+        return authenticate(pairingId, terminalName, actionName, extras, null);
+    }
+
+    /**
+     * Initiate an authentication request, failing if it can't be initiated in time
+     * 
+     * @param pairingId
+     *            The pairing id indicating to whom the request should be sent
+     * @param terminalName
+     *            The user-facing descriptive name for the terminal from which the request originates
+     * @param actionName
+     *            The user-facing descriptive name for the action which is being authenticated
+     * @param extras
+     *            An optional Map of extra parameters to provide to the API
+     * @param deadline
+     *            The time by which the call must complete, or null for no deadline
+     * @return An AuthenticationStatus object
+     * @throws RequestError
+     *             Thrown when an exceptional condition is encountered
+     */
+    public AuthenticationStatus authenticate(String pairingId, String terminalName, String actionName,
+                                             Map<String, String> extras, Deadline deadline) throws RequestError {
+        try {
+            List<NameValuePair> params = authenticateParameters(pairingId, terminalName, actionName, extras);
+            return request(POST, authenticateUri, params, authenticateParser, deadline);
+        } catch (RequestError e) {
+            AuthenticationStatus fallback = fallbackStatus(e, terminalName, actionName);
+            if (fallback != null) {
+                return fallback;
+            }
+            throw e;
+        } catch (Exception e) {
+            RequestError error = asRequestError(e);
+            unindexPairing(pairingIndex, pairingId, error);
+            throw error;
+        }
+    }
+
+    /**
+     * Initiate a login authentication request without blocking the calling thread
+     * 
+     * @param pairingId
+     *            The pairing id indicating to whom the request should be sent
+     * @param terminalName
+     *            The user-facing descriptive name for the terminal from which the request originates
+     * @return A future completed with an AuthenticationStatus object, or exceptionally with a RequestError
+     *         on an I/O thread that dependent stages must not block
+     */
+    public CompletableFuture<AuthenticationStatus> authenticateAsync(String pairingId, String terminalName) {
+        return authenticateAsync(pairingId, terminalName, null, null);
+    }
+
+    /**
+     * Initiate a login authentication request without blocking the calling thread
+     * 
+     * @param pairingId
+     *            The pairing id indicating to whom the request should be sent
+     * @param terminalName
+     *            The user-facing descriptive name for the terminal from which the request originates
+     * @param actionName
+     *            The user-facing descriptive name for the action which is being authenticated
+     * @return A future completed with an AuthenticationStatus object, or exceptionally with a RequestError
+     *         on an I/O thread that dependent stages must not block
+     */
+    public CompletableFuture<AuthenticationStatus> authenticateAsync(String pairingId, String terminalName,
+                                                                     String actionName) {
+        return authenticateAsync(pairingId, terminalName, actionName, null);
+    }
+
+    /**
+     * Initiate an authentication request without blocking the calling thread
+     * 
+     * @param pairingId
+     *            The pairing id indicating to whom the request should be sent
+     * @param terminalName
+     *            The user-facing descriptive name for the terminal from which the request originates
+     * @param actionName
+     *            The user-facing descriptive name for the action which is being authenticated
+     * @param extras
+     *            An optional Map of extra parameters to provide to the API
+     * @return A future completed with an AuthenticationStatus object, or exceptionally with a RequestError
+     *         on an I/O thread that dependent stages must not block
+     */
+    public CompletableFuture<AuthenticationStatus> authenticateAsync(String pairingId, String terminalName,
+                                                                     String actionName, Map<String, String> extras) {
+        return authenticateAsync(pairingId, terminalName, actionName, extras, null);
+    }
+
+    /**
+     * Initiate an authentication request without blocking the calling thread, failing if it can't be initiated in
+     * time
+     * 
+     * @param pairingId
+     *            The pairing id indicating to whom the request should be sent
+     * @param terminalName
+     *            The user-facing descriptive name for the terminal from which the request originates
+     * @param actionName
+     *            The user-facing descriptive name for the action which is being authenticated
+     * @param extras
+     *            An optional Map of extra parameters to provide to the API
+     * @param deadline
+     *            The time by which the call must complete, or null for no deadline
+     * @return A future completed with an AuthenticationStatus object, or exceptionally with a RequestError
+     *         on an I/O thread that dependent stages must not block
+     */
+    public CompletableFuture<AuthenticationStatus> authenticateAsync(String pairingId, String terminalName,
+                                                                     String actionName, Map<String, String> extras,
+                                                                     Deadline deadline) {
+        try {
+            List<NameValuePair> params = authenticateParameters(pairingId, terminalName, actionName, extras);
+            CompletableFuture<AuthenticationStatus> request = requestAsync(POST, authenticateUri, params,
+                                                                           authenticateParser, deadline);
+            final PairingIndex index = pairingIndex;
+            if (index != null) {
+                request.whenComplete((status, error) -> {
+                    if (error != null) {
+                        unindexPairing(index, pairingId, asException(error));
+                    }
+                });
+            }
+            return circuitBreaker == null ? request : withFallback(request, terminalName, actionName);
+        } catch (Exception e) {
+            return failedFuture(e);
+        }
+    }
+
+    /**
+     * Retrieve status information for an authentication request
+     * 
+     * @param authenticationRequestId
+     *            The authentication request ID
+     * @return An AuthenticationStatus object
+     * @throws RequestError
+     *             Thrown when an exceptional condition is encountered
+     */
+    public AuthenticationStatus getAuthenticationStatus(String authenticationRequestId)
+            throws RequestError {
+        return getAuthenticationStatus(authenticationRequestId, null);
+    }
+
+    /**
+     * Retrieve status information for an authentication request, failing if it can't be retrieved in time
+     * 
+     * @param authenticationRequestId
+     *            The authentication request ID
+     * @param deadline
+     *            The time by which the call must complete, or null for no deadline
+     * @return An AuthenticationStatus object
+     * @throws RequestError
+     *             Thrown when an exceptional condition is encountered
+     */
+    public AuthenticationStatus getAuthenticationStatus(String authenticationRequestId, Deadline deadline)
+            throws RequestError {
+        try {
+            StatusCache<AuthenticationStatus> cache = authenticationStatusCache;
+            if (cache != null) {
+                return await(cache.get(authenticationRequestId, deadline, authenticationStatusLookup));
+            }
+            URI uri = authenticationStatusEndpoint.expand(authenticationRequestId);
+            if (hedgingPolicy != null) {
+                return await(getAsync(uri, authenticationStatusParser, deadline));
+            }
+            return request(GET, uri, null, authenticationStatusParser, deadline);
+        } catch (RequestError e) {
+            throw e;
+        } catch (Exception e) {
+            throw asRequestError(e);
         }
     }
 
-    private JSONObject get(String endpoint) throws Exception {
-    	return request(new HttpGet(), endpoint);
+    /**
+     * Retrieve status information for an authentication request without blocking the calling thread
+     * 
+     * @param authenticationRequestId
+     *            The authentication request ID
+     * @return A future completed with an AuthenticationStatus object, or exceptionally with a RequestError
+     *         on an I/O thread that dependent stages must not block
+     */
+    public CompletableFuture<AuthenticationStatus> getAuthenticationStatusAsync(String authenticationRequestId) {
+        return getAuthenticationStatusAsync(authenticationRequestId, null);
+    }
+
+    /**
+     * Retrieve status information for an authentication request without blocking the calling thread, failing if it
+     * can't be retrieved in time
+     * 
+     * @param authenticationRequestId
+     *            The authentication request ID
+     * @param deadline
+     *            The time by which the call must complete, or null for no deadline
+     * @return A future completed with an AuthenticationStatus object, or exceptionally with a RequestError
+     *         on an I/O thread that dependent stages must not block
+     */
+    public CompletableFuture<AuthenticationStatus> getAuthenticationStatusAsync(String authenticationRequestId,
+                                                                               Deadline deadline) {
+        try {
+            StatusCache<AuthenticationStatus> cache = authenticationStatusCache;
+            if (cache != null) {
+                return cache.get(authenticationRequestId, deadline, authenticationStatusLookup);
+            }
+            return getAsync(authenticationStatusEndpoint.expand(authenticationRequestId),
+                            authenticationStatusParser, deadline);
+        } catch (Exception e) {
+            return failedFuture(e);
+        }
+    }
+
+    private static List<NameValuePair> pairParameters(String pairingPhrase, String userName,
+                                                      Map<String, String> extras) {
+        List<NameValuePair> params = new ArrayList<NameValuePair>();
+        params.add(new BasicNameValuePair("pairing_phrase", pairingPhrase));
+        params.add(new BasicNameValuePair("user_name", userName));
+
+        return withExtras(params, extras);
+    }
+
+    private static List<NameValuePair> authenticateParameters(String pairingId, String terminalName,
+                                                              String actionName, Map<String, String> extras) {
+        List<NameValuePair> params = new ArrayList<NameValuePair>();
+        params.add(new BasicNameValuePair("pairing_id", pairingId));
+        params.add(new BasicNameValuePair("terminal_name", terminalName));
+        if (actionName != null && actionName.length() > 0) {
+            params.add(new BasicNameValuePair("action_name", actionName));
+        }
+
+        return withExtras(params, extras);
     }
 
-    private JSONObject post(String endpoint, List<NameValuePair> params, Map<String, String> extras) throws Exception {
-        HttpPost post = new HttpPost();
+    private static List<NameValuePair> withExtras(List<NameValuePair> params, Map<String, String> extras) {
         if (extras != null && extras.size() > 0) {
         	for (Map.Entry<String, String> e : extras.entrySet()){
         		params.add(new BasicNameValuePair(e.getKey(), e.getValue()));
         	}
         }
-        if (params != null && params.size() > 0) {
-            post.setEntity(new UrlEncodedFormEntity(params));
+        return params;
+    }
+
+    private <T> T request(String method, URI uri, List<NameValuePair> formParameters, ResponseParser<T> parser,
+                          Deadline deadline) throws Exception {
+        RetryPolicy retryPolicy = this.retryPolicy;
+        if (retryPolicy == null) {
+            return requestOnce(method, uri, formParameters, parser, deadline);
+        }
+        retryPolicy.onRequest();
+        boolean idempotent = GET.equals(method);
+        for (int attempt = 1;; attempt++) {
+            try {
+                return requestOnce(method, uri, formParameters, parser, deadline);
+            } catch (Exception e) {
+                if (!retryPolicy.shouldRetry(attempt, e, idempotent)) {
+                    throw e;
+                }
+                long backoffNanos = retryPolicy.backoffNanos(attempt);
+                if (deadline != null && backoffNanos >= deadline.remainingNanos()) {
+                    throw Deadline.exceeded(e);
+                }
+                onRetry(parser, attempt, e);
+                try {
+                    TimeUnit.NANOSECONDS.sleep(backoffNanos);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
         }
-        return request(post, endpoint);
     }
-    
-    private JSONObject request(HttpRequestBase httpRequest, String endpoint) throws Exception {
-    	httpRequest.setURI(new URIBuilder().setScheme(this.uriScheme).setHost(this.uriHost)
-    			.setPort(this.uriPort)
-                .setPath(this.uriBase + endpoint).build());
-    	consumer.sign(httpRequest);
-    	return httpClient.execute(httpRequest, jsonHandler);
+
+    private <T> T requestOnce(String method, URI uri, List<NameValuePair> formParameters, ResponseParser<T> parser,
+                              Deadline deadline) throws Exception {
+        if (deadline != null && deadline.isExpired()) {
+            throw Deadline.exceeded(null);
+        }
+        Instrumentation instrumentation = this.instrumentation;
+        if (instrumentation == null) {
+            return parse(parser, exchange(method, uri, formParameters, deadline, null), null);
+        }
+        RequestTrace trace = RequestTrace.start(parser.endpoint(), uri, instrumentation);
+        Exception failure = null;
+        try {
+            return parse(parser, exchange(method, uri, formParameters, deadline, trace), trace);
+        } catch (Exception e) {
+            failure = e;
+            throw e;
+        } finally {
+            trace.complete(failure);
+        }
     }
 
-    private static ResponseHandler<JSONObject> jsonHandler = new ResponseHandler<JSONObject>() {
+    /**
+     * Send a request once it is admitted by the limiters and circuit breaker, and read the response body
+     */
+    private byte[] exchange(String method, URI uri, List<NameValuePair> formParameters, Deadline deadline,
+                            RequestTrace trace) throws Exception {
+        RateLimiter rateLimiter = this.rateLimiter;
+        if (rateLimiter != null) {
+            rateLimiter.acquire(deadline);
+        }
+        ConcurrencyLimiter concurrencyLimiter = this.concurrencyLimiter;
+        CircuitBreaker circuitBreaker = this.circuitBreaker;
+        if (concurrencyLimiter == null && circuitBreaker == null && deadline == null) {
+            return execute(newRequest(method, uri, formParameters, null, trace), trace);
+        }
 
-        @Override
-        public JSONObject handleResponse(HttpResponse response) throws ClientProtocolException,
-                IOException {
-            StatusLine statusLine = response.getStatusLine();
-            if (statusLine.getStatusCode() >= 300) {
-                throw new HttpResponseException(statusLine.getStatusCode(),
-                                                statusLine.getReasonPhrase());
+        if (concurrencyLimiter != null) {
+            concurrencyLimiter.acquire(deadline);
+        }
+        if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+            if (concurrencyLimiter != null) {
+                concurrencyLimiter.release();
+            }
+            throw new RequestError(new CircuitBreakerOpenException());
+        }
+        long start = System.nanoTime();
+        TransportRequest request;
+        try {
+            request = newRequest(method, uri, formParameters, deadline, trace);
+        } catch (Exception e) {
+            // never sent
+            release(concurrencyLimiter, circuitBreaker);
+            throw e;
+        }
+        Exception failure = null;
+        try {
+            return execute(request, trace);
+        } catch (Exception e) {
+            failure = e;
+            if (deadline != null && deadline.isExpired()) {
+                throw Deadline.exceeded(e);
+            }
+            throw e;
+        } finally {
+            onCompleted(concurrencyLimiter, circuitBreaker, System.nanoTime() - start, failure);
+        }
+    }
+
+    private byte[] execute(TransportRequest request, RequestTrace trace) throws Exception {
+        byte[] body = responseBody(transport.send(request));
+        if (trace != null) {
+            trace.responseRead(body.length);
+        }
+        return body;
+    }
+
+    /**
+     * Sign a request and encode its form parameters as the body
+     */
+    private TransportRequest newRequest(String method, URI uri, List<NameValuePair> formParameters,
+                                        Deadline deadline, RequestTrace trace) throws RequestError {
+        if (trace != null) {
+            trace.mark(RequestTrace.Phase.QUEUE);
+        }
+        if (router != null) {
+            uri = router.route(uri);
+        }
+        String authorization = requestSigner.sign(method, uri, formParameters);
+        byte[] body = null;
+        String contentType = null;
+        if (formParameters != null && formParameters.size() > 0) {
+            // the same encoding HttpClient gives a form entity by default
+            body = URLEncodedUtils.format(formParameters, ISO_8859_1.name()).getBytes(ISO_8859_1);
+            contentType = FORM_CONTENT_TYPE;
+        }
+        if (trace != null) {
+            trace.mark(RequestTrace.Phase.SIGN);
+        }
+        return new TransportRequest(method, uri, authorization, contentType, body, USER_AGENT, connectTimeoutMillis,
+                                    readTimeoutMillis, connectionRequestTimeoutMillis, deadline, trace);
+    }
+
+    /**
+     * Check the status of a response and return its body as UTF-8 encoded bytes, without decoding it into a String
+     */
+    private static byte[] responseBody(TransportResponse response) throws IOException {
+        int status = response.getStatusCode();
+        if (status >= 300) {
+            String reasonPhrase = response.getReasonPhrase() == null ? "HTTP " + status : response.getReasonPhrase();
+            throw ApiResponseException.parse(status, reasonPhrase, response.getBody());
+        }
+        byte[] body = response.getBody();
+        if (body == null) {
+            throw new IOException("Response contains no content");
+        }
+        Charset charset = charsetOf(response.getContentType());
+        if (charset != null && !UTF_8.equals(charset)) {
+            body = new String(body, charset).getBytes(UTF_8);
+        }
+        return body;
+    }
+
+    /**
+     * @return The charset named by a Content-Type header, or null if it names none or one that isn't supported
+     */
+    private static Charset charsetOf(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        for (String parameter : contentType.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.regionMatches(true, 0, "charset=", 0, "charset=".length())) {
+                try {
+                    return Charset.forName(trimmed.substring("charset=".length()).replace("\"", ""));
+                } catch (IllegalArgumentException e) {
+                    // an illegal or unsupported charset name
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private <T> T parse(ResponseParser<T> parser, byte[] body, RequestTrace trace) throws JSONException {
+        T value = parser.parse(body, retainRawResponses);
+        if (trace != null) {
+            trace.mark(RequestTrace.Phase.PARSE);
+        }
+        return value;
+    }
+
+    private void onRetry(ResponseParser<?> parser, int attempt, Exception failure) {
+        Instrumentation instrumentation = this.instrumentation;
+        if (instrumentation != null) {
+            instrumentation.requestRetried(parser.endpoint(), attempt, RequestTrace.ErrorCategory.of(failure));
+        }
+    }
+
+    /**
+     * Send a status lookup, hedging it with a second request if the hedging policy calls for one
+     */
+    private <T> CompletableFuture<T> getAsync(final URI uri, final ResponseParser<T> parser,
+                                              final Deadline deadline) {
+        final HedgingPolicy hedgingPolicy = this.hedgingPolicy;
+        if (hedgingPolicy == null) {
+            return requestAsync(GET, uri, null, parser, deadline);
+        }
+        final CompletableFuture<T> result = new CompletableFuture<T>();
+        final AtomicInteger outstanding = new AtomicInteger(1);
+        race(timedGetAsync(uri, parser, hedgingPolicy, deadline), result, outstanding);
+
+        long delayNanos = hedgingPolicy.onRequest();
+        if (delayNanos >= 0) {
+            final ScheduledFuture<?> hedgeTimer = SharedScheduler.get().schedule(() -> {
+                if (result.isDone() || !hedgingPolicy.tryHedge()) {
+                    return;
+                }
+                outstanding.incrementAndGet();
+                race(requestAsync(GET, uri, null, parser, deadline), result, outstanding);
+            }, delayNanos, TimeUnit.NANOSECONDS);
+            result.whenComplete((value, error) -> hedgeTimer.cancel(false));
+        }
+        return result;
+    }
+
+    /**
+     * Send the first request of a status lookup, recording its latency for the hedging policy.  Only first requests
+     * are sampled, including those cancelled because a hedge won, so that the lookups slow enough to be hedged keep
+     * counting towards the latency percentile.
+     */
+    private <T> CompletableFuture<T> timedGetAsync(URI uri, ResponseParser<T> parser,
+                                                   final HedgingPolicy hedgingPolicy, Deadline deadline) {
+        final long start = System.nanoTime();
+        CompletableFuture<T> response = requestAsync(GET, uri, null, parser, deadline);
+        response.whenComplete((value, error) -> {
+            // a cancelled request had taken at least this long
+            if (error == null || error instanceof CancellationException) {
+                hedgingPolicy.recordLatency(System.nanoTime() - start);
+            }
+        });
+        return response;
+    }
+
+    /**
+     * Complete the result with the first request to succeed, or the last to fail, and cancel the others
+     */
+    private static <T> void race(final CompletableFuture<T> request, final CompletableFuture<T> result,
+                                 final AtomicInteger outstanding) {
+        request.whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+            } else if (outstanding.decrementAndGet() == 0) {
+                result.completeExceptionally(error);
+            }
+        });
+        result.whenComplete((value, error) -> request.cancel(false));
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws RequestError {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw asRequestError(asException(e.getCause()));
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new RequestError(e);
+        }
+    }
+
+    private <T> CompletableFuture<T> requestAsync(String method, URI uri, List<NameValuePair> formParameters,
+                                                  ResponseParser<T> parser, Deadline deadline) {
+        CompletableFuture<T> result = new CompletableFuture<T>();
+        if (deadline != null) {
+            deadline.enforce(result);
+        }
+        RetryPolicy retryPolicy = this.retryPolicy;
+        if (retryPolicy == null) {
+            sendAsync(method, uri, formParameters, parser, result, deadline);
+        } else {
+            retryPolicy.onRequest();
+            attemptAsync(method, uri, formParameters, parser, result, deadline, retryPolicy, 1);
+        }
+        return result;
+    }
+
+    private <T> void attemptAsync(final String method, final URI uri, final List<NameValuePair> formParameters,
+                                  final ResponseParser<T> parser, final CompletableFuture<T> result,
+                                  final Deadline deadline, final RetryPolicy retryPolicy, final int attempt) {
+        final CompletableFuture<T> attemptResult = new CompletableFuture<T>();
+        // a result completed by cancellation or the deadline abandons the attempt in progress
+        result.whenComplete((value, error) -> attemptResult.cancel(false));
+        attemptResult.whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+                return;
+            }
+            Throwable cause = error.getCause();
+            boolean idempotent = GET.equals(method);
+            if (result.isDone() || !(cause instanceof Exception)
+                    || !retryPolicy.shouldRetry(attempt, (Exception) cause, idempotent)) {
+                result.completeExceptionally(error);
+                return;
+            }
+            long backoffNanos = retryPolicy.backoffNanos(attempt);
+            if (deadline != null && backoffNanos >= deadline.remainingNanos()) {
+                result.completeExceptionally(Deadline.exceeded(cause));
+                return;
+            }
+            onRetry(parser, attempt, (Exception) cause);
+            try {
+                SharedScheduler.get().schedule(() -> {
+                    attemptAsync(method, uri, formParameters, parser, result, deadline, retryPolicy,
+                                 attempt + 1);
+                }, backoffNanos, TimeUnit.NANOSECONDS);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(error);
+            }
+        });
+        sendAsync(method, uri, formParameters, parser, attemptResult, deadline);
+    }
+
+    private <T> void sendAsync(final String method, final URI uri, final List<NameValuePair> formParameters,
+                               final ResponseParser<T> parser, final CompletableFuture<T> result,
+                               final Deadline deadline) {
+        Instrumentation instrumentation = this.instrumentation;
+        final RequestTrace trace = instrumentation == null ? null
+                : RequestTrace.start(parser.endpoint(), uri, instrumentation);
+        if (trace != null) {
+            result.whenComplete((value, error) -> trace.complete(error == null ? null : asException(error)));
+        }
+        try {
+            RateLimiter rateLimiter = this.rateLimiter;
+            long delayNanos = rateLimiter == null ? 0 : rateLimiter.reserve(deadline);
+            if (delayNanos > 0) {
+                SharedScheduler.get().schedule(
+                        () -> acquireAndSend(method, uri, formParameters, parser, result, deadline, trace),
+                        delayNanos, TimeUnit.NANOSECONDS);
+            } else {
+                acquireAndSend(method, uri, formParameters, parser, result, deadline, trace);
+            }
+        } catch (Exception e) {
+            result.completeExceptionally(asRequestError(e));
+        }
+    }
+
+    private <T> void acquireAndSend(final String method, final URI uri, final List<NameValuePair> formParameters,
+                                    final ResponseParser<T> parser, final CompletableFuture<T> result,
+                                    final Deadline deadline, final RequestTrace trace) {
+        final ConcurrencyLimiter concurrencyLimiter = this.concurrencyLimiter;
+        if (concurrencyLimiter == null) {
+            send(method, uri, formParameters, parser, result, deadline, trace, null);
+            return;
+        }
+        concurrencyLimiter.acquireAsync().whenComplete((slot, error) -> {
+            if (error != null) {
+                result.completeExceptionally(asRequestError(asException(error)));
+            } else {
+                send(method, uri, formParameters, parser, result, deadline, trace, concurrencyLimiter);
+            }
+        });
+    }
+
+    private <T> void send(String method, URI uri, List<NameValuePair> formParameters,
+                          final ResponseParser<T> parser, final CompletableFuture<T> result, Deadline deadline,
+                          final RequestTrace trace, final ConcurrencyLimiter concurrencyLimiter) {
+        if (result.isDone()) {
+            // cancelled while waiting to be sent
+            if (concurrencyLimiter != null) {
+                concurrencyLimiter.release();
+            }
+            return;
+        }
+        final CircuitBreaker circuitBreaker = this.circuitBreaker;
+        if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+            if (concurrencyLimiter != null) {
+                concurrencyLimiter.release();
+            }
+            result.completeExceptionally(new RequestError(new CircuitBreakerOpenException()));
+            return;
+        }
+        final long start = System.nanoTime();
+        try {
+            TransportRequest request = newRequest(method, uri, formParameters, deadline, trace);
+            final CompletableFuture<TransportResponse> exchange = transport.sendAsync(request);
+            result.whenComplete((value, error) -> exchange.cancel(false));
+            exchange.whenComplete((response, error) -> {
+                byte[] body = null;
+                Exception failure = error == null ? null : asException(error);
+                if (failure == null) {
+                    try {
+                        body = responseBody(response);
+                        if (trace != null) {
+                            trace.responseRead(body.length);
+                        }
+                    } catch (Exception e) {
+                        failure = e;
+                    }
+                }
+                onCompleted(concurrencyLimiter, circuitBreaker, System.nanoTime() - start, failure);
+                if (failure != null) {
+                    result.completeExceptionally(asRequestError(failure));
+                    return;
+                }
+                try {
+                    result.complete(parse(parser, body, trace));
+                } catch (Exception e) {
+                    result.completeExceptionally(asRequestError(e));
+                }
+            });
+        } catch (Exception e) {
+            release(concurrencyLimiter, circuitBreaker);
+            result.completeExceptionally(asRequestError(e));
+        }
+    }
+
+    /**
+     * Report the outcome of a request that was sent to the limiter and breaker that admitted it
+     */
+    private static void onCompleted(ConcurrencyLimiter concurrencyLimiter, CircuitBreaker circuitBreaker,
+                                    long latencyNanos, Exception failure) {
+        if (failure instanceof CancellationException) {
+            // a hedge that lost or a caller that gave up: neither the time it ran nor its outcome says anything
+            // about the API
+            release(concurrencyLimiter, circuitBreaker);
+            return;
+        }
+        if (concurrencyLimiter != null) {
+            concurrencyLimiter.release(latencyNanos, isOverload(failure));
+        }
+        if (circuitBreaker != null) {
+            circuitBreaker.onResult(latencyNanos, isUnhealthy(failure));
+        }
+    }
+
+    /**
+     * Give back the permits of a request that was never sent or was cancelled, without reporting an outcome
+     */
+    private static void release(ConcurrencyLimiter concurrencyLimiter, CircuitBreaker circuitBreaker) {
+        if (concurrencyLimiter != null) {
+            concurrencyLimiter.release();
+        }
+        if (circuitBreaker != null) {
+            circuitBreaker.release();
+        }
+    }
+
+    private static <T> CompletableFuture<T> failedFuture(Exception e) {
+        CompletableFuture<T> result = new CompletableFuture<T>();
+        result.completeExceptionally(asRequestError(e));
+        return result;
+    }
+
+    private static RequestError asRequestError(Exception e) {
+        if (e instanceof RequestError) {
+            return (RequestError) e;
+        }
+        if (e instanceof ApiResponseException) {
+            return ((ApiResponseException) e).toApiError();
+        }
+        return new RequestError(e);
+    }
+
+    /**
+     * @return true if the failure suggests the API is overloaded: it throttled the request, failed with a server
+     *         error, or didn't answer in time
+     */
+    private static boolean isOverload(Exception e) {
+        if (e instanceof HttpResponseException) {
+            int status = ((HttpResponseException) e).getStatusCode();
+            return status == 429 || status >= 500;
+        }
+        return e instanceof SocketTimeoutException || e instanceof ConnectTimeoutException
+                || e instanceof HttpTimeoutException;
+    }
+
+    /**
+     * @return true if the failure reflects on the health of the API rather than the request: it could not be
+     *         completed, or the server was overloaded or failed
+     */
+    private static boolean isUnhealthy(Exception e) {
+        if (e instanceof HttpResponseException) {
+            return isOverload(e);
+        }
+        return e instanceof IOException;
+    }
+
+    /**
+     * @return The status to return in place of an authentication request rejected by an open circuit breaker, or
+     *         null if the request should fail
+     */
+    private AuthenticationStatus fallbackStatus(Exception e, String terminalName, String actionName) {
+        CircuitBreaker circuitBreaker = this.circuitBreaker;
+        if (circuitBreaker == null || !(e instanceof RequestError)
+                || !(e.getCause() instanceof CircuitBreakerOpenException)) {
+            return null;
+        }
+        CircuitBreaker.Fallback fallback = circuitBreaker.getFallback(actionName);
+        if (fallback == CircuitBreaker.Fallback.FAIL) {
+            return null;
+        }
+        boolean granted = fallback == CircuitBreaker.Fallback.FAIL_OPEN;
+        return new AuthenticationStatus.Builder()
+                .setId("")
+                .setPending(false)
+                .setGranted(granted)
+                .setAutomated(true)
+                .setReason(granted ? "Toopher API unavailable; allowed by fallback"
+                                   : "Toopher API unavailable; denied by fallback")
+                .setTerminalId("")
+                .setTerminalName(terminalName == null ? "" : terminalName)
+                .build();
+    }
+
+    private CompletableFuture<AuthenticationStatus> withFallback(CompletableFuture<AuthenticationStatus> request,
+                                                                 final String terminalName,
+                                                                 final String actionName) {
+        final CompletableFuture<AuthenticationStatus> result = new CompletableFuture<AuthenticationStatus>();
+        request.whenComplete((status, error) -> {
+            if (error == null) {
+                result.complete(status);
+                return;
+            }
+            AuthenticationStatus fallback = fallbackStatus(asException(error), terminalName, actionName);
+            if (fallback != null) {
+                result.complete(fallback);
+            } else {
+                result.completeExceptionally(error);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @return The pairing stored in the index if it is still fresh, or null if it must be looked up.  A pairing near
+     *         the end of its time-to-live is also refreshed in the background, once however many lookups find it.
+     */
+    private PairingStatus fromIndex(final PairingIndex index, final String pairingId) {
+        PairingIndex.Entry entry;
+        try {
+            entry = index.lookup(pairingId);
+        } catch (IOException e) {
+            // the index is only an optimization
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        // a pending pairing changes as soon as the user answers, so it is always looked up
+        if (entry == null || entry.status.isPending() || index.isExpired(entry, now)) {
+            return null;
+        }
+        if (index.startRefresh(entry, now)) {
+            CompletableFuture<PairingStatus> refresh;
+            try {
+                refresh = pairingStatusLookup.apply(pairingId);
+            } catch (RuntimeException e) {
+                refresh = failedFuture(e);
+            }
+            refresh.whenComplete((status, error) -> {
+                if (error == null) {
+                    indexPairing(index, status);
+                } else {
+                    unindexPairing(index, pairingId, asException(error));
+                }
+                index.endRefresh(pairingId);
+            });
+        }
+        return entry.status;
+    }
+
+    /**
+     * @param pairingId
+     *            The pairing to remove from the index if the lookup fails because it is unknown, or null to keep it
+     * @return A future completed once the result of the lookup has been recorded in the index
+     */
+    private CompletableFuture<PairingStatus> indexing(final PairingIndex index, final String pairingId,
+                                                      CompletableFuture<PairingStatus> lookup) {
+        final CompletableFuture<PairingStatus> result = new CompletableFuture<PairingStatus>();
+        lookup.whenComplete((status, error) -> {
+            if (error == null) {
+                result.complete(indexPairing(index, status));
+                return;
             }
+            if (pairingId != null) {
+                unindexPairing(index, pairingId, asException(error));
+            }
+            result.completeExceptionally(asException(error));
+        });
+        return result;
+    }
 
-            HttpEntity entity = response.getEntity(); // TODO: check entity == null
-            String json = EntityUtils.toString(entity);
+    private static PairingStatus indexPairing(PairingIndex index, PairingStatus status) {
+        if (index != null && !status.isPending()) {
+            try {
+                index.put(status);
+            } catch (IOException e) {
+                // the index is only an optimization; the pairing is looked up again next time
+            }
+        }
+        return status;
+    }
 
+    /**
+     * Remove a pairing from the index if the API reports it deactivated or unknown
+     */
+    private static void unindexPairing(PairingIndex index, String pairingId, Exception e) {
+        if (index == null || !(e instanceof ApiError)) {
+            return;
+        }
+        if (e instanceof PairingDeactivatedError || ((ApiError) e).getStatusCode() == 404) {
             try {
-                return (JSONObject) new JSONTokener(json).nextValue();
-            } catch (JSONException e) {
-                throw new ClientProtocolException("Could not interpret response as JSON", e);
+                index.remove(pairingId);
+            } catch (IOException ioe) {
+                // a stale pairing is refreshed when its time-to-live passes
             }
         }
+    }
+
+    private static Exception asException(Throwable t) {
+        if (t instanceof CompletionException && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t instanceof Exception ? (Exception) t : new ExecutionException(t);
+    }
+
+    /**
+     * Decodes a response body into the object returned to callers
+     */
+    private interface ResponseParser<T> {
+        T parse(byte[] body, boolean retainRaw) throws JSONException;
+
+        /**
+         * @return The operation whose responses this parser decodes, for instrumentation
+         */
+        RequestTrace.Endpoint endpoint();
+    }
+
+    private static final ResponseParser<PairingStatus> pairParser = new ResponseParser<PairingStatus>() {
+
+        @Override
+        public PairingStatus parse(byte[] body, boolean retainRaw) throws JSONException {
+            return PairingStatus.decode(body, retainRaw);
+        }
+
+        @Override
+        public RequestTrace.Endpoint endpoint() {
+            return RequestTrace.Endpoint.PAIR;
+        }
+    };
+
+    private static final ResponseParser<PairingStatus> pairingStatusParser = new ResponseParser<PairingStatus>() {
+
+        @Override
+        public PairingStatus parse(byte[] body, boolean retainRaw) throws JSONException {
+            return PairingStatus.decode(body, retainRaw);
+        }
+
+        @Override
+        public RequestTrace.Endpoint endpoint() {
+            return RequestTrace.Endpoint.PAIRING_STATUS;
+        }
     };
 
+    private static final ResponseParser<AuthenticationStatus> authenticateParser = new ResponseParser<AuthenticationStatus>() {
+
+        @Override
+        public AuthenticationStatus parse(byte[] body, boolean retainRaw) throws JSONException {
+            return AuthenticationStatus.decode(body, retainRaw);
+        }
+
+        @Override
+        public RequestTrace.Endpoint endpoint() {
+            return RequestTrace.Endpoint.AUTHENTICATE;
+        }
+    };
+
+    private static final ResponseParser<AuthenticationStatus> authenticationStatusParser = new ResponseParser<AuthenticationStatus>() {
+
+        @Override
+        public AuthenticationStatus parse(byte[] body, boolean retainRaw) throws JSONException {
+            return AuthenticationStatus.decode(body, retainRaw);
+        }
+
+        @Override
+        public RequestTrace.Endpoint endpoint() {
+            return RequestTrace.Endpoint.AUTHENTICATION_STATUS;
+        }
+    };
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    static final String USER_AGENT = String.format("ToopherJava/%s", VERSION);
+
     private static final String DEFAULT_URI_SCHEME = "https";
     private static final String DEFAULT_URI_HOST = "api.toopher.com";
     private static final String DEFAULT_URI_BASE = "/v1/";
     private static final int DEFAULT_URI_PORT = 443;
+    private static final String GET = "GET";
+    private static final String POST = "POST";
+    private static final String HEAD = "HEAD";
+    private static final String FORM_CONTENT_TYPE = "application/x-www-form-urlencoded";
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
 
-    private final HttpClient httpClient;
-    private final OAuthConsumer consumer;
+    private final Transport transport;
+    /**
+     * The transport when requests are spread over several endpoints, or null
+     */
+    private final RoutingTransport router;
+    private volatile int connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT_MS;
+    private volatile int readTimeoutMillis = DEFAULT_READ_TIMEOUT_MS;
+    private volatile long connectionRequestTimeoutMillis = DEFAULT_CONNECTION_REQUEST_TIMEOUT_MS;
+    private final RequestSigner requestSigner;
+    private volatile RetryPolicy retryPolicy = new RetryPolicy();
+    private volatile HedgingPolicy hedgingPolicy;
+    private volatile RateLimiter rateLimiter;
+    private volatile CircuitBreaker circuitBreaker;
+    private volatile ConcurrencyLimiter concurrencyLimiter;
+    private volatile Instrumentation instrumentation;
+    private volatile boolean retainRawResponses;
+    private volatile StatusCache<PairingStatus> pairingStatusCache;
+    private volatile StatusCache<AuthenticationStatus> authenticationStatusCache;
+    private volatile PairingIndex pairingIndex;
     private final String uriScheme;
     private final String uriHost;
     private final int uriPort;
     private final String uriBase;
+    private final URI baseUri;
+    private final URI pairUri;
+    private final URI authenticateUri;
+    private final EndpointTemplate pairingStatusEndpoint;
+    private final EndpointTemplate authenticationStatusEndpoint;
+
+    private final Function<String, CompletableFuture<PairingStatus>> pairingStatusLookup =
+            new Function<String, CompletableFuture<PairingStatus>>() {
+
+                @Override
+                public CompletableFuture<PairingStatus> apply(String pairingRequestId) {
+                    return getAsync(pairingStatusEndpoint.expand(pairingRequestId), pairingStatusParser, null);
+                }
+            };
+
+    private final Function<String, CompletableFuture<AuthenticationStatus>> authenticationStatusLookup =
+            new Function<String, CompletableFuture<AuthenticationStatus>>() {
+
+                @Override
+                public CompletableFuture<AuthenticationStatus> apply(String authenticationRequestId) {
+                    return getAsync(authenticationStatusEndpoint.expand(authenticationRequestId),
+                                    authenticationStatusParser, null);
+                }
+            };
 }
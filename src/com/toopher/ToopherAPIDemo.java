@@ -72,7 +72,7 @@ public class ToopherAPIDemo {
 
 			try {
 				PairingStatus pairingStatus = api.pair(pairingPhrase, userName);
-				pairingId = pairingStatus.id;
+				pairingId = pairingStatus.getId();
 				break;
 			} catch (RequestError err) {
 				System.out.println(String.format("The pairing phrase was not accepted (reason:%s)", err.getMessage()));
@@ -86,7 +86,7 @@ public class ToopherAPIDemo {
 
 			try {
 				PairingStatus pairingStatus = api.getPairingStatus(pairingId);
-				if (pairingStatus.enabled) {
+				if (pairingStatus.isEnabled()) {
 					System.out.println("Pairing complete");
                     System.out.println();
 					break;
@@ -112,7 +112,7 @@ public class ToopherAPIDemo {
 			String requestId;
 			try {
 				AuthenticationStatus requestStatus = api.authenticate(pairingId, terminalName);
-				requestId = requestStatus.id;
+				requestId = requestStatus.getId();
 			} catch (RequestError err) {
 				System.out.println(String.format("Error initiating authentication (reason:%s)", err.getMessage()));
 				continue;
@@ -131,11 +131,11 @@ public class ToopherAPIDemo {
 					continue;
 				}
 
-				if (requestStatus.pending) {
+				if (requestStatus.isPending()) {
 					System.out.println("The authentication request has not received a response from the phone yet.");
 				} else {
-					String automation = requestStatus.automated ? "automatically " : "";
-					String result = requestStatus.granted ? "granted" : "denied";
+					String automation = requestStatus.isAutomated() ? "automatically " : "";
+					String result = requestStatus.isGranted() ? "granted" : "denied";
 					System.out.println("The request was " + automation + result + "!");
                     System.out.println();
 					break;
@@ -0,0 +1,54 @@
+package com.toopher;
+
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Reports the end of the connection lease and first byte phases of a traced request.  Requests made without a
+ * request in their context pass through untouched.
+ *
+ */
+final class TracingInterceptor implements HttpRequestInterceptor, HttpResponseInterceptor {
+
+    static final TracingInterceptor INSTANCE = new TracingInterceptor();
+
+    private TracingInterceptor() {
+    }
+
+    /**
+     * @return A new context carrying the request to the interceptor
+     */
+    static HttpContext contextFor(TransportRequest request) {
+        HttpContext context = new BasicHttpContext();
+        context.setAttribute(REQUEST_ATTRIBUTE, request);
+        return context;
+    }
+
+    /**
+     * Called once a connection has been leased, just before the request is sent
+     */
+    @Override
+    public void process(HttpRequest request, HttpContext context) {
+        TransportRequest transportRequest = (TransportRequest) context.getAttribute(REQUEST_ATTRIBUTE);
+        if (transportRequest != null) {
+            transportRequest.connectionLeased();
+        }
+    }
+
+    /**
+     * Called once the response headers have been received, before the body is read
+     */
+    @Override
+    public void process(HttpResponse response, HttpContext context) {
+        TransportRequest transportRequest = (TransportRequest) context.getAttribute(REQUEST_ATTRIBUTE);
+        if (transportRequest != null) {
+            transportRequest.responseStarted();
+        }
+    }
+
+    private static final String REQUEST_ATTRIBUTE = "com.toopher.request";
+}
@@ -0,0 +1,79 @@
+package com.toopher;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends signed requests to the Toopher API on behalf of a {@link ToopherAPI} object
+ * <p>
+ * ToopherAPI signs each request, applies its retry, limiting and circuit breaker policies, and decodes the
+ * response; a transport only moves bytes.  The library includes {@link HttpClientTransport}, the default, which uses
+ * Apache HttpClient; {@link JdkHttpTransport}, which uses the JDK's java.net.http client; {@link Http2Transport},
+ * which multiplexes requests over HTTP/2 connections with the same client; and {@link InMemoryTransport}, which
+ * answers requests in-process.  Implementations must be safe to call from many threads at once.
+ *
+ */
+public interface Transport extends Closeable {
+
+    /**
+     * Send a request, blocking until the response has been read
+     *
+     * @param request
+     *            The signed request
+     * @return The response, whatever its status
+     * @throws IOException
+     *             Thrown when no response could be read, including when the request times out or the transport has
+     *             been closed
+     */
+    TransportResponse send(TransportRequest request) throws IOException;
+
+    /**
+     * Send a request without blocking the calling thread
+     *
+     * @param request
+     *            The signed request
+     * @return A future completed with the response, whatever its status, or exceptionally if no response could be
+     *         read.  Cancelling the future should abandon the exchange.
+     */
+    CompletableFuture<TransportResponse> sendAsync(TransportRequest request);
+
+    /**
+     * Open connections ahead of the first requests, so that they don't wait for DNS, a TCP connect or a TLS
+     * handshake.  Connections already open count towards the number.  Transports that open connections themselves
+     * only use the request's URI and timeouts; those whose client opens a connection only to send a request send the
+     * request once over each.  The default does nothing.
+     *
+     * @param request
+     *            A signed HEAD request to the API's base URI, carrying the timeouts and deadline of the warm-up
+     * @param connections
+     *            The number of connections to have open, up to the transport's limit
+     * @return The number of connections open
+     * @throws IOException
+     *             Thrown when no connection could be opened
+     */
+    default int warmUp(TransportRequest request, int connections) throws IOException {
+        return 0;
+    }
+
+    /**
+     * @return The number of connections in use by requests
+     */
+    int getLeasedConnections();
+
+    /**
+     * @return The number of requests waiting for a connection to become free
+     */
+    int getPendingConnections();
+
+    /**
+     * @return The maximum number of connections, or 0 if the transport doesn't use connections
+     */
+    int getMaxConnections();
+
+    /**
+     * Release the transport's connections and threads.  Requests sent after close() fail.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,142 @@
+package com.toopher;
+
+import java.net.URI;
+
+/**
+ * A signed request for a {@link Transport} to send
+ * <p>
+ * Besides what goes on the wire, a request carries the timeouts set on the ToopherAPI object and the deadline of
+ * the call, which the transport should honor as best it can.  Transports report progress with
+ * {@link #connectionLeased()} and {@link #responseStarted()} so that instrumentation can time each phase.
+ *
+ */
+public final class TransportRequest {
+
+    TransportRequest(String method, URI uri, String authorization, String contentType, byte[] body,
+                     String userAgent, int connectTimeoutMillis, int readTimeoutMillis,
+                     long connectionRequestTimeoutMillis, Deadline deadline, RequestTrace trace) {
+        this.method = method;
+        this.uri = uri;
+        this.authorization = authorization;
+        this.contentType = contentType;
+        this.body = body;
+        this.userAgent = userAgent;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.connectionRequestTimeoutMillis = connectionRequestTimeoutMillis;
+        this.deadline = deadline;
+        this.trace = trace;
+    }
+
+    /**
+     * @return The HTTP method, GET or POST
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return The absolute request URI
+     */
+    public URI getUri() {
+        return uri;
+    }
+
+    /**
+     * @return The value of the Authorization header
+     */
+    public String getAuthorization() {
+        return authorization;
+    }
+
+    /**
+     * @return The Content-Type of the body, or null if there is no body
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return The request body, or null if there is none.  The array must not be modified.
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * @return The value of the User-Agent header
+     */
+    public String getUserAgent() {
+        return userAgent;
+    }
+
+    /**
+     * @return The time allowed to establish a connection, or 0 to wait indefinitely
+     */
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    /**
+     * @return The time allowed between packets of the response, or 0 to wait indefinitely
+     */
+    public int getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    /**
+     * @return The time allowed to wait for a pooled connection when all are in use, or 0 to wait indefinitely
+     */
+    public long getConnectionRequestTimeoutMillis() {
+        return connectionRequestTimeoutMillis;
+    }
+
+    /**
+     * @return The time by which the call must complete, or null if it has no deadline
+     */
+    public Deadline getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Report that a connection has been obtained and the request is about to be written
+     */
+    public void connectionLeased() {
+        if (trace != null) {
+            trace.mark(RequestTrace.Phase.LEASE);
+        }
+    }
+
+    /**
+     * Report that the response headers have arrived and the body is about to be read
+     */
+    public void responseStarted() {
+        if (trace != null) {
+            trace.mark(RequestTrace.Phase.FIRST_BYTE);
+        }
+    }
+
+    /**
+     * @return true if the request is being traced, so that transports can skip bookkeeping for untraced requests
+     */
+    boolean isTraced() {
+        return trace != null;
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + uri;
+    }
+
+    private final String method;
+    private final URI uri;
+    private final String authorization;
+    private final String contentType;
+    private final byte[] body;
+    private final String userAgent;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final long connectionRequestTimeoutMillis;
+    private final Deadline deadline;
+    private final RequestTrace trace;
+}
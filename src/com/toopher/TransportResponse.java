@@ -0,0 +1,66 @@
+package com.toopher;
+
+/**
+ * The response a {@link Transport} received for a request
+ * <p>
+ * Transports return every response they receive, including error statuses; ToopherAPI decides what is an error.
+ *
+ */
+public final class TransportResponse {
+
+    /**
+     * @param statusCode
+     *            The HTTP status
+     * @param reasonPhrase
+     *            The reason phrase of the status line, or null if the protocol has none
+     * @param contentType
+     *            The Content-Type header, or null if the response has none
+     * @param body
+     *            The response body, or null if there is none.  A transport may leave out the body of an error
+     *            response larger than {@link #MAX_ERROR_BODY_BYTES}.
+     */
+    public TransportResponse(int statusCode, String reasonPhrase, String contentType, byte[] body) {
+        this.statusCode = statusCode;
+        this.reasonPhrase = reasonPhrase;
+        this.contentType = contentType;
+        this.body = body;
+    }
+
+    /**
+     * @return The HTTP status
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return The reason phrase of the status line, or null
+     */
+    public String getReasonPhrase() {
+        return reasonPhrase;
+    }
+
+    /**
+     * @return The Content-Type header, or null
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return The response body, or null
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * The largest error body read for an error code and message
+     */
+    public static final int MAX_ERROR_BODY_BYTES = 64 * 1024;
+
+    private final int statusCode;
+    private final String reasonPhrase;
+    private final String contentType;
+    private final byte[] body;
+}
@@ -0,0 +1,19 @@
+package com.toopher;
+
+/**
+ * No terminal matches the given terminal identifier
+ *
+ */
+public class UnknownTerminalError extends ApiError {
+
+    /**
+     * The Toopher error code for this error
+     */
+    public static final int ERROR_CODE = 706;
+
+    UnknownTerminalError(int statusCode, String errorMessage, Throwable cause) {
+        super(statusCode, ERROR_CODE, errorMessage, cause);
+    }
+
+    private static final long serialVersionUID = 9396244439514L;
+}
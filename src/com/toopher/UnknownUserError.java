@@ -0,0 +1,19 @@
+package com.toopher;
+
+/**
+ * No user matches the given user name
+ *
+ */
+public class UnknownUserError extends ApiError {
+
+    /**
+     * The Toopher error code for this error
+     */
+    public static final int ERROR_CODE = 705;
+
+    UnknownUserError(int statusCode, String errorMessage, Throwable cause) {
+        super(statusCode, ERROR_CODE, errorMessage, cause);
+    }
+
+    private static final long serialVersionUID = 1908238135305L;
+}
@@ -0,0 +1,19 @@
+package com.toopher;
+
+/**
+ * The user has disabled Toopher authentication, so requests for them are not sent to their phone
+ *
+ */
+public class UserDisabledError extends ApiError {
+
+    /**
+     * The Toopher error code for this error
+     */
+    public static final int ERROR_CODE = 704;
+
+    UserDisabledError(int statusCode, String errorMessage, Throwable cause) {
+        super(statusCode, ERROR_CODE, errorMessage, cause);
+    }
+
+    private static final long serialVersionUID = 323651921524615L;
+}
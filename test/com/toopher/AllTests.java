@@ -0,0 +1,23 @@
+package com.toopher;
+
+/**
+ * Runs every test class in turn, failing on the first assertion that doesn't hold
+ *
+ */
+public class AllTests {
+
+    public static void main(String[] args) throws Exception {
+        AuthenticationWaiterTest.main(args);
+        ConcurrencyLimiterTest.main(args);
+        Http2TransportTest.main(args);
+        PairingIndexTest.main(args);
+        OAuthRequestSignerTest.main(args);
+        ResponseDecodingTest.main(args);
+        ErrorResponseTest.main(args);
+        CircuitBreakerTest.main(args);
+        RetryPolicyTest.main(args);
+        System.out.println("All tests passed");
+        // transports and schedulers started by the tests may leave non-daemon threads behind
+        System.exit(0);
+    }
+}
@@ -0,0 +1,88 @@
+package com.toopher;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AuthenticationWaiterTest {
+
+    public static void main(String[] args) throws Exception {
+        cancellingOneCallerLeavesTheOthersWaiting();
+        eachCallerHasItsOwnDeadline();
+        System.out.println("AuthenticationWaiterTest passed");
+    }
+
+    static void cancellingOneCallerLeavesTheOthersWaiting() throws Exception {
+        Server server = new Server();
+        AuthenticationWaiter waiter = new AuthenticationWaiter(server.api(), 10, 20, null);
+        try {
+            CompletableFuture<AuthenticationStatus> first = waiter.waitFor(ID, 10, TimeUnit.SECONDS);
+            CompletableFuture<AuthenticationStatus> second = waiter.waitFor(ID, 10, TimeUnit.SECONDS);
+            Check.isTrue(first != second, "each caller should get a future of its own");
+
+            first.cancel(false);
+            final int polls = server.polls.get();
+            Check.eventually(() -> server.polls.get() > polls + 2, 5000, "the poll should go on for the other caller");
+            Check.isTrue(!second.isDone(), "the other caller should still be waiting");
+            Check.equal(1, waiter.getPendingCount(), "pending requests");
+
+            second.cancel(false);
+            Check.eventually(() -> waiter.getPendingCount() == 0, 5000, "the poll should stop with no callers left");
+            Thread.sleep(50);
+            int stopped = server.polls.get();
+            Thread.sleep(100);
+            Check.equal(stopped, server.polls.get(), "polls after the last caller cancelled");
+        } finally {
+            waiter.close();
+        }
+    }
+
+    static void eachCallerHasItsOwnDeadline() throws Exception {
+        Server server = new Server();
+        AuthenticationWaiter waiter = new AuthenticationWaiter(server.api(), 10, 20, null);
+        try {
+            CompletableFuture<AuthenticationStatus> early = waiter.waitFor(ID, 100, TimeUnit.MILLISECONDS);
+            CompletableFuture<AuthenticationStatus> late = waiter.waitFor(ID, 10, TimeUnit.SECONDS);
+            try {
+                early.get(5, TimeUnit.SECONDS);
+                throw new AssertionError("the early caller should time out");
+            } catch (ExecutionException e) {
+                Check.isTrue(e.getCause() instanceof TimeoutException, "the early caller should time out");
+            }
+            Check.isTrue(!late.isDone(), "the late caller should still be waiting");
+
+            server.granted = true;
+            Check.isTrue(late.get(5, TimeUnit.SECONDS).isGranted(), "the late caller should see the grant");
+        } finally {
+            waiter.close();
+        }
+    }
+
+    /**
+     * Reports the authentication request pending until told to grant it
+     */
+    private static class Server implements InMemoryTransport.Handler {
+        final AtomicInteger polls = new AtomicInteger();
+        volatile boolean granted;
+
+        ToopherAPI api() {
+            RequestSigner signer = (method, uri, formParameters) -> "OAuth test";
+            return new ToopherAPI(signer, null, new InMemoryTransport(this));
+        }
+
+        @Override
+        public TransportResponse handle(TransportRequest request) throws IOException {
+            polls.incrementAndGet();
+            boolean done = granted;
+            String body = "{\"id\":\"" + ID + "\",\"pending\":" + !done + ",\"granted\":" + done
+                    + ",\"automated\":false,\"reason\":\"\",\"terminal\":{\"id\":\"1\",\"name\":\"my computer\"}}";
+            return new TransportResponse(200, "OK", "application/json", body.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static final String ID = "0e1f2a3b-4c5d-6e7f-8091-a2b3c4d5e6f7";
+}
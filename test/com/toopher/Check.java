@@ -0,0 +1,40 @@
+package com.toopher;
+
+/**
+ * The few assertions the tests need, so that they run without a test framework on the classpath
+ *
+ */
+final class Check {
+
+    private Check() {
+    }
+
+    static void isTrue(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    static void equal(Object expected, Object actual, String message) {
+        if (expected == null ? actual != null : !expected.equals(actual)) {
+            throw new AssertionError(message + ": expected " + expected + " but was " + actual);
+        }
+    }
+
+    /**
+     * Poll a condition until it holds, for state that other threads settle
+     */
+    static void eventually(Condition condition, long timeoutMillis, String message) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutMillis * 1000000L;
+        while (!condition.holds()) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new AssertionError(message);
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    interface Condition {
+        boolean holds();
+    }
+}
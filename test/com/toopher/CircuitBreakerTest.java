@@ -0,0 +1,134 @@
+package com.toopher;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+public class CircuitBreakerTest {
+
+    public static void main(String[] args) throws Exception {
+        cancelledProbeLeavesTheBreakerHalfOpen();
+        unsignedProbeLeavesTheBreakerHalfOpen();
+        System.out.println("CircuitBreakerTest passed");
+    }
+
+    /**
+     * A probe cancelled before its response arrived says nothing about the API: it must neither close the breaker
+     * nor use up the probe
+     */
+    static void cancelledProbeLeavesTheBreakerHalfOpen() throws Exception {
+        Server server = new Server();
+        CircuitBreaker breaker = server.openBreaker();
+
+        server.hold = true;
+        CompletableFuture<PairingStatus> probe = server.api.getPairingStatusAsync("1");
+        Check.equal(CircuitBreaker.State.HALF_OPEN, breaker.getState(), "state while probing");
+        probe.cancel(false);
+        try {
+            server.held.get(1, TimeUnit.SECONDS);
+            throw new AssertionError("the exchange should have been cancelled");
+        } catch (CancellationException e) {
+            // expected
+        }
+        Check.equal(CircuitBreaker.State.HALF_OPEN, breaker.getState(), "state after the probe was cancelled");
+
+        server.hold = false;
+        server.healthy = true;
+        server.api.getPairingStatus("1");
+        Check.equal(CircuitBreaker.State.CLOSED, breaker.getState(), "state after a probe succeeded");
+    }
+
+    /**
+     * A probe that failed before it was sent must neither close the breaker nor use up the probe
+     */
+    static void unsignedProbeLeavesTheBreakerHalfOpen() throws Exception {
+        Server server = new Server();
+        CircuitBreaker breaker = server.openBreaker();
+
+        server.signable = false;
+        for (int i = 0; i < 2; i++) {
+            try {
+                if (i == 0) {
+                    server.api.getPairingStatus("1");
+                } else {
+                    server.api.getPairingStatusAsync("1").join();
+                }
+                throw new AssertionError("signing should have failed");
+            } catch (RequestError | CompletionException e) {
+                // expected
+            }
+            Check.equal(CircuitBreaker.State.HALF_OPEN, breaker.getState(), "state after signing failed");
+        }
+
+        server.signable = true;
+        server.healthy = true;
+        server.api.getPairingStatus("1");
+        Check.equal(CircuitBreaker.State.CLOSED, breaker.getState(), "state after a probe succeeded");
+    }
+
+    /**
+     * Fails every request with a server error until it is healthy, and can hold asynchronous requests unanswered
+     */
+    private static class Server extends InMemoryTransport {
+        final ToopherAPI api;
+        volatile boolean healthy;
+        volatile boolean signable = true;
+        volatile boolean hold;
+        volatile CompletableFuture<TransportResponse> held;
+
+        Server() {
+            super(request -> {
+                throw new AssertionError("unused");
+            });
+            RequestSigner signer = (method, uri, formParameters) -> {
+                if (!signable) {
+                    throw new RequestError(new IOException("no credentials"));
+                }
+                return "OAuth test";
+            };
+            api = new ToopherAPI(signer, null, this);
+            // let the breaker see each request once
+            api.setRetryPolicy(null);
+        }
+
+        /**
+         * Open a breaker with two failures, and wait until it lets a single probe through
+         */
+        CircuitBreaker openBreaker() throws Exception {
+            CircuitBreaker breaker = new CircuitBreaker(0.5, 1, 10000, 2, 2, 50, 1);
+            api.setCircuitBreaker(breaker);
+            for (int i = 0; i < 2; i++) {
+                try {
+                    api.getPairingStatus("1");
+                    throw new AssertionError("the request should have failed");
+                } catch (RequestError e) {
+                    // expected
+                }
+            }
+            Check.equal(CircuitBreaker.State.OPEN, breaker.getState(), "state after failures");
+            Thread.sleep(100);
+            return breaker;
+        }
+
+        @Override
+        public TransportResponse send(TransportRequest request) throws IOException {
+            if (!healthy) {
+                return new TransportResponse(500, "Internal Server Error", null, null);
+            }
+            byte[] body = ("{\"id\":\"1\",\"enabled\":true,\"pending\":false,"
+                    + "\"user\":{\"id\":\"2\",\"name\":\"u\"}}").getBytes("UTF-8");
+            return new TransportResponse(200, "OK", "application/json", body);
+        }
+
+        @Override
+        public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+            if (hold) {
+                held = new CompletableFuture<TransportResponse>();
+                return held;
+            }
+            return super.sendAsync(request);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.toopher;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ConcurrencyLimiterTest {
+
+    public static void main(String[] args) throws Exception {
+        holdsSteadyUnderOrdinaryLatencySpread();
+        backsOffWhenLatencyRises();
+        System.out.println("ConcurrencyLimiterTest passed");
+    }
+
+    /**
+     * Latency that varies from request to request, but not with load, must not be taken for congestion
+     */
+    static void holdsSteadyUnderOrdinaryLatencySpread() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(20, 4, 200, 0);
+        Load load = new Load(limiter, 200, 20);
+        try {
+            int lowest = Integer.MAX_VALUE;
+            for (int i = 0; i < 30; i++) {
+                Thread.sleep(100);
+                lowest = Math.min(lowest, limiter.getLimit());
+            }
+            Check.isTrue(lowest >= 20, "the limit fell to " + lowest + " with steady latency");
+        } finally {
+            load.stop();
+        }
+    }
+
+    static void backsOffWhenLatencyRises() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(20, 4, 200, 0);
+        Load load = new Load(limiter, 200, 20);
+        try {
+            Thread.sleep(2000);
+            int before = limiter.getLimit();
+            load.medianMillis = 80;
+            Thread.sleep(1000);
+            int after = limiter.getLimit();
+            Check.isTrue(after < before, "the limit should fall when latency rises, but went from " + before
+                    + " to " + after);
+        } finally {
+            load.stop();
+        }
+    }
+
+    /**
+     * Callers that take a slot whenever one is free and hold it for a lognormal latency with a spread of 0.4
+     */
+    private static class Load {
+        volatile double medianMillis;
+        volatile boolean stopped;
+        final CountDownLatch done;
+
+        Load(final ConcurrencyLimiter limiter, int callers, double medianMillis) {
+            this.medianMillis = medianMillis;
+            done = new CountDownLatch(callers);
+            for (int i = 0; i < callers; i++) {
+                final Random random = new Random(i);
+                Thread caller = new Thread(() -> {
+                    try {
+                        while (!stopped) {
+                            if (limiter.acquireAsync().isCompletedExceptionally()) {
+                                Thread.sleep(1);
+                                continue;
+                            }
+                            long latencyNanos = (long) (Load.this.medianMillis * 1e6
+                                    * Math.exp(0.4 * random.nextGaussian()));
+                            TimeUnit.NANOSECONDS.sleep(latencyNanos);
+                            limiter.release(latencyNanos, false);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }, "limiter-test-" + i);
+                caller.setDaemon(true);
+                caller.start();
+            }
+        }
+
+        void stop() throws InterruptedException {
+            stopped = true;
+            done.await(5, TimeUnit.SECONDS);
+        }
+    }
+}
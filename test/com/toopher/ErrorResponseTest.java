@@ -0,0 +1,111 @@
+package com.toopher;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpServer;
+
+public class ErrorResponseTest {
+
+    public static void main(String[] args) throws Exception {
+        parseReadsTheErrorCodeAndMessage();
+        transportsBoundErrorBodies();
+        System.out.println("ErrorResponseTest passed");
+    }
+
+    static void parseReadsTheErrorCodeAndMessage() {
+        ApiResponseException e = ApiResponseException.parse(409, "Conflict",
+                utf8("{\"error_code\":601,\"error_message\":\"Pairing has been deactivated\"}"));
+        Check.equal(409, e.getStatusCode(), "status");
+        Check.equal(601, e.toApiError().getErrorCode(), "error code");
+        Check.equal("Pairing has been deactivated", e.getMessage(), "error message");
+
+        e = ApiResponseException.parse(400, "Bad Request",
+                utf8(" { \"debug\" : {\"trace\": [1, \"}\"]}, \"error_message\" : \"caf\\u00e9\" ,"
+                     + " \"error_code\" : \"704\" } "));
+        Check.equal(704, e.toApiError().getErrorCode(), "error code in a string");
+        Check.equal("caf\u00e9", e.getMessage(), "escaped error message");
+
+        e = ApiResponseException.parse(502, "Bad Gateway", utf8("<html><body>Bad Gateway</body></html>"));
+        Check.equal(ApiError.NO_ERROR_CODE, e.toApiError().getErrorCode(), "error code of a proxy page");
+        Check.equal("Bad Gateway", e.getMessage(), "message of a proxy page");
+
+        e = ApiResponseException.parse(503, "Service Unavailable", null);
+        Check.equal(ApiError.NO_ERROR_CODE, e.toApiError().getErrorCode(), "error code without a body");
+        Check.equal("Service Unavailable", e.getMessage(), "message without a body");
+
+        byte[] large = new byte[TransportResponse.MAX_ERROR_BODY_BYTES + 1];
+        Arrays.fill(large, (byte) ' ');
+        byte[] error = utf8("{\"error_code\":601,\"error_message\":\"x\"}");
+        System.arraycopy(error, 0, large, 0, error.length);
+        e = ApiResponseException.parse(400, "Bad Request", large);
+        Check.equal(ApiError.NO_ERROR_CODE, e.toApiError().getErrorCode(), "error code of a body too large");
+        Check.equal("Bad Request", e.getMessage(), "message of a body too large");
+    }
+
+    /**
+     * Every transport keeps a small error body, whether or not its length is declared, and leaves out a larger one
+     * without failing the request or the connection
+     */
+    static void transportsBoundErrorBodies() throws Exception {
+        final byte[] small = utf8("{\"error_code\":601,\"error_message\":\"x\"}");
+        final byte[] limit = new byte[TransportResponse.MAX_ERROR_BODY_BYTES];
+        final byte[] large = new byte[4 * TransportResponse.MAX_ERROR_BODY_BYTES];
+        Arrays.fill(limit, (byte) 'a');
+        Arrays.fill(large, (byte) 'b');
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            byte[] body = path.contains("large") ? large : path.contains("limit") ? limit : small;
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            // a length of 0 sends the body chunked
+            exchange.sendResponseHeaders(400, path.startsWith("/chunked") ? 0 : body.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            out.close();
+        });
+        server.start();
+
+        Transport[] transports = { new HttpClientTransport(4, 4), new JdkHttpTransport(4) };
+        try {
+            String base = "http://127.0.0.1:" + server.getAddress().getPort();
+            for (Transport transport : transports) {
+                for (String framing : new String[] { "/fixed", "/chunked" }) {
+                    for (int i = 0; i < 2; i++) {
+                        String name = transport.getClass().getSimpleName() + " " + framing + (i == 0 ? "" : " async");
+                        check(transport, base + framing + "/small", i == 1, small, name + " small");
+                        check(transport, base + framing + "/limit", i == 1, limit, name + " at the limit");
+                        check(transport, base + framing + "/large", i == 1, null, name + " too large");
+                        check(transport, base + framing + "/small", i == 1, small, name + " after a large body");
+                    }
+                }
+            }
+        } finally {
+            for (Transport transport : transports) {
+                transport.close();
+            }
+            server.stop(0);
+        }
+    }
+
+    private static void check(Transport transport, String uri, boolean async, byte[] expected, String name)
+            throws Exception {
+        TransportRequest request = new TransportRequest("GET", URI.create(uri), "OAuth test", null, null, "test",
+                                                        5000, 5000, 0, null, null);
+        TransportResponse response = async ? transport.sendAsync(request).get(10, TimeUnit.SECONDS)
+                                           : transport.send(request);
+        Check.equal(400, response.getStatusCode(), name + " status");
+        Check.equal("application/json", response.getContentType(), name + " content type");
+        Check.isTrue(Arrays.equals(expected, response.getBody()),
+                     name + " body of " + (response.getBody() == null ? "null" : response.getBody().length + " bytes"));
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
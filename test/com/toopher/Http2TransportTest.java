@@ -0,0 +1,73 @@
+package com.toopher;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpServer;
+
+public class Http2TransportTest {
+
+    public static void main(String[] args) throws Exception {
+        fallbackKeepsToTheHttp1Limit();
+        System.out.println("Http2TransportTest passed");
+    }
+
+    /**
+     * A server that only speaks HTTP/1.1 must not see more connections than the HTTP/1.1 limit, beyond the requests
+     * already sent when the transport fell back
+     */
+    static void fallbackKeepsToTheHttp1Limit() throws Exception {
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger peak = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> {
+            int now = active.incrementAndGet();
+            peak.accumulateAndGet(now, Math::max);
+            try {
+                Thread.sleep(20);
+                byte[] body = "{}".getBytes("UTF-8");
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                active.decrementAndGet();
+            }
+        });
+        server.start();
+
+        int connections = 2;
+        int maxHttp1Connections = 3;
+        Http2Transport transport = new Http2Transport(connections, 100, maxHttp1Connections, 5000);
+        try {
+            URI uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/v1/pairings/1");
+            List<CompletableFuture<TransportResponse>> responses = new ArrayList<CompletableFuture<TransportResponse>>();
+            for (int i = 0; i < 40; i++) {
+                responses.add(transport.sendAsync(new TransportRequest("GET", uri, "OAuth test", null, null, "test",
+                                                                       5000, 5000, 0, null, null)));
+            }
+            for (CompletableFuture<TransportResponse> response : responses) {
+                Check.equal(200, response.get(10, TimeUnit.SECONDS).getStatusCode(), "status");
+            }
+            Check.isTrue(peak.get() <= connections + maxHttp1Connections,
+                         "the server saw " + peak.get() + " requests at once after the fallback");
+        } finally {
+            transport.close();
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+}
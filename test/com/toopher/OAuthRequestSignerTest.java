@@ -0,0 +1,134 @@
+package com.toopher;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import oauth.signpost.commonshttp.CommonsHttpOAuthConsumer;
+import oauth.signpost.http.HttpParameters;
+
+import org.apache.http.NameValuePair;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.message.BasicNameValuePair;
+
+/**
+ * Checks that OAuthRequestSigner produces the Authorization header signpost, which it replaced, produces for the
+ * same request, nonce and timestamp
+ *
+ */
+public class OAuthRequestSignerTest {
+
+    public static void main(String[] args) throws Exception {
+        formParameters();
+        queryParameters();
+        formParametersReplaceQueryParameters();
+        nullValues();
+        duplicateNames();
+        nonAsciiFormValues();
+        reservedCharacters();
+        defaultPorts();
+        System.out.println("OAuthRequestSignerTest passed");
+    }
+
+    static void formParameters() throws Exception {
+        checkPost("https://api.toopher.com/v1/authentication_requests/initiate",
+                  params("pairing_id", "4f8e2cbd-5b6a-4d3e-9c1f-0a7b8e9d6c5b", "terminal_name", "my computer",
+                         "action_name", "log in"));
+    }
+
+    static void queryParameters() throws Exception {
+        checkGet("https://api.toopher.com/v1/pairings/4f8e2cbd?b=2&a=1&a=0");
+        checkGet("https://api.toopher.com/v1/users?name=user%40example.com&note=caf%C3%A9+au+lait");
+    }
+
+    static void formParametersReplaceQueryParameters() throws Exception {
+        checkPost("https://api.toopher.com/v1/pairings/create?user_name=query&extra=kept",
+                  params("user_name", "form", "pairing_phrase", "awkward turtle"));
+    }
+
+    static void nullValues() throws Exception {
+        checkPost("https://api.toopher.com/v1/pairings/create", params("pairing_phrase", "phrase", "empty", null));
+        checkPost("https://api.toopher.com/v1/pairings/create", params("blank", "", "pairing_phrase", "phrase"));
+        checkGet("https://api.toopher.com/v1/pairings/4f8e2cbd?flag&a=1");
+    }
+
+    static void duplicateNames() throws Exception {
+        checkPost("https://api.toopher.com/v1/authentication_requests/initiate",
+                  params("action", "b", "action", "a", "action", "b", "terminal_name", "t"));
+    }
+
+    static void nonAsciiFormValues() throws Exception {
+        checkPost("https://api.toopher.com/v1/pairings/create",
+                  params("user_name", "Zo\u00eb M\u00fcller", "pairing_phrase", "cr\u00e8me br\u00fbl\u00e9e"));
+        checkPost("https://api.toopher.com/v1/authentication_requests/initiate",
+                  params("terminal_name", "\u30ce\u30fc\u30c8\u30d1\u30bd\u30b3\u30f3", "action_name", "\u30ed\u30b0\u30a4\u30f3"));
+    }
+
+    static void reservedCharacters() throws Exception {
+        checkPost("https://api.toopher.com/v1/authentication_requests/initiate",
+                  params("terminal_name", "a+b=c&d/e?f*g~h'i(j)k!l", "action_name", "100% sure; \"quoted\""));
+    }
+
+    static void defaultPorts() throws Exception {
+        checkGet("https://API.Toopher.com:443/v1/pairings/4f8e2cbd");
+        checkGet("http://api.toopher.com:80/v1/pairings/4f8e2cbd");
+        checkGet("http://localhost:8080/v1/pairings/4f8e2cbd");
+    }
+
+    private static void checkGet(String uri) throws Exception {
+        check("GET", URI.create(uri), null);
+    }
+
+    private static void checkPost(String uri, List<NameValuePair> params) throws Exception {
+        check("POST", URI.create(uri), params);
+    }
+
+    private static void check(String method, URI uri, List<NameValuePair> params) throws Exception {
+        OAuthRequestSigner signer = new OAuthRequestSigner(CONSUMER_KEY, CONSUMER_SECRET);
+        for (String[] nonceAndTimestamp : NONCES_AND_TIMESTAMPS) {
+            String nonce = nonceAndTimestamp[0];
+            String timestamp = nonceAndTimestamp[1];
+            Check.equal(signpost(method, uri, params, nonce, timestamp),
+                        signer.sign(method, uri, params, nonce, timestamp),
+                        method + " " + uri + " " + params + " signed with nonce " + nonce);
+        }
+    }
+
+    private static String signpost(String method, URI uri, List<NameValuePair> params, String nonce,
+                                   String timestamp) throws Exception {
+        HttpRequestBase request;
+        if ("POST".equals(method)) {
+            HttpPost post = new HttpPost(uri);
+            post.setEntity(new UrlEncodedFormEntity(params));
+            request = post;
+        } else {
+            request = new HttpGet(uri);
+        }
+        CommonsHttpOAuthConsumer consumer = new CommonsHttpOAuthConsumer(CONSUMER_KEY, CONSUMER_SECRET);
+        HttpParameters fixed = new HttpParameters();
+        fixed.put("oauth_nonce", nonce, true);
+        fixed.put("oauth_timestamp", timestamp, true);
+        consumer.setAdditionalParameters(fixed);
+        consumer.sign(request);
+        return request.getFirstHeader("Authorization").getValue();
+    }
+
+    private static List<NameValuePair> params(String... namesAndValues) {
+        List<NameValuePair> params = new ArrayList<NameValuePair>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            params.add(new BasicNameValuePair(namesAndValues[i], namesAndValues[i + 1]));
+        }
+        return params;
+    }
+
+    private static final String CONSUMER_KEY = "test-consumer-key";
+    private static final String CONSUMER_SECRET = "test-consumer-secret";
+    private static final List<String[]> NONCES_AND_TIMESTAMPS = Arrays.asList(
+            new String[] { "1234", "1350000000" },
+            new String[] { "-8355840293517423541", "1700000000" },
+            new String[] { "9223372036854775807", "0" });
+}
@@ -0,0 +1,239 @@
+package com.toopher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PairingIndexTest {
+
+    public static void main(String[] args) throws Exception {
+        pendingPairingsAreAlwaysLookedUp();
+        tornTailIsDropped();
+        tableOfAnotherGenerationIsRebuilt();
+        removedKeysAreReused();
+        tableGrowsInPlace();
+        System.out.println("PairingIndexTest passed");
+    }
+
+    static void pendingPairingsAreAlwaysLookedUp() throws Exception {
+        File directory = Files.createTempDirectory("pairing-index").toFile();
+        final AtomicInteger requests = new AtomicInteger();
+        final AtomicInteger pendingRequests = new AtomicInteger(2);
+        RequestSigner signer = (method, uri, formParameters) -> "OAuth test";
+        ToopherAPI api = new ToopherAPI(signer, null, new InMemoryTransport(request -> {
+            requests.incrementAndGet();
+            boolean pending = pendingRequests.getAndDecrement() > 0;
+            return new TransportResponse(200, "OK", "application/json",
+                                         pairingJson(PAIRING_ID, USER_NAME, pending));
+        }));
+        PairingIndex index = new PairingIndex(directory, 3600000, 0);
+        try {
+            api.setPairingIndex(index);
+            Check.isTrue(api.pair("phrase", USER_NAME).isPending(), "the new pairing should be pending");
+            Check.equal(null, index.get(PAIRING_ID), "a pending pairing in the index");
+            Check.isTrue(api.getPairingStatus(PAIRING_ID).isPending(), "the pairing should still be pending");
+            Check.isTrue(api.getPairingStatus(PAIRING_ID).isEnabled(), "the user should have answered");
+            Check.equal(3, requests.get(), "requests before the pairing was answered");
+            Check.isTrue(api.getPairingStatus(PAIRING_ID).isEnabled(), "the indexed pairing should be enabled");
+            Check.equal(3, requests.get(), "requests once the answered pairing was indexed");
+        } finally {
+            index.close();
+            delete(directory);
+        }
+    }
+
+    /**
+     * A record cut short at the end of the log, as a crash while appending leaves it, is dropped when reopening
+     */
+    static void tornTailIsDropped() throws Exception {
+        File directory = Files.createTempDirectory("pairing-index").toFile();
+        try {
+            PairingIndex index = new PairingIndex(directory, 3600000, 0);
+            for (int i = 0; i < 10; i++) {
+                index.put(pairing(i));
+            }
+            index.close();
+            File log = new File(directory, "pairings.log");
+            long length = log.length();
+            try (RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+                file.setLength(length - 3);
+            }
+
+            index = new PairingIndex(directory, 3600000, 0);
+            Check.equal(9, index.size(), "pairings after dropping the torn record");
+            for (int i = 0; i < 9; i++) {
+                Check.equal(pairing(i), index.get(pairing(i).getId()), "pairing " + i);
+            }
+            Check.equal(null, index.get(pairing(9).getId()), "the torn pairing");
+            index.put(pairing(9));
+            index.close();
+
+            // the start of a record the table doesn't reflect yet: a length and part of a checksum
+            length = log.length();
+            try (RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+                file.seek(length);
+                file.writeInt(40);
+                file.writeShort(0x1234);
+            }
+
+            index = new PairingIndex(directory, 3600000, 0);
+            Check.equal(length, log.length(), "log length after dropping the partial record");
+            Check.equal(10, index.size(), "pairings after storing the torn one again");
+            Check.equal(pairing(9), index.getByUserName(pairing(9).getUserName()), "the pairing stored again");
+            index.close();
+        } finally {
+            delete(directory);
+        }
+    }
+
+    /**
+     * A table left from before a compaction, as a crash between replacing the log and the table leaves it, indexes
+     * another log and must be rebuilt from the new one
+     */
+    static void tableOfAnotherGenerationIsRebuilt() throws Exception {
+        File directory = Files.createTempDirectory("pairing-index").toFile();
+        try {
+            PairingIndex index = new PairingIndex(directory, 3600000, 0);
+            for (int i = 0; i < 20; i++) {
+                index.put(pairing(i));
+            }
+            index.close();
+            File table = new File(directory, "pairings.idx");
+            byte[] oldTable = Files.readAllBytes(table.toPath());
+
+            index = new PairingIndex(directory, 3600000, 0);
+            for (int i = 0; i < 10; i++) {
+                index.remove(pairing(i).getId());
+            }
+            index.compact();
+            index.put(pairing(20));
+            index.close();
+            Files.write(table.toPath(), oldTable);
+
+            index = new PairingIndex(directory, 3600000, 0);
+            Check.equal(11, index.size(), "pairings after rebuilding the table");
+            for (int i = 0; i < 10; i++) {
+                Check.equal(null, index.get(pairing(i).getId()), "removed pairing " + i);
+            }
+            for (int i = 10; i <= 20; i++) {
+                Check.equal(pairing(i), index.get(pairing(i).getId()), "pairing " + i);
+                Check.equal(pairing(i), index.getByUserName(pairing(i).getUserName()), "user of pairing " + i);
+            }
+            index.close();
+        } finally {
+            delete(directory);
+        }
+    }
+
+    /**
+     * Storing a removed pairing again takes its old slots instead of filling the table
+     */
+    static void removedKeysAreReused() throws Exception {
+        File directory = Files.createTempDirectory("pairing-index").toFile();
+        try {
+            PairingIndex index = new PairingIndex(directory, 3600000, 0);
+            for (int i = 0; i < 100; i++) {
+                index.put(pairing(i));
+            }
+            File table = new File(directory, "pairings.idx");
+            long tableLength = table.length();
+            for (int round = 0; round < 2000; round++) {
+                PairingStatus status = pairing(round % 100);
+                Check.isTrue(index.remove(status.getId()), "the pairing should be stored before removing it");
+                Check.equal(null, index.getByUserName(status.getUserName()), "the removed pairing's user");
+                index.put(status);
+            }
+            Check.equal(tableLength, table.length(), "table size after storing removed pairings again");
+            Check.equal(100, index.size(), "pairings");
+            for (int i = 0; i < 100; i++) {
+                Check.equal(pairing(i), index.get(pairing(i).getId()), "pairing " + i);
+            }
+            index.close();
+
+            index = new PairingIndex(directory, 3600000, 0);
+            Check.equal(100, index.size(), "pairings after reopening");
+            index.close();
+        } finally {
+            delete(directory);
+        }
+    }
+
+    /**
+     * The table is extended over the same file as it fills, and a smaller table rebuilt over a larger file is kept
+     */
+    static void tableGrowsInPlace() throws Exception {
+        File directory = Files.createTempDirectory("pairing-index").toFile();
+        try {
+            PairingIndex index = new PairingIndex(directory, 3600000, 0);
+            File table = new File(directory, "pairings.idx");
+            long initialLength = table.length();
+            for (int i = 0; i < 2000; i++) {
+                index.put(pairing(i));
+            }
+            long grownLength = table.length();
+            Check.isTrue(grownLength > initialLength, "the table should have grown");
+            for (int i = 0; i < 2000; i++) {
+                Check.equal(pairing(i), index.get(pairing(i).getId()), "pairing " + i);
+                Check.equal(pairing(i), index.getByUserName(pairing(i).getUserName()), "user of pairing " + i);
+            }
+            index.close();
+
+            index = new PairingIndex(directory, 3600000, 0);
+            Check.equal(2000, index.size(), "pairings after reopening");
+            for (int i = 0; i < 2000; i++) {
+                Check.isTrue(index.remove(pairing(i).getId()), "pairing " + i + " should be stored");
+            }
+            index.put(pairing(0));
+            index.compact();
+            index.close();
+
+            // a damaged header makes the table be rebuilt at its initial size over the larger file
+            try (RandomAccessFile file = new RandomAccessFile(table, "rw")) {
+                file.setLength(grownLength);
+                file.writeInt(0);
+            }
+            index = new PairingIndex(directory, 3600000, 0);
+            Check.equal(pairing(0), index.get(pairing(0).getId()), "pairing after rebuilding the table");
+            index.close();
+            Check.equal(grownLength, table.length(), "table file length after rebuilding the table");
+            index = new PairingIndex(directory, 3600000, 0);
+            Check.equal(1, index.size(), "pairings after reopening the rebuilt table");
+            Check.equal(pairing(0), index.get(pairing(0).getId()), "pairing after reopening the rebuilt table");
+            index.close();
+        } finally {
+            delete(directory);
+        }
+    }
+
+    static PairingStatus pairing(int i) {
+        return new PairingStatus.Builder()
+                .setId(String.format("00000000-0000-4000-8000-%012d", i))
+                .setUserId(String.format("10000000-0000-4000-8000-%012d", i))
+                .setUserName("user" + i + "@example.com")
+                .setEnabled(true)
+                .setPending(false)
+                .build();
+    }
+
+    static byte[] pairingJson(String id, String userName, boolean pending) {
+        return ("{\"id\":\"" + id + "\",\"enabled\":" + !pending + ",\"pending\":" + pending
+                + ",\"user\":{\"id\":\"a9c2e8f0-1b3d-4e5f-8a7b-6c5d4e3f2a1b\",\"name\":\"" + userName + "\"}}")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    static void delete(File file) throws IOException {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        Files.deleteIfExists(file.toPath());
+    }
+
+    private static final String PAIRING_ID = "4f8e2cbd-5b6a-4d3e-9c1f-0a7b8e9d6c5b";
+    private static final String USER_NAME = "user@example.com";
+}
@@ -0,0 +1,130 @@
+package com.toopher;
+
+import java.nio.charset.StandardCharsets;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Checks that the streaming decoders read responses as the JSONObject constructors they replaced do
+ *
+ */
+public class ResponseDecodingTest {
+
+    public static void main(String[] args) throws Exception {
+        authenticationStatusMatchesJsonObject();
+        pairingStatusMatchesJsonObject();
+        missingFieldsAreRejected();
+        malformedBodiesAreRejected();
+        readerSkipsNestedValues();
+        System.out.println("ResponseDecodingTest passed");
+    }
+
+    static void authenticationStatusMatchesJsonObject() throws Exception {
+        String[] bodies = {
+            "{\"id\":\"1\",\"pending\":false,\"granted\":true,\"automated\":false,\"reason\":\"\","
+                    + "\"terminal\":{\"id\":\"2\",\"name\":\"my computer\"}}",
+            // reordered, spaced, with unknown members of every kind
+            " {\n \"terminal\" : { \"requester_specified_id\" : null, \"name\" : \"t\", \"id\" : \"2\" } ,"
+                    + " \"extra\" : [1, {\"a\": [\"]}\"]}, true] , \"reason\" : \"user denied\" ,"
+                    + " \"automated\" : true , \"granted\" : false , \"pending\" : true , \"id\" : \"1\" ,"
+                    + " \"count\" : -1.5e3 } ",
+            // booleans as strings, as JSONObject.getBoolean accepts
+            "{\"id\":\"1\",\"pending\":\"false\",\"granted\":\"TRUE\",\"automated\":\"False\",\"reason\":\"r\","
+                    + "\"terminal\":{\"id\":\"2\",\"name\":\"t\"}}",
+            // escapes, including a surrogate pair, and raw UTF-8
+            "{\"id\":\"a\\\"b\\\\c\\/d\",\"pending\":false,\"granted\":true,\"automated\":false,"
+                    + "\"reason\":\"line\\nbreak\\ttab \\u00e9\\ud83d\\ude00\","
+                    + "\"terminal\":{\"id\":\"2\",\"name\":\"caf\u00e9 \u30ce\u30fc\u30c8\"}}",
+        };
+        for (String body : bodies) {
+            AuthenticationStatus expected = new AuthenticationStatus(new JSONObject(body));
+            AuthenticationStatus decoded = AuthenticationStatus.decode(utf8(body), false);
+            Check.equal(expected, decoded, "decoded " + body);
+            Check.equal(expected.getReason(), decoded.getReason(), "reason of " + body);
+            Check.equal(expected.getTerminalName(), decoded.getTerminalName(), "terminal name of " + body);
+        }
+    }
+
+    static void pairingStatusMatchesJsonObject() throws Exception {
+        String[] bodies = {
+            "{\"id\":\"1\",\"enabled\":true,\"pending\":false,\"user\":{\"id\":\"2\",\"name\":\"user@example.com\"}}",
+            "{ \"user\" : { \"extra\" : {\"nested\": [[], {}]}, \"name\" : \"Zo\u00eb\", \"id\" : \"2\" },"
+                    + " \"pending\" : \"true\" , \"enabled\" : false , \"id\" : \"1\", \"n\" : null }",
+            "{\"id\":\"\\u0031\",\"enabled\":true,\"pending\":false,\"user\":{\"id\":\"2\",\"name\":\"a\\u0000b\"}}",
+        };
+        for (String body : bodies) {
+            PairingStatus expected = new PairingStatus(new JSONObject(body));
+            PairingStatus decoded = PairingStatus.decode(utf8(body), false);
+            Check.equal(expected, decoded, "decoded " + body);
+            Check.equal(expected.getUserName(), decoded.getUserName(), "user name of " + body);
+        }
+        PairingStatus retained = PairingStatus.decode(utf8(bodies[1]), true);
+        Check.isTrue(retained.hasRaw(), "the raw response should be kept");
+        Check.equal("1", retained.getRawString("id"), "raw id");
+        Check.isTrue(!PairingStatus.decode(utf8(bodies[1]), false).hasRaw(), "raw response when not kept");
+    }
+
+    static void missingFieldsAreRejected() {
+        rejects("{\"id\":\"1\",\"pending\":false,\"granted\":true,\"automated\":false,\"reason\":\"\"}", true);
+        rejects("{\"id\":\"1\",\"pending\":false,\"granted\":true,\"reason\":\"\","
+                + "\"terminal\":{\"id\":\"2\",\"name\":\"t\"}}", true);
+        rejects("{\"id\":\"1\",\"enabled\":true,\"user\":{\"id\":\"2\",\"name\":\"u\"}}", false);
+        rejects("{\"id\":\"1\",\"enabled\":true,\"pending\":false,\"user\":{\"id\":\"2\"}}", false);
+    }
+
+    static void malformedBodiesAreRejected() {
+        String[] bodies = {
+            "",
+            "[]",
+            "{\"id\":\"1\",\"enabled\":true,\"pending\":false,\"user\":{\"id\":\"2\",\"name\":\"u\"}",
+            "{\"id\":\"1\" \"enabled\":true,\"pending\":false,\"user\":{\"id\":\"2\",\"name\":\"u\"}}",
+            "{\"id\":\"1\",\"enabled\":yes,\"pending\":false,\"user\":{\"id\":\"2\",\"name\":\"u\"}}",
+            "{\"id\":\"1\",\"enabled\":true,\"pending\":false,\"user\":{\"id\":\"2\",\"name\":\"u\\x\"}}",
+            "{\"id\":\"1\",\"enabled\":true,\"pending\":false,\"user\":{\"id\":\"2\",\"name\":\"unterminated}}",
+            "{\"id\":\"1\",\"enabled\":{},\"pending\":false,\"user\":{\"id\":\"2\",\"name\":\"u\"}}",
+        };
+        for (String body : bodies) {
+            rejects(body, false);
+        }
+    }
+
+    static void readerSkipsNestedValues() throws Exception {
+        JsonReader reader = new JsonReader(utf8("{\"a\":{\"b\":[1,\"}\",{\"c\":\"]\"}]},\"n\":\"42\",\"m\":-7,"
+                + "\"s\":\"x\"}"));
+        reader.beginObject();
+        Check.isTrue(reader.hasNext(), "first member");
+        Check.equal("a", reader.nextName(), "first name");
+        reader.skipValue();
+        Check.isTrue(reader.hasNext(), "second member");
+        Check.equal("n", reader.nextName(), "second name");
+        Check.equal(42, reader.nextInt(), "an integer in a string");
+        Check.isTrue(reader.hasNext(), "third member");
+        Check.equal("m", reader.nextName(), "third name");
+        Check.equal(-7, reader.nextInt(), "a negative integer");
+        Check.isTrue(reader.hasNext(), "fourth member");
+        Check.equal("s", reader.nextName(), "fourth name");
+        Check.equal("x", reader.nextString(), "a string");
+        Check.isTrue(!reader.hasNext(), "no more members");
+        reader.endObject();
+    }
+
+    private static void rejects(String body, boolean authentication) {
+        try {
+            if (authentication) {
+                AuthenticationStatus.decode(utf8(body), false);
+            } else {
+                PairingStatus.decode(utf8(body), false);
+            }
+        } catch (JSONException e) {
+            return;
+        } catch (RuntimeException e) {
+            throw new AssertionError("decoding " + body + " failed with " + e + " instead of a JSONException");
+        }
+        throw new AssertionError("decoding " + body + " should fail");
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
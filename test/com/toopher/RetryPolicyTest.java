@@ -0,0 +1,75 @@
+package com.toopher;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.NoHttpResponseException;
+
+public class RetryPolicyTest {
+
+    public static void main(String[] args) throws Exception {
+        defaultPolicyRetriesAStaleConnection();
+        defaultPolicyRetriesOnlyUnsentPairings();
+        System.out.println("RetryPolicyTest passed");
+    }
+
+    /**
+     * A status lookup sent over a pooled connection the server had already closed is sent again
+     */
+    static void defaultPolicyRetriesAStaleConnection() throws Exception {
+        Server server = new Server(new NoHttpResponseException("The target server failed to respond"));
+        PairingStatus status = server.api().getPairingStatus("1");
+        Check.equal("1", status.getId(), "pairing id");
+        Check.equal(2, server.attempts.get(), "attempts");
+        server.attempts.set(0);
+        status = server.api().getPairingStatusAsync("1").get();
+        Check.equal("1", status.getId(), "pairing id");
+        Check.equal(2, server.attempts.get(), "attempts");
+    }
+
+    /**
+     * A pairing request is sent again only if it never reached the server
+     */
+    static void defaultPolicyRetriesOnlyUnsentPairings() throws Exception {
+        Server server = new Server(new NoHttpResponseException("The target server failed to respond"));
+        try {
+            server.api().pair("phrase", "user");
+            throw new AssertionError("the pairing should have failed");
+        } catch (RequestError e) {
+            Check.equal(1, server.attempts.get(), "attempts after the server may have acted");
+        }
+
+        server = new Server(new ConnectException("Connection refused"));
+        PairingStatus status = server.api().pair("phrase", "user");
+        Check.equal("1", status.getId(), "pairing id");
+        Check.equal(2, server.attempts.get(), "attempts after the connection failed");
+    }
+
+    /**
+     * Fails the first request with an exception, and answers the rest with a pairing
+     */
+    private static class Server implements InMemoryTransport.Handler {
+        final AtomicInteger attempts = new AtomicInteger();
+        private final IOException firstFailure;
+
+        Server(IOException firstFailure) {
+            this.firstFailure = firstFailure;
+        }
+
+        ToopherAPI api() {
+            RequestSigner signer = (method, uri, formParameters) -> "OAuth test";
+            return new ToopherAPI(signer, null, new InMemoryTransport(this));
+        }
+
+        @Override
+        public TransportResponse handle(TransportRequest request) throws IOException {
+            if (attempts.incrementAndGet() == 1) {
+                throw firstFailure;
+            }
+            byte[] body = ("{\"id\":\"1\",\"enabled\":true,\"pending\":false,"
+                    + "\"user\":{\"id\":\"2\",\"name\":\"u\"}}").getBytes("UTF-8");
+            return new TransportResponse(200, "OK", "application/json", body);
+        }
+    }
+}